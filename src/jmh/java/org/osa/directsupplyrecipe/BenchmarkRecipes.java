@@ -0,0 +1,58 @@
+package org.osa.directsupplyrecipe;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic recipes shared by the benchmarks, shaped like the bundled catalog:
+ * unique titles, a yield and 4 to 11 ingredients with a quantity and unit drawn from a shared,
+ * skewed vocabulary.
+ */
+public final class BenchmarkRecipes {
+
+    private static final String[] DISHES = {"Stir-Fry", "Omelette", "Oats", "Curry", "Salad", "Soup", "Stew", "Tacos"};
+    private static final String[] INGREDIENTS = {"olive oil", "chicken breast", "broccoli florets", "red bell pepper",
+            "soy sauce", "garlic", "ginger", "large eggs", "diced onion", "diced tomato", "spinach leaves",
+            "rolled oats", "almond milk", "chia seeds", "honey", "blueberries", "basmati rice", "coconut milk"};
+    private static final String[] UNITS = {"g", "ml", "tsp", "tbsp"};
+
+    private BenchmarkRecipes() {
+    }
+
+    /**
+     * Creates the recipe at the given catalog position; the same index always yields the same recipe.
+     *
+     * @param index the catalog position
+     * @return a new recipe titled {@code "Recipe <index> <dish>"}
+     */
+    public static Recipe recipe(int index) {
+        Random random = new Random(index);
+        Recipe recipe = new Recipe();
+        recipe.setTitle("Recipe " + index + " " + DISHES[random.nextInt(DISHES.length)]);
+        recipe.setYield(1 + random.nextInt(8));
+        List<String> ingredients = new ArrayList<>();
+        for (int i = 4 + random.nextInt(8); i > 0; i--) {
+            int name = (int) (INGREDIENTS.length * Math.pow(random.nextDouble(), 2));
+            ingredients.add(5 * (1 + random.nextInt(40)) + UNITS[random.nextInt(UNITS.length)] + " " + INGREDIENTS[name]);
+        }
+        recipe.setIngredients(ingredients);
+        return recipe;
+    }
+
+    /**
+     * Creates a catalog of {@code size} recipes.
+     *
+     * @param size the number of recipes
+     * @return the recipes, in catalog order
+     */
+    public static List<Recipe> catalog(int size) {
+        List<Recipe> recipes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            recipes.add(recipe(i));
+        }
+        return recipes;
+    }
+}
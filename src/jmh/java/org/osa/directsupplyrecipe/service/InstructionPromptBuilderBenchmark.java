@@ -0,0 +1,35 @@
+package org.osa.directsupplyrecipe.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.osa.directsupplyrecipe.BenchmarkRecipes;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction for a typical recipe, run once per instruction cache miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstructionPromptBuilderBenchmark {
+
+    private final InstructionPromptBuilder builder = new InstructionPromptBuilder();
+    private Recipe recipe;
+
+    @Setup
+    public void setUp() {
+        recipe = BenchmarkRecipes.recipe(42);
+    }
+
+    @Benchmark
+    public String build() {
+        return builder.build(recipe);
+    }
+}
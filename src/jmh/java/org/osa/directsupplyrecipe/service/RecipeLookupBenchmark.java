@@ -0,0 +1,70 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.osa.directsupplyrecipe.BenchmarkRecipes;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact and prefix title lookups through {@link RecipeService} at increasing catalog sizes.
+ * Lookups use a different case than the catalog, as user input typically does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecipeLookupBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private RecipeService service;
+    private GenerationLimiter limiter;
+    private String[] titles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Recipe> recipes = BenchmarkRecipes.catalog(catalogSize);
+        limiter = new GenerationLimiter(1, 0, Duration.ofSeconds(1));
+        service = RecipeServiceFixture.of(recipes)
+                .cache(new InstructionCache(1, Duration.ofHours(1), "", 1000, new ObjectMapper()))
+                .limiter(limiter)
+                .build();
+        titles = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            titles[i] = recipes.get((int) ((long) i * 7919 % catalogSize)).getTitle().toUpperCase(Locale.ROOT);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        limiter.close();
+    }
+
+    @Benchmark
+    public Recipe getRecipe() {
+        return service.getRecipe(titles[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public List<String> searchRecipeTitles() {
+        // "Recipe 12" matches a handful of titles at every catalog size
+        return service.searchRecipeTitles("recipe 12", 10);
+    }
+}
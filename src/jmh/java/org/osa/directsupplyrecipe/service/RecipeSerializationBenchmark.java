@@ -0,0 +1,64 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.osa.directsupplyrecipe.BenchmarkRecipes;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.model.RecipeField;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of recipe lists: Jackson data binding of a {@code List<Recipe>}, as the
+ * endpoint originally did, against the streaming {@link RecipeJsonWriter} with all fields and
+ * with the title-only projection used by list views. Output goes to a discarding stream so only
+ * serialization itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecipeSerializationBenchmark {
+
+    private static final Set<RecipeField> ALL_FIELDS = EnumSet.allOf(RecipeField.class);
+    private static final Set<RecipeField> TITLE_ONLY = EnumSet.of(RecipeField.TITLE);
+
+    @Param({"10", "1000"})
+    public int recipeCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RecipeJsonWriter writer = new RecipeJsonWriter(objectMapper);
+    private List<Recipe> recipes;
+
+    @Setup
+    public void setUp() {
+        recipes = BenchmarkRecipes.catalog(recipeCount);
+    }
+
+    @Benchmark
+    public byte[] objectMapperToBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(recipes);
+    }
+
+    @Benchmark
+    public void streamingWriterAllFields() throws IOException {
+        writer.write(recipes, ALL_FIELDS, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void streamingWriterTitles() throws IOException {
+        writer.write(recipes, TITLE_ONLY, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,58 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sanitizing and parsing model output shaped like real Gemini responses: a bare array, an array
+ * in a code fence, an array wrapped in prose, and noisy output with bracketed asides before the
+ * array and brackets inside steps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonArraySanitizerBenchmark {
+
+    @Param({"bare", "fenced", "prose", "noisy"})
+    public String shape;
+
+    private String response;
+
+    @Setup
+    public void setUp() {
+        StringJoiner steps = new StringJoiner(",\n  ", "[\n  ", "\n]");
+        for (int i = 1; i <= 12; i++) {
+            steps.add("\"Step " + i + ": heat the olive oil, add the garlic [about 10g] and stir for "
+                    + i + " minutes, until \\\"fragrant\\\".\"");
+        }
+        String array = steps.toString();
+        response = switch (shape) {
+            case "bare" -> array;
+            case "fenced" -> "```json\n" + array + "\n```";
+            case "prose" -> "Here are the instructions for your recipe:\n\n" + array + "\n\nEnjoy your meal!";
+            case "noisy" -> "Steps for [Recipe 42 Curry] (serves [4]):\n```json\n" + array
+                    + "\n```\nNote: adjust the seasoning [to taste].";
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public String sanitizeToJsonArray() {
+        return JsonArraySanitizer.sanitizeToJsonArray(response);
+    }
+
+    @Benchmark
+    public List<String> parseStringArray() {
+        return JsonArraySanitizer.parseStringArray(response);
+    }
+}
@@ -0,0 +1,191 @@
+package org.osa.directsupplyrecipe.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.osa.directsupplyrecipe.service.SyntheticInstructions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the Gemini {@code generateContent} API, so load tests exercise the real client,
+ * generation limiter and streaming path without network access, quota or cost.
+ *
+ * Serves {@code POST /v1beta/models/{model}:generateContent} and
+ * {@code POST /v1beta/models/{model}:streamGenerateContent?alt=sse} with the same response shapes as the
+ * real API. Each call waits for a latency drawn from a {@link LatencyDistribution}; a configurable fraction
+ * of calls fail with {@code 503 UNAVAILABLE}, like an overloaded model. Streamed responses are split into
+ * server-sent events of {@code chunkSize} characters with the latency spread evenly between them.
+ *
+ * The instructions are derived from the recipe title and ingredients in the prompt by
+ * {@link SyntheticInstructions}, so the application's parsing and caching behave as they would with real output;
+ * batch prompts get a JSON object of step arrays keyed by recipe key.
+ */
+public class FakeGeminiServer implements AutoCloseable {
+
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final int chunkSize;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final HttpServer server;
+
+    /**
+     * Starts a FakeGeminiServer on an ephemeral loopback port.
+     *
+     * @param latency the latency of each call
+     * @param errorRate the fraction of calls, between 0 and 1, answered with 503
+     * @param chunkSize the number of characters per streamed event
+     * @throws IOException if the server cannot bind
+     */
+    public FakeGeminiServer(LatencyDistribution latency, double errorRate, int chunkSize) throws IOException {
+        if (errorRate < 0 || errorRate > 1 || chunkSize <= 0) {
+            throw new IllegalArgumentException("error rate must be within [0, 1] and chunk size positive");
+        }
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.chunkSize = chunkSize;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // Every call sleeps for its latency, so each needs its own thread
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the base URL to configure as {@code gemini.base-url}.
+     *
+     * @return the server's base URL
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of calls received so far.
+     *
+     * @return the call count
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Returns the number of calls answered with an injected error so far.
+     *
+     * @return the injected error count
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Stops the server, dropping calls still in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            boolean stream = path.endsWith(":streamGenerateContent");
+            if (!"POST".equals(exchange.getRequestMethod())
+                    || !(stream || path.endsWith(":generateContent"))) {
+                send(exchange, 404, "application/json", error(404, "Not found: " + path, "NOT_FOUND"));
+                return;
+            }
+            calls.incrementAndGet();
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            Random random = ThreadLocalRandom.current();
+            long latencyMillis = latency.sampleMillis(random);
+
+            if (random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                sleep(latencyMillis);
+                send(exchange, 503, "application/json", error(503, "The model is overloaded.", "UNAVAILABLE"));
+                return;
+            }
+
+            String prompt = request.at("/contents/0/parts/0/text").asText();
+            String text = SyntheticInstructions.render(prompt);
+            int promptTokens = prompt.length() / 4;
+            int candidateTokens = text.length() / 4;
+            if (!stream) {
+                sleep(latencyMillis);
+                send(exchange, 200, "application/json", response(text, promptTokens, candidateTokens));
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream body = exchange.getResponseBody();
+            int chunks = (text.length() + chunkSize - 1) / chunkSize;
+            long perChunk = latencyMillis / Math.max(chunks, 1);
+            for (int start = 0; start < text.length(); start += chunkSize) {
+                sleep(perChunk);
+                boolean last = start + chunkSize >= text.length();
+                String chunk = text.substring(start, Math.min(start + chunkSize, text.length()));
+                ObjectNode event = last ? response(chunk, promptTokens, candidateTokens) : response(chunk);
+                body.write(("data: " + objectMapper.writeValueAsString(event) + "\r\n\r\n")
+                        .getBytes(StandardCharsets.UTF_8));
+                body.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ObjectNode response(String text) {
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode candidate = response.putArray("candidates").addObject();
+        ObjectNode content = candidate.putObject("content");
+        content.putArray("parts").addObject().put("text", text);
+        content.put("role", "model");
+        return response;
+    }
+
+    private ObjectNode response(String text, int promptTokens, int candidateTokens) {
+        ObjectNode response = response(text);
+        ((ObjectNode) response.get("candidates").get(0)).put("finishReason", "STOP");
+        response.putObject("usageMetadata")
+                .put("promptTokenCount", promptTokens)
+                .put("candidatesTokenCount", candidateTokens)
+                .put("totalTokenCount", promptTokens + candidateTokens);
+        return response;
+    }
+
+    private ObjectNode error(int code, String message, String status) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putObject("error").put("code", code).put("message", message).put("status", status);
+        return response;
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.osa.directsupplyrecipe.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.Random;
+
+/**
+ * A distribution of response latencies, sampled by the {@link FakeGeminiServer} for every call.
+ *
+ * Parsed from a compact specification so scenarios stay readable:
+ * - {@code fixed:800ms}: every call takes the same time.
+ * - {@code uniform:200ms..2s}: uniformly distributed between the two bounds.
+ * - {@code lognormal:800ms..5s}: log-normal with the first value as median and the second as p99, the
+ *   long-tailed shape real model latencies tend to have.
+ */
+public interface LatencyDistribution {
+
+    /**
+     * Draws one latency.
+     *
+     * @param random the source of randomness
+     * @return the sampled latency in milliseconds, never negative
+     */
+    long sampleMillis(Random random);
+
+    /**
+     * Parses a latency specification.
+     *
+     * @param spec the specification, e.g. {@code lognormal:800ms..5s}
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndArgs = spec.trim().split(":", 2);
+        if (kindAndArgs.length != 2) {
+            throw new IllegalArgumentException("Expected <kind>:<args> but got " + spec);
+        }
+        String[] bounds = kindAndArgs[1].split("\\.\\.");
+        long first = DurationStyle.detectAndParse(bounds[0].trim()).toMillis();
+        if (kindAndArgs[0].equals("fixed") && bounds.length == 1) {
+            return random -> first;
+        }
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Expected <low>..<high> in " + spec);
+        }
+        long second = DurationStyle.detectAndParse(bounds[1].trim()).toMillis();
+        switch (kindAndArgs[0]) {
+            case "uniform":
+                return random -> first + (long) (random.nextDouble() * (second - first));
+            case "lognormal":
+                // p99 = median * exp(2.326 sigma)
+                double mu = Math.log(first);
+                double sigma = Math.log((double) second / first) / 2.326;
+                return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + kindAndArgs[0]);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.osa.directsupplyrecipe.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.osa.directsupplyrecipe.DirectSupplyRecipeApplication;
+import org.osa.directsupplyrecipe.catalog.RecipeSnapshot;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.service.GenerationLimiter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link LoadTestScenario} end to end and reports throughput, latency percentiles and errors.
+ *
+ * The runner writes a synthetic catalog snapshot, starts a {@link FakeGeminiServer} and then the
+ * application in this JVM, configured with the real Gemini generator pointed at the stand-in. It then
+ * drives open-loop mixed traffic over HTTP for each step of the scenario. Latency is measured from each
+ * request's scheduled send time, so queueing inside the client is charged to the server rather than
+ * hidden (coordinated omission), and is recorded in HdrHistograms per endpoint.
+ *
+ * The report is printed and written as {@code <scenario>.txt} and {@code <scenario>.json} to the report
+ * directory. Run with {@code gradle loadTest -Pscenario=<name>}.
+ */
+public final class LoadTestRunner {
+
+    private static final String[] DISHES = {"Stir-Fry", "Omelette", "Oats", "Curry", "Salad", "Soup", "Stew", "Tacos"};
+    private static final String[] INGREDIENTS = {"olive oil", "chicken breast", "broccoli florets", "red bell pepper",
+            "soy sauce", "garlic", "ginger", "large eggs", "diced onion", "diced tomato", "spinach leaves",
+            "rolled oats", "almond milk", "chia seeds", "honey", "blueberries", "basmati rice", "coconut milk"};
+    private static final String[] UNITS = {"g", "ml", "tsp", "tbsp"};
+    // Latencies are recorded in microseconds, up to ten minutes with three significant digits
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final LoadTestScenario scenario;
+    private final List<String> titles;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String[] endpoints;
+    private final int[] cumulativeWeights;
+
+    private LoadTestRunner(LoadTestScenario scenario, List<String> titles, int port) {
+        this.scenario = scenario;
+        this.titles = titles;
+        this.baseUrl = "http://localhost:" + port;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        Map<String, Integer> mix = scenario.getMix();
+        this.endpoints = mix.keySet().toArray(String[]::new);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += mix.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Scenario " + scenario.getName() + " has no traffic mix");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestScenario scenario = LoadTestScenario.load(args.length > 0 ? args[0] : "baseline");
+        Path reportDir = Path.of(args.length > 1 ? args[1] : "build/reports/loadtest");
+
+        Path snapshot = Files.createTempFile("loadtest-", ".snapshot");
+        List<String> titles = writeCatalog(scenario.getCatalogSize(), snapshot);
+        try (FakeGeminiServer gemini = new FakeGeminiServer(scenario.getGeminiLatency(),
+                scenario.getGeminiErrorRate(), scenario.getGeminiChunkSize());
+             ConfigurableApplicationContext app = startApplication(scenario, snapshot, gemini.getBaseUrl())) {
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            LoadTestRunner runner = new LoadTestRunner(scenario, titles, port);
+
+            int[] rates = scenario.getRates();
+            System.out.printf("Warming up at %d/s for %s%n", rates[0], scenario.getWarmup());
+            runner.runStep(rates[0], scenario.getWarmup(), new Random(0));
+            List<StepResult> steps = new ArrayList<>();
+            for (int rate : rates) {
+                System.out.printf("Running %d/s for %s%n", rate, scenario.getDuration());
+                steps.add(runner.runStep(rate, scenario.getDuration(), new Random(rate)));
+            }
+
+            Map<String, Object> report = report(scenario, steps, gemini, app.getBean(GenerationLimiter.class));
+            String text = render(report);
+            System.out.print(text);
+            Files.createDirectories(reportDir);
+            Files.writeString(reportDir.resolve(scenario.getName() + ".txt"), text);
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                    .writeValue(reportDir.resolve(scenario.getName() + ".json").toFile(), report);
+            System.out.println("Report written to " + reportDir.toAbsolutePath());
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Sends requests at {@code rate} per second for {@code duration}, then waits for all of them.
+     */
+    private StepResult runStep(int rate, Duration duration, Random random) {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long scheduled = start; scheduled < end; scheduled += interval) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String endpoint = pickEndpoint(random);
+            EndpointStats endpointStats = stats.get(endpoint);
+            long sentAt = scheduled;
+            inFlight.add(client.sendAsync(request(endpoint, pickRecipe(random)), HttpResponse.BodyHandlers.ofString())
+                    .handle((response, failure) -> {
+                        endpointStats.record(System.nanoTime() - sentAt, outcome(response, failure));
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        return new StepResult(rate, duration, System.nanoTime() - start, stats);
+    }
+
+    private String pickEndpoint(Random random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (draw >= cumulativeWeights[i]) {
+            i++;
+        }
+        return endpoints[i];
+    }
+
+    /**
+     * Picks a recipe with popularity skewed towards the start of the catalog.
+     */
+    private int pickRecipe(Random random) {
+        return (int) (titles.size() * Math.pow(random.nextDouble(), scenario.getCatalogSkew()));
+    }
+
+    private HttpRequest request(String endpoint, int recipe) {
+        String name = URLEncoder.encode(titles.get(recipe), StandardCharsets.UTF_8).replace("+", "%20");
+        String path = switch (endpoint) {
+            case "list" -> "/recipe?limit=20&offset=" + recipe / 20 * 20;
+            case "recipe" -> "/recipe/" + name;
+            case "instructions" -> "/recipe/" + name + "/instructions";
+            case "stream" -> "/recipe/" + name + "/instructions/stream";
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        };
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(scenario.getRequestTimeout())
+                .header("Accept", endpoint.equals("stream") ? "text/event-stream" : "application/json")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Classifies a response: {@code null} for success, otherwise the status code or failure kind.
+     * Streams report failures in-band after a 200, so their body is checked for a failure event.
+     */
+    private static String outcome(HttpResponse<String> response, Throwable failure) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            return cause instanceof HttpTimeoutException ? "timeout" : cause.getClass().getSimpleName();
+        }
+        if (response.statusCode() / 100 != 2) {
+            return String.valueOf(response.statusCode());
+        }
+        return response.body().contains("event:failure") ? "stream-failure" : null;
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestScenario scenario, Path snapshot,
+                                                                   String geminiBaseUrl) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("recipes.snapshot.path", snapshot.toString());
+        properties.put("instruction.generator", "gemini");
+        properties.put("gemini.api-key", "load-test");
+        properties.put("gemini.base-url", geminiBaseUrl);
+        properties.put("logging.level.root", "WARN");
+        // Failed requests are counted in the report; their stack traces would drown the console
+        properties.put("logging.level.org.apache.catalina.core", "OFF");
+        properties.putAll(scenario.getApplicationProperties());
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(DirectSupplyRecipeApplication.class, args);
+    }
+
+    /**
+     * Writes a deterministic synthetic catalog and returns its titles in catalog order.
+     */
+    private static List<String> writeCatalog(int size, Path snapshot) throws IOException {
+        List<Recipe> recipes = new ArrayList<>(size);
+        for (int index = 0; index < size; index++) {
+            Random random = new Random(index);
+            Recipe recipe = new Recipe();
+            recipe.setTitle("Recipe " + index + " " + DISHES[random.nextInt(DISHES.length)]);
+            recipe.setYield(1 + random.nextInt(8));
+            List<String> ingredients = new ArrayList<>();
+            for (int i = 4 + random.nextInt(8); i > 0; i--) {
+                ingredients.add(5 * (1 + random.nextInt(40)) + UNITS[random.nextInt(UNITS.length)] + " "
+                        + INGREDIENTS[random.nextInt(INGREDIENTS.length)]);
+            }
+            recipe.setIngredients(ingredients);
+            recipes.add(recipe);
+        }
+        RecipeSnapshot.write(recipes, snapshot);
+        return recipes.stream().map(Recipe::getTitle).toList();
+    }
+
+    private static Map<String, Object> report(LoadTestScenario scenario, List<StepResult> steps,
+                                              FakeGeminiServer gemini, GenerationLimiter limiter) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", scenario.getName());
+        report.put("description", scenario.getDescription());
+        report.put("catalogSize", scenario.getCatalogSize());
+        Map<String, Object> upstream = new LinkedHashMap<>();
+        upstream.put("latency", scenario.getGeminiLatencySpec());
+        upstream.put("errorRate", scenario.getGeminiErrorRate());
+        upstream.put("chunkSize", scenario.getGeminiChunkSize());
+        upstream.put("calls", gemini.getCalls());
+        upstream.put("injectedErrors", gemini.getErrors());
+        upstream.put("limiterRejections", limiter.getRejectedCount());
+        report.put("upstream", upstream);
+        report.put("steps", steps.stream().map(StepResult::toMap).toList());
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String render(Map<String, Object> report) {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        writer.printf("%nScenario %s: %s%n", report.get("scenario"), report.get("description"));
+        Map<String, Object> upstream = (Map<String, Object>) report.get("upstream");
+        writer.printf("Catalog of %s recipes; Gemini stand-in %s, error rate %s, %s-character chunks%n",
+                report.get("catalogSize"), upstream.get("latency"), upstream.get("errorRate"),
+                upstream.get("chunkSize"));
+        writer.printf("Upstream calls %s, injected errors %s, limiter rejections %s%n", upstream.get("calls"),
+                upstream.get("injectedErrors"), upstream.get("limiterRejections"));
+        for (Map<String, Object> step : (List<Map<String, Object>>) report.get("steps")) {
+            writer.printf("%nTarget %s/s for %ss (drained in %ss)%n", step.get("targetRate"),
+                    step.get("durationSeconds"), step.get("elapsedSeconds"));
+            writer.printf("%-13s %9s %9s %9s %9s %9s %9s %8s  %s%n", "endpoint", "requests", "rps", "p50 ms",
+                    "p99 ms", "p999 ms", "max ms", "errors", "by kind");
+            Map<String, Map<String, Object>> endpoints = (Map<String, Map<String, Object>>) step.get("endpoints");
+            endpoints.forEach((endpoint, stats) -> writer.printf("%-13s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %8d  %s%n",
+                    endpoint, stats.get("requests"), stats.get("rps"), stats.get("p50Ms"), stats.get("p99Ms"),
+                    stats.get("p999Ms"), stats.get("maxMs"), stats.get("errors"), stats.get("errorsByKind")));
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    /**
+     * Latencies and outcomes of one endpoint during one step.
+     */
+    private static final class EndpointStats {
+
+        private final Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, String error) {
+            latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+            if (error != null) {
+                errors.computeIfAbsent(error, kind -> new LongAdder()).increment();
+            }
+        }
+
+        Map<String, Object> toMap(long elapsedNanos) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long requests = latencies.getTotalCount();
+            map.put("requests", requests);
+            map.put("rps", round(requests * 1e9 / elapsedNanos));
+            map.put("p50Ms", millis(latencies.getValueAtPercentile(50)));
+            map.put("p99Ms", millis(latencies.getValueAtPercentile(99)));
+            map.put("p999Ms", millis(latencies.getValueAtPercentile(99.9)));
+            map.put("maxMs", millis(latencies.getMaxValue()));
+            map.put("errors", errors.values().stream().mapToLong(LongAdder::sum).sum());
+            Map<String, Long> byKind = new LinkedHashMap<>();
+            errors.forEach((kind, count) -> byKind.put(kind, count.sum()));
+            map.put("errorsByKind", byKind);
+            return map;
+        }
+
+        private static double millis(long micros) {
+            return round(micros / 1000.0);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+
+    /**
+     * The outcome of one rate step.
+     */
+    private record StepResult(int targetRate, Duration duration, long elapsedNanos, Map<String, EndpointStats> stats) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("targetRate", targetRate);
+            map.put("durationSeconds", duration.toSeconds());
+            map.put("elapsedSeconds", Math.round(elapsedNanos / 1e8) / 10.0);
+            Map<String, Object> endpoints = new LinkedHashMap<>();
+            stats.forEach((endpoint, endpointStats) -> endpoints.put(endpoint, endpointStats.toMap(elapsedNanos)));
+            endpoints.put("all", total().toMap(elapsedNanos));
+            map.put("endpoints", endpoints);
+            return map;
+        }
+
+        private EndpointStats total() {
+            EndpointStats total = new EndpointStats();
+            stats.values().forEach(endpointStats -> {
+                total.latencies.add(endpointStats.latencies);
+                endpointStats.errors.forEach((kind, count) ->
+                        total.errors.computeIfAbsent(kind, k -> new LongAdder()).add(count.sum()));
+            });
+            return total;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.osa.directsupplyrecipe.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A load-test scenario, read from a properties file in {@code src/loadTest/resources/scenarios}.
+ *
+ * Traffic is open-loop: requests are sent at a fixed arrival {@code rate} whether or not earlier ones
+ * have completed, so a saturated server shows up as growing latency rather than as a client that quietly
+ * slows down. A comma-separated list of rates runs one step per rate, each lasting {@code duration}, to
+ * find the throughput ceiling. Recognised keys:
+ * - {@code description}: a one-line summary for the report.
+ * - {@code rate}, {@code duration}, {@code warmup}: arrival rates in requests per second, step length and
+ *   an unrecorded warm-up at the first rate.
+ * - {@code request-timeout}: client timeout, after which a request counts as an error.
+ * - {@code mix.list}, {@code mix.recipe}, {@code mix.instructions}, {@code mix.stream}: relative weights of
+ *   {@code GET /recipe?limit=20}, {@code GET /recipe/{name}}, {@code GET /recipe/{name}/instructions} and
+ *   its streaming variant.
+ * - {@code catalog.size}, {@code catalog.skew}: synthetic catalog size, and the exponent skewing recipe
+ *   popularity (1 is uniform; higher values concentrate traffic on fewer recipes, as caches expect).
+ * - {@code gemini.latency}, {@code gemini.error-rate}, {@code gemini.chunk-size}: behaviour of the
+ *   {@link FakeGeminiServer}; latencies use the {@link LatencyDistribution} syntax.
+ * - {@code app.*}: application properties, passed to the application with the prefix removed.
+ */
+public class LoadTestScenario {
+
+    private final String name;
+    private final Properties properties;
+
+    private LoadTestScenario(String name, Properties properties) {
+        this.name = name;
+        this.properties = properties;
+    }
+
+    /**
+     * Loads a scenario by name from the classpath, or from a file if the name is a path to one.
+     *
+     * @param nameOrPath a scenario name such as {@code baseline}, or a properties file path
+     * @return the scenario
+     * @throws IOException if the scenario cannot be read
+     */
+    public static LoadTestScenario load(String nameOrPath) throws IOException {
+        Properties properties = new Properties();
+        Path file = Path.of(nameOrPath);
+        if (Files.isRegularFile(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                properties.load(reader);
+            }
+            String fileName = file.getFileName().toString();
+            return new LoadTestScenario(fileName.replaceFirst("\\.properties$", ""), properties);
+        }
+        try (InputStream in = LoadTestScenario.class.getResourceAsStream("/scenarios/" + nameOrPath + ".properties")) {
+            if (in == null) {
+                throw new IOException("No scenario named " + nameOrPath);
+            }
+            properties.load(in);
+        }
+        return new LoadTestScenario(nameOrPath, properties);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return properties.getProperty("description", "");
+    }
+
+    public int[] getRates() {
+        return Arrays.stream(properties.getProperty("rate", "20").split(","))
+                .mapToInt(rate -> Integer.parseInt(rate.trim())).toArray();
+    }
+
+    public Duration getDuration() {
+        return duration("duration", "30s");
+    }
+
+    public Duration getWarmup() {
+        return duration("warmup", "5s");
+    }
+
+    public Duration getRequestTimeout() {
+        return duration("request-timeout", "30s");
+    }
+
+    /**
+     * Returns the relative weight of each endpoint, keyed by the suffix of its {@code mix.*} key.
+     *
+     * @return the weights in declaration order: list, recipe, instructions, stream
+     */
+    public Map<String, Integer> getMix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        mix.put("list", Integer.parseInt(properties.getProperty("mix.list", "20")));
+        mix.put("recipe", Integer.parseInt(properties.getProperty("mix.recipe", "50")));
+        mix.put("instructions", Integer.parseInt(properties.getProperty("mix.instructions", "25")));
+        mix.put("stream", Integer.parseInt(properties.getProperty("mix.stream", "5")));
+        return mix;
+    }
+
+    public int getCatalogSize() {
+        return Integer.parseInt(properties.getProperty("catalog.size", "10000"));
+    }
+
+    public double getCatalogSkew() {
+        return Double.parseDouble(properties.getProperty("catalog.skew", "3"));
+    }
+
+    public LatencyDistribution getGeminiLatency() {
+        return LatencyDistribution.parse(getGeminiLatencySpec());
+    }
+
+    public String getGeminiLatencySpec() {
+        return properties.getProperty("gemini.latency", "lognormal:800ms..5s");
+    }
+
+    public double getGeminiErrorRate() {
+        return Double.parseDouble(properties.getProperty("gemini.error-rate", "0"));
+    }
+
+    public int getGeminiChunkSize() {
+        return Integer.parseInt(properties.getProperty("gemini.chunk-size", "32"));
+    }
+
+    /**
+     * Returns the {@code app.*} entries with the prefix removed.
+     *
+     * @return the application property overrides
+     */
+    public Map<String, String> getApplicationProperties() {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("app.")) {
+                overrides.put(key.substring("app.".length()), properties.getProperty(key));
+            }
+        }
+        return overrides;
+    }
+
+    private Duration duration(String key, String defaultValue) {
+        return DurationStyle.detectAndParse(properties.getProperty(key, defaultValue));
+    }
+}
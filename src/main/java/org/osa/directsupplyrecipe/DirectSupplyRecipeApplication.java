@@ -2,6 +2,7 @@ package org.osa.directsupplyrecipe;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 /**
  * The entry point for the DirectSupplyRecipeApplication.
@@ -9,13 +10,16 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * This class is responsible for bootstrapping and launching the
  * Spring Boot application. It uses the {@code SpringBootApplication}
  * annotation to enable auto-configuration, component scanning,
- * and other configuration settings for the application.
+ * and other configuration settings for the application. {@code ConfigurationPropertiesScan}
+ * binds the {@code @ConfigurationProperties} types of the application, such as the
+ * instruction generation settings.
  *
  * The {@code main} method serves as the starting point of the
  * application, where the Spring framework initializes various
  * components and manages the lifecycle of the application context.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class DirectSupplyRecipeApplication {
 
     /**
@@ -0,0 +1,85 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.RecipeContentHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Differences between two versions of the recipe catalog.
+ *
+ * Recipes are compared by content hash (see {@link RecipeContentHash}), so a recipe is unchanged when a
+ * recipe with the same content exists in both catalogs, regardless of its position. A recipe whose content
+ * only exists in one catalog is reported as changed when a recipe with the same case-folded title exists in
+ * the other, and as added or removed otherwise.
+ *
+ * @param added the number of recipes whose title is new
+ * @param changed the number of recipes whose title exists in both catalogs with different content
+ * @param removed the number of recipes whose title no longer exists
+ * @param unchanged the number of recipes whose content exists in both catalogs
+ * @param stale the recipes of the previous catalog whose content no longer exists, i.e. whose derived data
+ *              (such as generated instructions) is obsolete
+ */
+public record CatalogDiff(int added, int changed, int removed, int unchanged, List<Recipe> stale) {
+
+    /**
+     * Compares two catalogs.
+     *
+     * @param previous the catalog being replaced
+     * @param next the catalog replacing it
+     * @return the differences from {@code previous} to {@code next}
+     */
+    public static CatalogDiff between(RecipeCatalog previous, RecipeCatalog next) {
+        Map<String, Recipe> previousByHash = hashes(previous);
+        Map<String, Recipe> nextByHash = hashes(next);
+
+        int unchanged = 0;
+        int added = 0;
+        int changed = 0;
+        for (Map.Entry<String, Recipe> e : nextByHash.entrySet()) {
+            if (previousByHash.containsKey(e.getKey())) {
+                unchanged++;
+            } else if (previous.findByTitle(e.getValue().getTitle()) != null) {
+                changed++;
+            } else {
+                added++;
+            }
+        }
+
+        int removed = 0;
+        List<Recipe> stale = new ArrayList<>();
+        for (Map.Entry<String, Recipe> e : previousByHash.entrySet()) {
+            if (nextByHash.containsKey(e.getKey())) {
+                continue;
+            }
+            Recipe recipe = e.getValue();
+            stale.add(recipe);
+            // A title whose content changed was already counted from the next catalog
+            if (next.findByTitle(recipe.getTitle()) == null) {
+                removed++;
+            }
+        }
+        return new CatalogDiff(added, changed, removed, unchanged, List.copyOf(stale));
+    }
+
+    /**
+     * Returns whether both catalogs have the same recipe contents.
+     *
+     * @return {@code true} if nothing was added, changed or removed
+     */
+    public boolean isEmpty() {
+        return added == 0 && changed == 0 && removed == 0;
+    }
+
+    private static Map<String, Recipe> hashes(RecipeCatalog catalog) {
+        List<Recipe> recipes = catalog.getRecipes();
+        Map<String, Recipe> byHash = new HashMap<>(Math.max(16, (int) (recipes.size() / 0.75f) + 1));
+        for (Recipe recipe : recipes) {
+            byHash.putIfAbsent(RecipeContentHash.of(recipe), recipe);
+        }
+        return byHash;
+    }
+}
@@ -0,0 +1,212 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.IngredientNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable inverted index from normalized ingredient terms to the IDs (catalog positions) of
+ * the recipes that use them.
+ *
+ * Terms come from {@link IngredientNormalizer#terms(String)}, so a recipe listing
+ * {@code "200g chicken breast"} is found by both {@code chicken} and {@code chicken breast}.
+ *
+ * Each posting list is stored in whichever form is smaller: a sorted {@code int[]} for terms used
+ * by few recipes, or a {@link BitSet} once the term appears in more than 1/32 of the catalog. This
+ * keeps thousands of rare ingredients cheap on a catalog of millions of recipes, while common ones
+ * are combined with word-at-a-time AND / AND-NOT operations.
+ */
+public final class IngredientIndex {
+
+    private static final int DENSE_RATIO = 32;
+
+    private final int recipeCount;
+    private final Map<String, Posting> postings;
+
+    private IngredientIndex(int recipeCount, Map<String, Posting> postings) {
+        this.recipeCount = recipeCount;
+        this.postings = postings;
+    }
+
+    /**
+     * Builds the index for the given recipes; a recipe's ID is its position in the list.
+     *
+     * @param recipes the recipes, in catalog order
+     * @return a new immutable index
+     */
+    public static IngredientIndex build(List<Recipe> recipes) {
+        Map<String, IdBuffer> buffers = new HashMap<>();
+        // Large catalogs repeat the same ingredient strings, so normalize each one only once
+        Map<String, Set<String>> termsByIngredient = new HashMap<>();
+        for (int id = 0; id < recipes.size(); id++) {
+            List<String> ingredients = recipes.get(id).getIngredients();
+            if (ingredients == null) {
+                continue;
+            }
+            for (String ingredient : ingredients) {
+                for (String term : termsByIngredient.computeIfAbsent(ingredient, IngredientNormalizer::terms)) {
+                    buffers.computeIfAbsent(term, t -> new IdBuffer()).add(id);
+                }
+            }
+        }
+
+        Map<String, Posting> postings = new HashMap<>(Math.max(16, (int) (buffers.size() / 0.75f) + 1));
+        int denseThreshold = recipes.size() / DENSE_RATIO;
+        for (Map.Entry<String, IdBuffer> e : buffers.entrySet()) {
+            postings.put(e.getKey(), posting(e.getValue().ids, e.getValue().size, denseThreshold));
+        }
+        return new IngredientIndex(recipes.size(), postings);
+    }
+
+    /**
+     * Restores an index from posting lists exported with {@link #forEachPosting(BiConsumer)}, without
+     * normalizing any ingredient. Used to load a prebuilt index from a {@link RecipeSnapshot}.
+     *
+     * @param recipeCount the number of recipes in the catalog
+     * @param idsByTerm the ascending recipe IDs of every term
+     * @return a new immutable index
+     */
+    static IngredientIndex of(int recipeCount, Map<String, int[]> idsByTerm) {
+        Map<String, Posting> postings = new HashMap<>(Math.max(16, (int) (idsByTerm.size() / 0.75f) + 1));
+        int denseThreshold = recipeCount / DENSE_RATIO;
+        for (Map.Entry<String, int[]> e : idsByTerm.entrySet()) {
+            postings.put(e.getKey(), posting(e.getValue(), e.getValue().length, denseThreshold));
+        }
+        return new IngredientIndex(recipeCount, postings);
+    }
+
+    /**
+     * Passes every term with its ascending recipe IDs to the given consumer, in no particular order.
+     *
+     * @param consumer receives each term and its recipe IDs
+     */
+    void forEachPosting(BiConsumer<String, int[]> consumer) {
+        postings.forEach((term, posting) ->
+                consumer.accept(term, posting.ids() != null ? posting.ids() : posting.bits().stream().toArray()));
+    }
+
+    /**
+     * Returns the number of distinct indexed terms.
+     *
+     * @return the term count
+     */
+    public int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * Finds the recipes that use every included ingredient and none of the excluded ones.
+     * Query terms are normalized like index terms; an unknown included term matches nothing,
+     * an unknown excluded term excludes nothing. With no included terms, every recipe not
+     * excluded matches.
+     *
+     * @param includes ingredients that must all be present; may be empty
+     * @param excludes ingredients that must all be absent; may be empty
+     * @return the matching recipe IDs
+     */
+    public BitSet query(Collection<String> includes, Collection<String> excludes) {
+        List<Posting> required = new ArrayList<>(includes.size());
+        for (String include : includes) {
+            Posting posting = postings.get(IngredientNormalizer.normalizeName(include));
+            if (posting == null) {
+                return new BitSet();
+            }
+            required.add(posting);
+        }
+        required.sort(Comparator.comparingInt(Posting::cardinality));
+
+        BitSet result;
+        if (required.isEmpty()) {
+            result = new BitSet(recipeCount);
+            result.set(0, recipeCount);
+        } else if (required.get(0).ids() != null) {
+            // Drive the intersection from the rarest term and probe the others
+            result = new BitSet(recipeCount);
+            for (int id : required.get(0).ids()) {
+                if (containsAll(required, id)) {
+                    result.set(id);
+                }
+            }
+        } else {
+            // The rarest term is dense, so all of them are
+            result = (BitSet) required.get(0).bits().clone();
+            for (int i = 1; i < required.size(); i++) {
+                result.and(required.get(i).bits());
+            }
+        }
+
+        for (String exclude : excludes) {
+            Posting posting = postings.get(IngredientNormalizer.normalizeName(exclude));
+            if (posting == null) {
+                continue;
+            }
+            if (posting.bits() != null) {
+                result.andNot(posting.bits());
+            } else {
+                for (int id : posting.ids()) {
+                    result.clear(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Posting posting(int[] ids, int size, int denseThreshold) {
+        if (size > denseThreshold && denseThreshold > 0) {
+            BitSet bits = new BitSet();
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+            return new Posting(null, bits, size);
+        }
+        return new Posting(ids.length == size ? ids : Arrays.copyOf(ids, size), null, size);
+    }
+
+    private static boolean containsAll(List<Posting> postings, int id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Posting list for one term; exactly one of {@code ids} (sorted) or {@code bits} is set.
+     */
+    private record Posting(int[] ids, BitSet bits, int cardinality) {
+
+        boolean contains(int id) {
+            return bits != null ? bits.get(id) : Arrays.binarySearch(ids, id) >= 0;
+        }
+    }
+
+    /**
+     * Growable, de-duplicating buffer of ascending recipe IDs used while building.
+     */
+    private static final class IdBuffer {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            // IDs arrive in ascending order; a recipe may repeat a term across ingredients
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.IngredientNormalizer;
+import org.osa.directsupplyrecipe.utils.Quantities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, column-oriented parse of the quantity, unit and name of every ingredient in a catalog, so a
+ * recipe can be scaled to another yield with arithmetic alone.
+ *
+ * Ingredients are parsed once, when the catalog is built, with {@link Quantities#matchLeading(String)}:
+ * {@code "200g chicken breast"} becomes the amount 200, the unit {@code g} and the name
+ * {@code "chicken breast"}. The parse is stored in primitive arrays indexed by ingredient position, with
+ * {@code firstIngredient[id]} marking where each recipe's ingredients start: a {@code double} amount
+ * ({@code NaN} when the ingredient has no leading quantity, e.g. {@code "salt to taste"}), a {@code byte}
+ * unit code, and the offset in the original string where the number ends. The ingredient strings themselves
+ * are shared with the recipes, not copied.
+ *
+ * Scaling rewrites only the number, mixed numbers such as {@code "1 1/2"} included, and keeps the rest of
+ * each string verbatim. Instruction steps are scaled by rewriting every quantity with a unit that equals one
+ * of the recipe's ingredient quantities, and every count followed by a word of a counted ingredient's name
+ * that equals its count, so {@code "Sear 200g chicken breast"} and {@code "Crack 4 eggs"} follow the yield
+ * while {@code "Bake at 200 degrees"} and {@code "Cut into 4 wedges"} do not.
+ */
+public final class IngredientQuantities {
+
+    private static final Pattern NON_LETTERS = Pattern.compile("[^\\p{L}]+");
+
+    private final int[] firstIngredient;
+    private final String[] texts;
+    private final double[] amounts;
+    private final byte[] units;
+    private final int[] numberEnds;
+
+    private IngredientQuantities(int[] firstIngredient, String[] texts, double[] amounts, byte[] units,
+                                 int[] numberEnds) {
+        this.firstIngredient = firstIngredient;
+        this.texts = texts;
+        this.amounts = amounts;
+        this.units = units;
+        this.numberEnds = numberEnds;
+    }
+
+    /**
+     * Parses the ingredients of the given recipes; a recipe's ID is its position in the list.
+     *
+     * @param recipes the recipes, in catalog order
+     * @return a new immutable parse
+     */
+    public static IngredientQuantities build(List<Recipe> recipes) {
+        int[] firstIngredient = new int[recipes.size() + 1];
+        int count = 0;
+        for (int id = 0; id < recipes.size(); id++) {
+            firstIngredient[id] = count;
+            List<String> ingredients = recipes.get(id).getIngredients();
+            count += ingredients == null ? 0 : ingredients.size();
+        }
+        firstIngredient[recipes.size()] = count;
+
+        String[] texts = new String[count];
+        double[] amounts = new double[count];
+        byte[] units = new byte[count];
+        int[] numberEnds = new int[count];
+        for (int id = 0; id < recipes.size(); id++) {
+            List<String> ingredients = recipes.get(id).getIngredients();
+            if (ingredients == null) {
+                continue;
+            }
+            int i = firstIngredient[id];
+            for (String ingredient : ingredients) {
+                texts[i] = ingredient;
+                Matcher matcher = ingredient == null ? null : Quantities.matchLeading(ingredient);
+                if (matcher == null) {
+                    amounts[i] = Double.NaN;
+                } else {
+                    amounts[i] = Quantities.parseAmount(matcher.group(1));
+                    units[i] = Quantities.unitCode(matcher.group(3));
+                    numberEnds[i] = matcher.end(1);
+                }
+                i++;
+            }
+        }
+        return new IngredientQuantities(firstIngredient, texts, amounts, units, numberEnds);
+    }
+
+    /**
+     * Returns the number of ingredients of a recipe.
+     *
+     * @param id the recipe ID
+     * @return the ingredient count
+     */
+    public int ingredientCount(int id) {
+        return firstIngredient[id + 1] - firstIngredient[id];
+    }
+
+    /**
+     * Returns the parsed amount of an ingredient.
+     *
+     * @param id the recipe ID
+     * @param index the position of the ingredient in the recipe
+     * @return the amount, or {@code NaN} if the ingredient has no leading quantity
+     */
+    public double amount(int id, int index) {
+        return amounts[firstIngredient[id] + index];
+    }
+
+    /**
+     * Returns the parsed unit of an ingredient.
+     *
+     * @param id the recipe ID
+     * @param index the position of the ingredient in the recipe
+     * @return the canonical unit, e.g. {@code "g"}; empty for a count or an ingredient without quantity
+     */
+    public String unit(int id, int index) {
+        return Quantities.unitName(units[firstIngredient[id] + index]);
+    }
+
+    /**
+     * Returns the name of an ingredient: the original text without its quantity and unit, as stripped by
+     * {@link IngredientNormalizer#stripQuantityAndUnit(String)}.
+     *
+     * @param id the recipe ID
+     * @param index the position of the ingredient in the recipe
+     * @return the name, e.g. {@code "chicken breast"}
+     */
+    public String name(int id, int index) {
+        String text = texts[firstIngredient[id] + index];
+        return text == null ? null : IngredientNormalizer.stripQuantityAndUnit(text).trim();
+    }
+
+    /**
+     * Returns the ingredients of a recipe with every quantity multiplied by {@code factor}.
+     *
+     * @param id the recipe ID
+     * @param factor the ratio of the target yield to the recipe's yield
+     * @return the scaled ingredient strings, in recipe order
+     */
+    public List<String> scaleIngredients(int id, double factor) {
+        List<String> scaled = new ArrayList<>(ingredientCount(id));
+        for (int i = firstIngredient[id]; i < firstIngredient[id + 1]; i++) {
+            scaled.add(Double.isNaN(amounts[i]) ? texts[i]
+                    : Quantities.format(amounts[i] * factor) + texts[i].substring(numberEnds[i]));
+        }
+        return scaled;
+    }
+
+    /**
+     * Rewrites the quantities of a recipe's ingredients mentioned in a text, such as an instruction step,
+     * multiplied by {@code factor}. Other numbers are left as they are.
+     *
+     * @param id the recipe ID
+     * @param factor the ratio of the target yield to the recipe's yield
+     * @param text the text to scale
+     * @return the scaled text; {@code text} itself if it mentions no ingredient quantity
+     */
+    public String scaleText(int id, double factor, String text) {
+        Matcher matcher = Quantities.matchInText(text);
+        StringBuilder scaled = null;
+        int copied = 0;
+        while (matcher.find()) {
+            double amount = Quantities.parseAmount(matcher.group(1));
+            boolean ingredient = matcher.group(3) != null
+                    ? isIngredientQuantity(id, amount, Quantities.unitCode(matcher.group(3)))
+                    : isIngredientCount(id, amount, matcher.group(4));
+            if (!ingredient) {
+                continue;
+            }
+            if (scaled == null) {
+                scaled = new StringBuilder(text.length() + 16);
+            }
+            scaled.append(text, copied, matcher.start(1)).append(Quantities.format(amount * factor));
+            copied = matcher.end(1);
+        }
+        return scaled == null ? text : scaled.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * Returns a parse of the ingredients of a single recipe, with ID 0. Used when a catalog does not
+     * parse all of its recipes up front.
+     *
+     * @param recipe the recipe to parse
+     * @return a new immutable parse
+     */
+    static IngredientQuantities of(Recipe recipe) {
+        return build(List.of(recipe));
+    }
+
+    private boolean isIngredientQuantity(int id, double amount, byte unit) {
+        for (int i = firstIngredient[id]; i < firstIngredient[id + 1]; i++) {
+            if (units[i] == unit && unit != Quantities.NO_UNIT && Math.abs(amounts[i] - amount) < 1e-9) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a count followed by a word, such as {@code "4 eggs"}, equals the count of an ingredient
+     * listed without a unit whose name contains that word.
+     */
+    private boolean isIngredientCount(int id, double amount, String word) {
+        for (int i = firstIngredient[id]; i < firstIngredient[id + 1]; i++) {
+            if (units[i] != Quantities.NO_UNIT || Math.abs(amounts[i] - amount) >= 1e-9) {
+                continue;
+            }
+            for (String nameWord : NON_LETTERS.split(name(id, i - firstIngredient[id]))) {
+                if (nameWord.equalsIgnoreCase(word)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
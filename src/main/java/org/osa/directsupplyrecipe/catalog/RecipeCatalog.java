@@ -0,0 +1,253 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.RecipeContentHash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, indexed snapshot of the recipe catalog.
+ *
+ * Built once from the loaded recipes, it provides:
+ * - O(1) exact title lookups through a hash map from the case-folded title to the recipe position.
+ * - O(log n + k) prefix lookups through a sorted array of case-folded titles.
+ * - Ingredient queries through an {@link IngredientIndex}, using recipe positions as IDs.
+ * - A content version (see {@link #getVersion()}) that changes whenever any recipe changes.
+ * - Yield scaling through {@link IngredientQuantities}, parsed once per catalog.
+ *
+ * Titles are case-folded with {@link #fold(String)}, which uses {@link Locale#ROOT} so the result
+ * does not depend on the server's default locale (e.g. the Turkish dotless i). When two recipes
+ * share a folded title, the first one in catalog order wins, matching the previous linear scan.
+ *
+ * Indexes refer to recipes by position only, so a catalog over a {@link RecipeSnapshot} does not
+ * retain decoded recipes. For the same reason, such a catalog parses the ingredient quantities of a recipe
+ * when it is scaled rather than up front.
+ */
+public final class RecipeCatalog {
+
+    private static final int VERSION_LENGTH = 32;
+
+    private final List<Recipe> recipes;
+    private final Map<String, Integer> idByFoldedTitle;
+    private final String[] sortedFoldedTitles;
+    private final int[] idsBySortedTitle;
+    private final IngredientIndex ingredientIndex;
+    private final IngredientQuantities ingredientQuantities;
+    private final String version;
+
+    private RecipeCatalog(List<Recipe> recipes, IngredientIndex ingredientIndex,
+                          IngredientQuantities ingredientQuantities, String contentHash) {
+        this.recipes = recipes;
+        this.ingredientQuantities = ingredientQuantities;
+        this.idByFoldedTitle = new HashMap<>(Math.max(16, (int) (recipes.size() / 0.75f) + 1));
+
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(recipes.size());
+        for (int id = 0; id < recipes.size(); id++) {
+            String title = recipes.get(id).getTitle();
+            if (title == null) {
+                continue;
+            }
+            String folded = fold(title);
+            if (idByFoldedTitle.putIfAbsent(folded, id) == null) {
+                sorted.add(Map.entry(folded, id));
+            }
+        }
+        sorted.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+        this.sortedFoldedTitles = new String[sorted.size()];
+        this.idsBySortedTitle = new int[sorted.size()];
+        for (int i = 0; i < sorted.size(); i++) {
+            sortedFoldedTitles[i] = sorted.get(i).getKey();
+            idsBySortedTitle[i] = sorted.get(i).getValue();
+        }
+        this.ingredientIndex = ingredientIndex != null ? ingredientIndex : IngredientIndex.build(recipes);
+        this.version = (contentHash != null ? contentHash : RecipeContentHash.ofCatalog(recipes))
+                .substring(0, VERSION_LENGTH);
+    }
+
+    /**
+     * Builds an indexed catalog from the given recipes.
+     *
+     * @param recipes the recipes, in catalog order
+     * @return a new immutable catalog
+     */
+    public static RecipeCatalog of(List<Recipe> recipes) {
+        List<Recipe> copy = Collections.unmodifiableList(new ArrayList<>(recipes));
+        return new RecipeCatalog(copy, null, IngredientQuantities.build(copy), null);
+    }
+
+    /**
+     * Builds an indexed catalog over a memory-mapped snapshot. The recipes stay in the snapshot and are
+     * decoded on access; the catalog only retains its indexes. The ingredient index and the version are
+     * read from the snapshot, and match those of a catalog built from the same recipes with {@link #of(List)}.
+     *
+     * @param snapshot the opened snapshot
+     * @return a new immutable catalog
+     */
+    public static RecipeCatalog of(RecipeSnapshot snapshot) {
+        return new RecipeCatalog(snapshot.getRecipes(), snapshot.readIngredientIndex(), null,
+                snapshot.getContentHash());
+    }
+
+    /**
+     * Case-folds a title for index lookups in a locale-independent way.
+     *
+     * @param title the title to fold
+     * @return the folded title
+     */
+    public static String fold(String title) {
+        return title.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns all recipes in catalog order.
+     *
+     * @return an unmodifiable list of recipes
+     */
+    public List<Recipe> getRecipes() {
+        return recipes;
+    }
+
+    /**
+     * Returns the content version of this catalog: a hash over every recipe, in order.
+     * Two catalogs with the same version serve identical data, so it can back a strong ETag.
+     *
+     * @return a 32-character hex version string
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns one page of the recipes matching the given ingredient filters, in catalog order.
+     * Without filters the page is a view over the catalog and nothing is copied.
+     *
+     * @param includes ingredients that must all be present; may be empty
+     * @param excludes ingredients that must all be absent; may be empty
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of recipes on the page
+     * @return the requested page with the total number of matches
+     */
+    public RecipePage page(Collection<String> includes, Collection<String> excludes, int offset, int limit) {
+        if (includes.isEmpty() && excludes.isEmpty()) {
+            int from = Math.min(offset, recipes.size());
+            int to = (int) Math.min((long) from + limit, recipes.size());
+            return new RecipePage(recipes.subList(from, to), offset, recipes.size());
+        }
+        BitSet ids = ingredientIndex.query(includes, excludes);
+        int total = ids.cardinality();
+        List<Recipe> matches = new ArrayList<>(Math.max(0, Math.min(limit, total - offset)));
+        int id = ids.nextSetBit(0);
+        for (int skipped = 0; id >= 0 && skipped < offset; skipped++) {
+            id = ids.nextSetBit(id + 1);
+        }
+        for (; id >= 0 && matches.size() < limit; id = ids.nextSetBit(id + 1)) {
+            matches.add(recipes.get(id));
+        }
+        return new RecipePage(matches, offset, total);
+    }
+
+    /**
+     * Returns the number of recipes in the catalog.
+     *
+     * @return the recipe count
+     */
+    public int size() {
+        return recipes.size();
+    }
+
+    /**
+     * Looks up a recipe by title, ignoring case.
+     *
+     * @param title the title to look up
+     * @return the matching recipe, or {@code null} if none exists
+     */
+    public Recipe findByTitle(String title) {
+        if (title == null) {
+            return null;
+        }
+        Integer id = idByFoldedTitle.get(fold(title));
+        return id == null ? null : recipes.get(id);
+    }
+
+    /**
+     * Looks up a recipe by title, ignoring case, and scales it to another yield.
+     *
+     * @param title the title to look up
+     * @param yield the target yield
+     * @return the scaled recipe, or {@code null} if none exists
+     * @throws IllegalArgumentException if {@code yield} is not positive or the recipe has no positive yield
+     */
+    public ScaledRecipe scale(String title, int yield) {
+        if (title == null) {
+            return null;
+        }
+        Integer id = idByFoldedTitle.get(fold(title));
+        if (id == null) {
+            return null;
+        }
+        Recipe recipe = recipes.get(id);
+        return ingredientQuantities != null ? new ScaledRecipe(recipe, yield, ingredientQuantities, id)
+                : new ScaledRecipe(recipe, yield, IngredientQuantities.of(recipe), 0);
+    }
+
+    /**
+     * Returns recipes whose title starts with the given prefix, ignoring case, in title order.
+     *
+     * @param prefix the title prefix; a blank prefix matches nothing
+     * @param limit the maximum number of results
+     * @return up to {@code limit} matching recipes
+     */
+    public List<Recipe> findByTitlePrefix(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String folded = fold(prefix);
+        int index = Arrays.binarySearch(sortedFoldedTitles, folded);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        List<Recipe> matches = new ArrayList<>(Math.min(limit, 16));
+        for (int i = index; i < sortedFoldedTitles.length && matches.size() < limit; i++) {
+            if (!sortedFoldedTitles[i].startsWith(folded)) {
+                break;
+            }
+            matches.add(recipes.get(idsBySortedTitle[i]));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the recipes that use every included ingredient and none of the excluded ones,
+     * in catalog order. See {@link IngredientIndex#query(Collection, Collection)}.
+     *
+     * @param includes ingredients that must all be present; may be empty
+     * @param excludes ingredients that must all be absent; may be empty
+     * @return the matching recipes
+     */
+    public List<Recipe> findByIngredients(Collection<String> includes, Collection<String> excludes) {
+        BitSet ids = ingredientIndex.query(includes, excludes);
+        List<Recipe> matches = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            matches.add(recipes.get(id));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the ingredient index of this catalog.
+     *
+     * @return the ingredient index
+     */
+    public IngredientIndex getIngredientIndex() {
+        return ingredientIndex;
+    }
+}
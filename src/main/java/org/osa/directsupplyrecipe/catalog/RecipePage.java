@@ -0,0 +1,24 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.List;
+
+/**
+ * One page of recipes from a catalog query.
+ *
+ * @param recipes the recipes on this page, in catalog order
+ * @param offset the position of the first recipe on this page within all matches
+ * @param total the number of recipes matching the query across all pages
+ */
+public record RecipePage(List<Recipe> recipes, int offset, int total) {
+
+    /**
+     * Returns whether more matches follow this page.
+     *
+     * @return {@code true} if a next page exists
+     */
+    public boolean hasNext() {
+        return offset + recipes.size() < total;
+    }
+}
@@ -0,0 +1,338 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.RecipeContentHash;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact binary snapshot of the recipe catalog, opened through a memory-mapped file.
+ *
+ * The snapshot is generated from the JSON catalog with {@link #write(List, Path)} and read with
+ * {@link #open(Path)}. Opening only validates the header: recipes are decoded lazily, each time
+ * {@link #getRecipes()} is accessed, so neither startup time nor retained heap grows with the
+ * size of the recipe text. The operating system pages the file in on demand and can share it
+ * between processes. The {@link IngredientIndex} is stored prebuilt, so no ingredient is
+ * normalized at startup; regenerate snapshots whenever {@code IngredientNormalizer} changes.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header       magic "RCPS", format version, recipe count, ingredient reference count, term count,
+ *              posting count, string count, 32-byte SHA-256 catalog content hash
+ * records      per recipe: title string ID, yield, first ingredient reference, ingredient count
+ * ingredients  string IDs of every recipe's ingredients, in recipe order
+ * terms        per ingredient index term: term string ID, first posting, posting count
+ * postings     ascending recipe IDs of every term, in term order
+ * offsets      start of every string in the string data, plus the end of the last one
+ * strings      UTF-8 bytes of every distinct title, ingredient and term, each stored once
+ * </pre>
+ *
+ * Records have a fixed size, so recipe {@code i} is found at a computed offset. A {@code null}
+ * title is stored as string ID {@code -1} and {@code null} ingredients as count {@code -1}.
+ * The mapping is limited to 2 GiB, which is far beyond the catalog sizes in use.
+ */
+public final class RecipeSnapshot {
+
+    private static final int MAGIC = 0x52435053; // "RCPS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES + HASH_LENGTH;
+    private static final int RECORD_SIZE = 4 * Integer.BYTES;
+    private static final int TERM_SIZE = 3 * Integer.BYTES;
+    private static final int ABSENT = -1;
+
+    private final ByteBuffer buffer;
+    private final int recipeCount;
+    private final int ingredientsStart;
+    private final int termCount;
+    private final int termsStart;
+    private final int postingsStart;
+    private final int offsetsStart;
+    private final int stringsStart;
+    private final String contentHash;
+    private final List<Recipe> recipes;
+
+    private RecipeSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a recipe snapshot");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported recipe snapshot format version " + buffer.getInt(4));
+        }
+        this.recipeCount = buffer.getInt(8);
+        int ingredientCount = buffer.getInt(12);
+        this.termCount = buffer.getInt(16);
+        int postingCount = buffer.getInt(20);
+        int stringCount = buffer.getInt(24);
+        byte[] hash = new byte[HASH_LENGTH];
+        buffer.get(28, hash);
+        this.contentHash = HexFormat.of().formatHex(hash);
+
+        long ingredients = HEADER_SIZE + (long) recipeCount * RECORD_SIZE;
+        long terms = ingredients + (long) ingredientCount * Integer.BYTES;
+        long postings = terms + (long) termCount * TERM_SIZE;
+        long offsets = postings + (long) postingCount * Integer.BYTES;
+        long strings = offsets + ((long) stringCount + 1) * Integer.BYTES;
+        if (recipeCount < 0 || ingredientCount < 0 || termCount < 0 || postingCount < 0 || stringCount < 0
+                || strings > buffer.capacity()
+                || strings + buffer.getInt((int) strings - Integer.BYTES) != buffer.capacity()) {
+            throw new IOException("Truncated or corrupt recipe snapshot");
+        }
+        this.ingredientsStart = (int) ingredients;
+        this.termsStart = (int) terms;
+        this.postingsStart = (int) postings;
+        this.offsetsStart = (int) offsets;
+        this.stringsStart = (int) strings;
+        this.recipes = new RecipeList();
+    }
+
+    /**
+     * Opens a snapshot by memory-mapping the given file. Only the header is read.
+     *
+     * @param path the snapshot file
+     * @return the opened snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static RecipeSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Recipe snapshot larger than 2 GiB: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new RecipeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given recipes. The file is written next to the target and then
+     * moved into place, so a concurrently starting instance never maps a partial snapshot.
+     *
+     * @param recipes the recipes, in catalog order
+     * @param path the snapshot file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(List<Recipe> recipes, Path path) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] records = new int[recipes.size() * 4];
+        int ingredientCount = 0;
+        for (Recipe recipe : recipes) {
+            ingredientCount += recipe.getIngredients() == null ? 0 : recipe.getIngredients().size();
+        }
+        int[] ingredients = new int[ingredientCount];
+        IngredientIndex index = IngredientIndex.build(recipes);
+
+        int next = 0;
+        for (int i = 0; i < recipes.size(); i++) {
+            Recipe recipe = recipes.get(i);
+            records[i * 4] = recipe.getTitle() == null ? ABSENT : intern(recipe.getTitle(), stringIds, strings);
+            records[i * 4 + 1] = recipe.getYield();
+            records[i * 4 + 2] = next;
+            records[i * 4 + 3] = recipe.getIngredients() == null ? ABSENT : recipe.getIngredients().size();
+            if (recipe.getIngredients() != null) {
+                for (String ingredient : recipe.getIngredients()) {
+                    ingredients[next++] = intern(ingredient, stringIds, strings);
+                }
+            }
+        }
+        // Collect each term with its postings in one pass, so both stay aligned whatever the visit order
+        List<int[]> terms = new ArrayList<>(index.termCount());
+        List<int[]> postings = new ArrayList<>(index.termCount());
+        index.forEachPosting((term, ids) -> {
+            terms.add(new int[]{intern(term, stringIds, strings), ids.length});
+            postings.add(ids);
+        });
+        int postingCount = 0;
+        for (int[] ids : postings) {
+            postingCount += ids.length;
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(recipes.size());
+                out.writeInt(ingredientCount);
+                out.writeInt(terms.size());
+                out.writeInt(postingCount);
+                out.writeInt(strings.size());
+                out.write(HexFormat.of().parseHex(RecipeContentHash.ofCatalog(recipes)));
+                for (int value : records) {
+                    out.writeInt(value);
+                }
+                for (int value : ingredients) {
+                    out.writeInt(value);
+                }
+                int firstPosting = 0;
+                for (int[] term : terms) {
+                    out.writeInt(term[0]);
+                    out.writeInt(firstPosting);
+                    out.writeInt(term[1]);
+                    firstPosting += term[1];
+                }
+                for (int[] ids : postings) {
+                    for (int id : ids) {
+                        out.writeInt(id);
+                    }
+                }
+                long offset = 0;
+                for (byte[] string : strings) {
+                    out.writeInt((int) offset);
+                    offset += string.length;
+                }
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Recipe snapshot strings exceed 2 GiB");
+                }
+                out.writeInt((int) offset);
+                for (byte[] string : strings) {
+                    out.write(string);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> strings) {
+        return ids.computeIfAbsent(value, v -> {
+            strings.add(v.getBytes(StandardCharsets.UTF_8));
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Returns the recipes of this snapshot as an immutable list that decodes each recipe on access.
+     * Every call to {@code get} returns a new {@code Recipe}; nothing is retained by the list.
+     *
+     * @return the lazily decoded recipes, in catalog order
+     */
+    public List<Recipe> getRecipes() {
+        return recipes;
+    }
+
+    /**
+     * Reads the prebuilt ingredient index of this snapshot. Posting lists are copied onto the heap,
+     * which takes a single sequential pass over that section of the file.
+     *
+     * @return a new ingredient index over {@link #getRecipes()}
+     */
+    public IngredientIndex readIngredientIndex() {
+        Map<String, int[]> idsByTerm = new HashMap<>(Math.max(16, (int) (termCount / 0.75f) + 1));
+        for (int i = 0; i < termCount; i++) {
+            int term = termsStart + i * TERM_SIZE;
+            int[] ids = new int[buffer.getInt(term + 8)];
+            int first = postingsStart + buffer.getInt(term + 4) * Integer.BYTES;
+            for (int j = 0; j < ids.length; j++) {
+                ids[j] = buffer.getInt(first + j * Integer.BYTES);
+            }
+            idsByTerm.put(string(buffer.getInt(term)), ids);
+        }
+        return IngredientIndex.of(recipeCount, idsByTerm);
+    }
+
+    /**
+     * Returns the SHA-256 content hash of the catalog, as computed by
+     * {@link RecipeContentHash#ofCatalog(List)} when the snapshot was written.
+     *
+     * @return a 64-character hex string
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Returns the number of recipes in the snapshot.
+     *
+     * @return the recipe count
+     */
+    public int size() {
+        return recipeCount;
+    }
+
+    private String string(int id) {
+        if (id == ABSENT) {
+            return null;
+        }
+        int start = buffer.getInt(offsetsStart + id * Integer.BYTES);
+        int end = buffer.getInt(offsetsStart + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringsStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Immutable list view that decodes recipe {@code i} from its fixed-offset record.
+     */
+    private final class RecipeList extends AbstractList<Recipe> implements RandomAccess {
+
+        @Override
+        public Recipe get(int index) {
+            if (index < 0 || index >= recipeCount) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            int record = HEADER_SIZE + index * RECORD_SIZE;
+            Recipe recipe = new Recipe();
+            recipe.setTitle(string(buffer.getInt(record)));
+            recipe.setYield(buffer.getInt(record + 4));
+            int count = buffer.getInt(record + 12);
+            if (count != ABSENT) {
+                recipe.setIngredients(new IngredientList(buffer.getInt(record + 8), count));
+            }
+            return recipe;
+        }
+
+        @Override
+        public int size() {
+            return recipeCount;
+        }
+    }
+
+    /**
+     * Immutable list view over one recipe's ingredient references.
+     */
+    private final class IngredientList extends AbstractList<String> implements RandomAccess {
+        private final int first;
+        private final int count;
+
+        IngredientList(int first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return string(buffer.getInt(ingredientsStart + (first + index) * Integer.BYTES));
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
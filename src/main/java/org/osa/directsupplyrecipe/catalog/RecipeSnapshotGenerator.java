@@ -0,0 +1,47 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command-line entry point that converts a JSON recipe catalog into a {@link RecipeSnapshot}.
+ *
+ * Usage: {@code RecipeSnapshotGenerator <recipes.json> <recipes.snapshot>}, or
+ * {@code gradle recipeSnapshot} to convert the bundled catalog into {@code build/recipes.snapshot}.
+ */
+public final class RecipeSnapshotGenerator {
+
+    /**
+     * Private constructor to prevent instantiation of the entry point.
+     */
+    private RecipeSnapshotGenerator() {
+        // Entry point only; prevent instantiation
+    }
+
+    /**
+     * Reads the JSON catalog from the first argument and writes the snapshot to the second.
+     *
+     * @param args the JSON catalog path and the snapshot path
+     * @throws IOException if the catalog cannot be read or the snapshot cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: RecipeSnapshotGenerator <recipes.json> <recipes.snapshot>");
+            System.exit(2);
+        }
+        List<Recipe> recipes;
+        try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+            recipes = new ObjectMapper().readValue(in, new TypeReference<>() {});
+        }
+        Path snapshot = Path.of(args[1]);
+        RecipeSnapshot.write(recipes, snapshot);
+        System.out.printf("Wrote %d recipes to %s (%d bytes)%n", recipes.size(), snapshot, Files.size(snapshot));
+    }
+}
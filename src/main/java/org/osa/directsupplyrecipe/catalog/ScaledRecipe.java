@@ -0,0 +1,100 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A catalog recipe scaled to another yield, see {@link RecipeCatalog#scale(String, int)}.
+ *
+ * The scaled recipe is computed from the catalog's {@link IngredientQuantities} without any model call.
+ * Instructions are not regenerated either: the instructions of the {@link #getBase() base recipe} are passed
+ * through {@link #scaleSteps(List)}, which rewrites the ingredient quantities they mention.
+ */
+public final class ScaledRecipe {
+
+    private final Recipe base;
+    private final Recipe recipe;
+    private final IngredientQuantities quantities;
+    private final int id;
+    private final double factor;
+
+    /**
+     * Constructs a ScaledRecipe.
+     *
+     * @param base the catalog recipe
+     * @param yield the target yield
+     * @param quantities the parsed ingredients of {@code base}
+     * @param id the ID of {@code base} in {@code quantities}
+     * @throws IllegalArgumentException if {@code yield} is not positive or {@code base} has no positive yield
+     */
+    ScaledRecipe(Recipe base, int yield, IngredientQuantities quantities, int id) {
+        if (yield <= 0) {
+            throw new IllegalArgumentException("yield must be positive");
+        }
+        if (base.getYield() <= 0) {
+            throw new IllegalArgumentException("Recipe " + base.getTitle() + " has no yield to scale from");
+        }
+        this.base = base;
+        this.quantities = quantities;
+        this.id = id;
+        this.factor = (double) yield / base.getYield();
+
+        this.recipe = new Recipe();
+        recipe.setTitle(base.getTitle());
+        recipe.setYield(yield);
+        recipe.setIngredients(base.getIngredients() == null ? null : quantities.scaleIngredients(id, factor));
+    }
+
+    /**
+     * Returns the catalog recipe, whose instructions are generated and cached.
+     *
+     * @return the recipe at its catalog yield
+     */
+    public Recipe getBase() {
+        return base;
+    }
+
+    /**
+     * Returns the recipe at the target yield, with scaled ingredient quantities.
+     *
+     * @return the scaled recipe
+     */
+    public Recipe getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * Returns the ratio of the target yield to the catalog yield.
+     *
+     * @return the scale factor
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * Scales the ingredient quantities mentioned in one instruction step of the base recipe.
+     *
+     * @param step the step, as generated for the base recipe
+     * @return the step at the target yield
+     */
+    public String scaleStep(String step) {
+        return quantities.scaleText(id, factor, step);
+    }
+
+    /**
+     * Scales the ingredient quantities mentioned in the instruction steps of the base recipe.
+     *
+     * @param steps the steps, as generated for the base recipe
+     * @return the steps at the target yield
+     */
+    public List<String> scaleSteps(List<String> steps) {
+        List<String> scaled = new ArrayList<>(steps.size());
+        for (String step : steps) {
+            scaled.add(scaleStep(step));
+        }
+        return scaled;
+    }
+}
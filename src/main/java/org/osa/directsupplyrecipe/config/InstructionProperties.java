@@ -0,0 +1,69 @@
+package org.osa.directsupplyrecipe.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the instruction generation path in {@code RecipeService}, bound from the {@code instruction.*}
+ * properties. Settings of the other instruction components (cache, limiter, hedger, pre-warm, validation) are
+ * injected into those components directly and ignored here.
+ *
+ * @param log how raw model responses are logged
+ * @param batch how concurrent pre-warm misses are batched into one model call
+ * @param generation how invalid results are retried
+ */
+@ConfigurationProperties("instruction")
+public record InstructionProperties(@DefaultValue Log log,
+                                    @DefaultValue Batch batch,
+                                    @DefaultValue Generation generation) {
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public InstructionProperties {
+        if (generation.maxAttempts() <= 0) {
+            throw new IllegalArgumentException("instruction.generation.max-attempts must be positive");
+        }
+        if (generation.deadline().isNegative() || generation.deadline().isZero()) {
+            throw new IllegalArgumentException("instruction.generation.deadline must be positive");
+        }
+        if (batch.maxSize() <= 0) {
+            throw new IllegalArgumentException("instruction.batch.max-size must be positive");
+        }
+    }
+
+    /**
+     * Logging of raw model responses.
+     *
+     * @param responseSampleRate the fraction of raw model responses logged at debug level, between 0 and 1
+     */
+    public record Log(@DefaultValue("0.01") double responseSampleRate) {
+    }
+
+    /**
+     * Batching of pre-warm misses.
+     *
+     * @param maxSize the maximum number of recipes generated in one model call; 1 disables batching
+     * @param window how long a cache miss waits for others to share its model call
+     */
+    public record Batch(@DefaultValue("8") int maxSize,
+                        @DefaultValue("20ms") Duration window) {
+    }
+
+    /**
+     * Retries of invalid generation results.
+     *
+     * @param maxAttempts the maximum number of generations per request when results are invalid
+     * @param retryBackoff the base delay before generating again after an invalid result
+     * @param deadline the time within which all attempts for a request must be expected to end; keep it below
+     *                 {@code spring.mvc.async.request-timeout} so a failed request is answered before it times out
+     */
+    public record Generation(@DefaultValue("3") int maxAttempts,
+                             @DefaultValue("200ms") Duration retryBackoff,
+                             @DefaultValue("100s") Duration deadline) {
+    }
+}
@@ -2,9 +2,11 @@ package org.osa.directsupplyrecipe.config;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.catalog.RecipeCatalog;
+import org.osa.directsupplyrecipe.catalog.RecipeSnapshot;
 import org.osa.directsupplyrecipe.model.Recipe;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
@@ -12,14 +14,16 @@ import org.springframework.core.io.ResourceLoader;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Configuration class for loading and managing recipe data.
  *
- * This class is responsible for loading recipe data from an external JSON file located in the classpath.
- * It uses the provided ResourceLoader to access the file and the ObjectMapper to parse the JSON into
- * a list of Recipe objects. The recipes are returned as a Spring Bean.
+ * This class is responsible for loading recipe data, either from a memory-mapped binary snapshot or from
+ * an external JSON file, located in the classpath unless {@code recipes.json.path} is set. It uses the provided ResourceLoader to access the file
+ * and the ObjectMapper to parse the JSON into a list of Recipe objects. The indexed catalog is returned
+ * as a Spring Bean.
  *
  * This configuration ensures that the application has access to a predefined list of recipes by
  * loading and parsing data during application startup.
@@ -30,6 +34,9 @@ import java.util.List;
  *
  * Methods:
  * - getRecipes(): Loads recipes from the JSON file, parses them into Recipe objects, and returns a list of recipes.
+ * - getRecipeCatalog(): Builds the indexed, immutable catalog used for lookups, preferring the snapshot.
+ * - loadRecipeCatalog(): Builds a new catalog from the configured source, e.g. to reload it at runtime.
+ * - getCatalogFile(): Returns the file the catalog is loaded from, if it is not a classpath resource.
  *
  * Logs the loading process to provide visibility during execution.
  *
@@ -37,31 +44,105 @@ import java.util.List;
  * - IOException: If an error occurs while reading the JSON file.
  */
 @Slf4j
-@AllArgsConstructor
 @Configuration
 public class RecipeConfig {
 
     private final ResourceLoader resourceLoader;
     private final ObjectMapper objectMapper;
+    private final String snapshotPath;
+    private final String jsonPath;
 
     /**
-     * Loads and returns a list of recipes from a JSON file located in the classpath.
+     * Constructs a RecipeConfig.
+     *
+     * @param resourceLoader the loader used to locate the JSON catalog
+     * @param objectMapper the mapper used to parse the JSON catalog
+     * @param snapshotPath the path of the recipe snapshot; empty to load the JSON catalog
+     * @param jsonPath the path of the JSON catalog; empty to load {@code recipes.json} from the classpath
+     */
+    public RecipeConfig(ResourceLoader resourceLoader,
+                        ObjectMapper objectMapper,
+                        @Value("${recipes.snapshot.path:}") String snapshotPath,
+                        @Value("${recipes.json.path:}") String jsonPath) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.snapshotPath = snapshotPath;
+        this.jsonPath = jsonPath;
+    }
+
+    /**
+     * Loads and returns a list of recipes from a JSON file.
      *
      * This method uses the ResourceLoader to read the JSON file and the ObjectMapper
-     * to parse the contents into a list of Recipe objects. The JSON file must be
-     * located under the classpath with the name "recipes.json". Logs the process
-     * during execution for monitoring.
+     * to parse the contents into a list of Recipe objects. The JSON file is read from
+     * {@code recipes.json.path} when set, otherwise it must be located under the classpath
+     * with the name "recipes.json". Logs the process during execution for monitoring.
      *
      * @return a list of Recipe objects parsed from the JSON file
      * @throws IOException if an error occurs while reading or parsing the JSON file
      */
-    @Bean
     public List<Recipe> getRecipes() throws IOException {
         log.info("Loading recipes");
-        Resource resource = resourceLoader.getResource("classpath:recipes.json");
+        Resource resource = resourceLoader.getResource(jsonPath.isBlank() ? "classpath:recipes.json" : "file:" + jsonPath);
         try (InputStream inputStream = resource.getInputStream()) {
             return objectMapper.readValue(inputStream, new TypeReference<>() {});
         }
     }
 
+    /**
+     * Builds the indexed recipe catalog once, at startup.
+     *
+     * When {@code recipes.snapshot.path} points to a binary snapshot (see {@link RecipeSnapshot}), the file
+     * is memory-mapped and recipes are decoded on access. Otherwise, or if the snapshot is missing or
+     * unreadable, the catalog is built from {@code recipes.json} via {@link #getRecipes()}.
+     *
+     * @return an immutable catalog with title and ingredient indexes
+     * @throws IOException if the JSON fallback cannot be read or parsed
+     */
+    @Bean
+    public RecipeCatalog getRecipeCatalog() throws IOException {
+        long start = System.nanoTime();
+        RecipeCatalog catalog = null;
+        if (!snapshotPath.isBlank()) {
+            try {
+                catalog = RecipeCatalog.of(RecipeSnapshot.open(Path.of(snapshotPath)));
+                log.info("Loaded recipe snapshot {}", snapshotPath);
+            } catch (IOException e) {
+                log.warn("Cannot load recipe snapshot {}, falling back to recipes.json: {}", snapshotPath, e.toString());
+            }
+        }
+        if (catalog == null) {
+            catalog = RecipeCatalog.of(getRecipes());
+        }
+        log.info("Indexed {} recipes in {} ms", catalog.size(), (System.nanoTime() - start) / 1_000_000);
+        return catalog;
+    }
+
+    /**
+     * Builds a new indexed catalog from the configured source: the snapshot when {@code recipes.snapshot.path}
+     * is set, the JSON catalog otherwise. Unlike {@link #getRecipeCatalog()}, a snapshot that cannot be read
+     * is an error rather than a reason to fall back to another source.
+     *
+     * @return a new immutable catalog with title and ingredient indexes
+     * @throws IOException if the source cannot be read or parsed
+     */
+    public RecipeCatalog loadRecipeCatalog() throws IOException {
+        if (!snapshotPath.isBlank()) {
+            return RecipeCatalog.of(RecipeSnapshot.open(Path.of(snapshotPath)));
+        }
+        return RecipeCatalog.of(getRecipes());
+    }
+
+    /**
+     * Returns the file that {@link #loadRecipeCatalog()} reads.
+     *
+     * @return the snapshot or JSON catalog file, or {@code null} if the catalog is a classpath resource
+     */
+    public Path getCatalogFile() {
+        if (!snapshotPath.isBlank()) {
+            return Path.of(snapshotPath);
+        }
+        return jsonPath.isBlank() ? null : Path.of(jsonPath);
+    }
+
 }
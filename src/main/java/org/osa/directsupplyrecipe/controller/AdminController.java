@@ -0,0 +1,159 @@
+package org.osa.directsupplyrecipe.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.service.CatalogReloadResult;
+import org.osa.directsupplyrecipe.service.CatalogReloader;
+import org.osa.directsupplyrecipe.service.GenerationHedger;
+import org.osa.directsupplyrecipe.service.InstructionCache;
+import org.osa.directsupplyrecipe.service.InstructionPrewarmer;
+import org.osa.directsupplyrecipe.service.PrewarmStatus;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * Controller class for operational endpoints that are not part of the public recipe API.
+ * Provides visibility into the instruction cache so it can be sized and into request hedging,
+ * control over the instruction pre-warm job, and reloading of the recipe catalog.
+ */
+@Slf4j
+@Controller
+@AllArgsConstructor
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final InstructionCache instructionCache;
+    private final InstructionPrewarmer instructionPrewarmer;
+    private final CatalogReloader catalogReloader;
+    private final GenerationHedger generationHedger;
+
+    /**
+     * Handles HTTP GET requests to retrieve the instruction cache counters.
+     *
+     * @return a {@code ResponseEntity} containing the current hit, miss and eviction counts
+     */
+    @Operation(summary = "Get instruction cache statistics")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Instruction cache statistics retrieved successfully",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = InstructionCache.Stats.class)
+            )
+    )
+    @GetMapping("/instruction-cache")
+    public ResponseEntity<InstructionCache.Stats> getInstructionCacheStats() {
+        log.info("Get instruction cache stats");
+        return ResponseEntity.ok(instructionCache.stats());
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve the hedge rate and win statistics of upstream generations.
+     *
+     * @return a {@code ResponseEntity} containing a snapshot of the hedging counters
+     */
+    @Operation(summary = "Get instruction generation hedging statistics")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Hedging statistics retrieved successfully",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = GenerationHedger.Stats.class)
+            )
+    )
+    @GetMapping("/hedging")
+    public ResponseEntity<GenerationHedger.Stats> getHedgingStats() {
+        return ResponseEntity.ok(generationHedger.stats());
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve the progress of the current or last pre-warm run.
+     *
+     * @return a {@code ResponseEntity} containing the run status
+     */
+    @Operation(summary = "Get instruction pre-warm progress")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Pre-warm progress retrieved successfully",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = PrewarmStatus.class)
+            )
+    )
+    @GetMapping("/prewarm")
+    public ResponseEntity<PrewarmStatus> getPrewarmStatus() {
+        return ResponseEntity.ok(instructionPrewarmer.status());
+    }
+
+    /**
+     * Handles HTTP POST requests to start a pre-warm run in the background.
+     *
+     * @return a {@code ResponseEntity} with status 202 and the new run's status, or 409 and the
+     *         status of the run already in progress
+     */
+    @Operation(summary = "Start an instruction pre-warm run")
+    @ApiResponse(responseCode = "202", description = "Pre-warm run started")
+    @ApiResponse(responseCode = "409", description = "A pre-warm run is already in progress")
+    @PostMapping("/prewarm")
+    public ResponseEntity<PrewarmStatus> startPrewarm() {
+        log.info("Start instruction pre-warm");
+        boolean started = instructionPrewarmer.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(instructionPrewarmer.status());
+    }
+
+    /**
+     * Handles HTTP DELETE requests to cancel the pre-warm run in progress.
+     *
+     * @return a {@code ResponseEntity} containing the status of the cancelled or last run
+     */
+    @Operation(summary = "Cancel the instruction pre-warm run in progress")
+    @ApiResponse(responseCode = "200", description = "Pre-warm run cancelled, or none was in progress")
+    @DeleteMapping("/prewarm")
+    public ResponseEntity<PrewarmStatus> cancelPrewarm() {
+        log.info("Cancel instruction pre-warm");
+        instructionPrewarmer.cancel();
+        return ResponseEntity.ok(instructionPrewarmer.status());
+    }
+
+    /**
+     * Handles HTTP POST requests to reload the recipe catalog from its source.
+     *
+     * @return a {@code ResponseEntity} containing the reload outcome
+     * @throws ResponseStatusException with status 422 if the catalog source cannot be read or parsed;
+     *         the current catalog is then kept
+     */
+    @Operation(summary = "Reload the recipe catalog")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Catalog reloaded; cached instructions of changed and removed recipes were invalidated",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = CatalogReloadResult.class)
+            )
+    )
+    @ApiResponse(responseCode = "422", description = "The catalog source could not be loaded; the current catalog is kept")
+    @PostMapping("/catalog/reload")
+    public ResponseEntity<CatalogReloadResult> reloadCatalog() {
+        log.info("Reload recipe catalog");
+        try {
+            return ResponseEntity.ok(catalogReloader.reload());
+        } catch (IOException e) {
+            log.warn("Cannot reload recipe catalog: {}", e.toString());
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Catalog could not be loaded", e);
+        }
+    }
+}
@@ -1,25 +1,49 @@
 package org.osa.directsupplyrecipe.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.catalog.RecipePage;
 import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.model.RecipeField;
+import org.osa.directsupplyrecipe.service.GenerationRejectedException;
+import org.osa.directsupplyrecipe.service.InvalidInstructionsException;
+import org.osa.directsupplyrecipe.service.RecipeJsonWriter;
 import org.osa.directsupplyrecipe.service.RecipeService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Controller class for handling HTTP requests related to recipes.
- * Provides endpoints for retrieving all recipes, fetching specific recipes by name,
+ * Provides endpoints for listing and searching recipes, fetching specific recipes by name,
  * and retrieving instructions for specific recipes.
  */
 @Slf4j
@@ -28,36 +52,114 @@ import java.util.List;
 @RequestMapping("/recipe")
 public class RecipeController {
 
+    /**
+     * Upper bound on the {@code limit} of a single {@code GET /recipe} page.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    private static final Duration INSTRUCTION_STREAM_TIMEOUT = Duration.ofMinutes(2);
+
     private final RecipeService recipeService;
+    private final RecipeJsonWriter recipeJsonWriter;
 
     /**
-     * Handles HTTP GET requests to retrieve a list of all available recipes.
+     * Handles HTTP GET requests to retrieve the available recipes, optionally filtered by ingredient,
+     * paginated and projected to selected fields.
      *
-     * @return a {@code ResponseEntity} containing a list of {@code Recipe} objects representing all recipes
+     * The response is a JSON array streamed straight to the client. {@code X-Total-Count} carries the number
+     * of matches across all pages and, when more matches follow, a {@code Link} header points to the next page.
+     * The strong {@code ETag} is the catalog version, so a client revalidating with {@code If-None-Match}
+     * receives {@code 304 Not Modified} without the body being produced while the catalog is unchanged.
+     *
+     * @param includes ingredient names that every returned recipe must use, e.g. {@code chicken,garlic}
+     * @param excludes ingredient names that no returned recipe may use, e.g. {@code honey}
+     * @param offset the number of matching recipes to skip
+     * @param limit the maximum number of recipes to return; all matches when omitted, capped at {@link #MAX_PAGE_SIZE}
+     * @param fields the recipe fields to include, e.g. {@code title} for list views; all fields when omitted
+     * @param request the current request, used for conditional {@code If-None-Match} handling
+     * @return a {@code ResponseEntity} streaming the matching recipes as a JSON array, or {@code null} when not modified
      */
-    @Operation(summary = "Get all recipes")
+    @Operation(summary = "Get recipes, optionally filtered by ingredient, paginated and projected to selected fields")
     @ApiResponse(
             responseCode = "200",
             description = "Recipes retrieved successfully",
             content = @Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
-                    schema = @Schema(implementation = Recipe.class)
+                    array = @ArraySchema(schema = @Schema(implementation = Recipe.class))
             )
     )
+    @ApiResponse(responseCode = "304", description = "Catalog unchanged since the ETag sent in If-None-Match")
     @GetMapping
-    public ResponseEntity<List<Recipe>> getRecipes() {
-        log.info("Get all recipes");
-        List<Recipe> recipes = recipeService.getRecipes();
-        return ResponseEntity.ok(recipes);
+    public ResponseEntity<StreamingResponseBody> getRecipes(@RequestParam(required = false) List<String> includes,
+                                                            @RequestParam(required = false) List<String> excludes,
+                                                            @RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            @RequestParam(required = false) List<String> fields,
+                                                            WebRequest request) {
+        log.info("Get recipes (includes: {}, excludes: {}, offset: {}, limit: {}, fields: {})",
+                includes, excludes, offset, limit, fields);
+        if (offset < 0 || (limit != null && limit <= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset must be >= 0 and limit must be > 0");
+        }
+        Set<RecipeField> selectedFields = parseFields(fields);
+
+        String etag = "\"" + recipeService.getCatalogVersion() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        int pageSize = limit == null ? Integer.MAX_VALUE : Math.min(limit, MAX_PAGE_SIZE);
+        RecipePage page = recipeService.getRecipePage(nonBlank(includes), nonBlank(excludes), offset, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.total()));
+        if (page.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("offset", offset + page.recipes().size())
+                    .replaceQueryParam("limit", pageSize)
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(out -> recipeJsonWriter.write(page.recipes(), selectedFields, out));
     }
 
     /**
-     * Handles HTTP GET requests to retrieve a specific recipe by its name.
+     * Handles HTTP GET requests to search recipe titles by prefix, for type-ahead.
+     *
+     * @param prefix the case-insensitive title prefix to match
+     * @param limit the maximum number of titles to return; capped at {@link RecipeService#MAX_SEARCH_RESULTS}
+     * @return a {@code ResponseEntity} containing the matching recipe titles in alphabetical order
+     */
+    @Operation(summary = "Search recipe titles by prefix")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Matching recipe titles retrieved successfully",
+            content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = String.class)
+            )
+    )
+    @GetMapping("/search")
+    public ResponseEntity<List<String>> searchRecipes(@RequestParam String prefix,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        log.info("Search recipes by prefix: {}", prefix);
+        return ResponseEntity.ok(recipeService.searchRecipeTitles(prefix, limit));
+    }
+
+    /**
+     * Handles HTTP GET requests to retrieve a specific recipe by its name, optionally scaled to another yield.
+     * Scaling multiplies the ingredient quantities by the ratio of the requested yield to the recipe's yield;
+     * it is computed locally, without a model call.
      *
      * @param recipeName the name of the recipe to retrieve
+     * @param yield the number of servings to scale the recipe to; the recipe's own yield when omitted
      * @return a {@code ResponseEntity} containing the {@code Recipe} object corresponding to the specified name
      */
-    @Operation(summary = "Get recipe by name")
+    @Operation(summary = "Get recipe by name, optionally scaled to another yield")
     @ApiResponse(
             responseCode = "200",
             description = "Recipe retrieved successfully",
@@ -66,18 +168,32 @@ public class RecipeController {
                     schema = @Schema(implementation = Recipe.class)
             )
     )
+    @ApiResponse(responseCode = "400", description = "The yield is not positive")
+    @ApiResponse(responseCode = "422", description = "The recipe has no yield to scale from")
     @GetMapping("/{recipeName}")
-    public ResponseEntity<Recipe> getRecipe(@PathVariable String recipeName) {
-        log.info("Get recipe: {}", recipeName);
-        Recipe recipe = recipeService.getRecipe(recipeName);
-        return ResponseEntity.ok(recipe);
+    public ResponseEntity<Recipe> getRecipe(@PathVariable String recipeName,
+                                            @RequestParam(required = false) Integer yield) {
+        log.info("Get recipe: {} (yield: {})", recipeName, yield);
+        if (yield == null) {
+            return ResponseEntity.ok(recipeService.getRecipe(recipeName));
+        }
+        checkYield(yield);
+        return ResponseEntity.ok(scaled(() -> recipeService.getRecipe(recipeName, yield)));
     }
 
     /**
      * Handles HTTP GET requests to retrieve the step-by-step instructions for a specific recipe by its name.
+     * The request is processed asynchronously: no servlet thread waits while instructions are generated.
+     * When too many generations are already running or queued, the request fails fast with
+     * {@code 503 Service Unavailable} and a {@code Retry-After} header. When the model keeps producing invalid
+     * instructions, it fails with {@code 502 Bad Gateway}. With a {@code yield}, the instructions generated for
+     * the recipe's own yield are reused and the ingredient quantities they mention are scaled, so each yield
+     * does not cost a generation of its own.
      *
      * @param recipeName the name of the recipe for which instructions are to be retrieved
-     * @return a {@code ResponseEntity} containing a list of strings, each representing a step in the recipe's instructions
+     * @param yield the number of servings to scale the instructions to; the recipe's own yield when omitted
+     * @return a future of a {@code ResponseEntity} containing a list of strings, each representing a step in the
+     *         recipe's instructions
      */
     @Operation(summary = "Get recipe instructions by name")
     @ApiResponse(
@@ -88,10 +204,156 @@ public class RecipeController {
                     schema = @Schema(implementation = String.class)
             )
     )
+    @ApiResponse(responseCode = "400", description = "The yield is not positive")
+    @ApiResponse(responseCode = "422", description = "The recipe has no yield to scale from")
+    @ApiResponse(responseCode = "502", description = "The model did not produce valid instructions within the allowed attempts")
+    @ApiResponse(responseCode = "503", description = "Too many instruction generations in progress; see Retry-After")
     @GetMapping("/{recipeName}/instructions")
-    public ResponseEntity<List<String>> getRecipeInstructions(@PathVariable String recipeName) {
-        log.info("Get recipe instructions for: {}", recipeName);
-        List<String> instructions = recipeService.getRecipeInstructions(recipeName);
-        return ResponseEntity.ok(instructions);
+    public CompletableFuture<ResponseEntity<List<String>>> getRecipeInstructions(
+            @PathVariable String recipeName, @RequestParam(required = false) Integer yield) {
+        log.info("Get recipe instructions for: {} (yield: {})", recipeName, yield);
+        if (yield == null) {
+            return recipeService.getRecipeInstructionsAsync(recipeName).thenApply(ResponseEntity::ok);
+        }
+        checkYield(yield);
+        return scaled(() -> recipeService.getRecipeInstructionsAsync(recipeName, yield)).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Handles HTTP GET requests to stream the step-by-step instructions for a specific recipe as Server-Sent Events.
+     * Each step is sent as a {@code step} event whose data is the step text, as soon as it is
+     * generated (or immediately, when the instructions are cached). The stream ends with a {@code done} event,
+     * or a {@code failure} event carrying an error message if generation fails. Like
+     * {@link #getRecipeInstructions(String, Integer)}, the request is rejected with {@code 503} when generation is
+     * saturated, and a {@code yield} scales the ingredient quantities of each step.
+     *
+     * @param recipeName the name of the recipe for which instructions are to be streamed
+     * @param yield the number of servings to scale the instructions to; the recipe's own yield when omitted
+     * @return an {@code SseEmitter} delivering the instruction steps
+     */
+    @Operation(summary = "Stream recipe instructions by name")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Recipe instructions streamed as Server-Sent Events",
+            content = @Content(
+                    mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                    schema = @Schema(implementation = String.class)
+            )
+    )
+    @ApiResponse(responseCode = "400", description = "The yield is not positive")
+    @ApiResponse(responseCode = "422", description = "The recipe has no yield to scale from")
+    @ApiResponse(responseCode = "503", description = "Too many instruction generations in progress; see Retry-After")
+    @GetMapping(value = "/{recipeName}/instructions/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRecipeInstructions(@PathVariable String recipeName,
+                                               @RequestParam(required = false) Integer yield) {
+        log.info("Stream recipe instructions for: {} (yield: {})", recipeName, yield);
+        if (yield != null) {
+            checkYield(yield);
+        }
+        SseEmitter emitter = new SseEmitter(INSTRUCTION_STREAM_TIMEOUT.toMillis());
+        Consumer<String> onStep = step -> send(emitter, SseEmitter.event().name("step").data(step));
+        CompletableFuture<Void> streamed = yield == null
+                ? recipeService.streamRecipeInstructions(recipeName, onStep)
+                : scaled(() -> recipeService.streamRecipeInstructions(recipeName, yield, onStep));
+        streamed.whenComplete((done, failure) -> {
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            try {
+                if (cause == null) {
+                    send(emitter, SseEmitter.event().name("done").data(""));
+                    emitter.complete();
+                } else if (cause instanceof ClientDisconnectedException) {
+                    // The client went away; stop streaming to it and release the connection
+                    log.info("Instruction stream for {} closed by client: {}", recipeName, cause.getMessage());
+                    emitter.completeWithError(cause.getCause());
+                } else {
+                    log.warn("Instruction stream for {} failed: {}", recipeName, cause.getMessage());
+                    send(emitter, SseEmitter.event().name("failure").data("Instruction generation failed"));
+                    emitter.complete();
+                }
+            } catch (ClientDisconnectedException sendFailure) {
+                emitter.completeWithError(sendFailure.getCause());
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Turns a saturated generation limiter into {@code 503 Service Unavailable} with a {@code Retry-After}
+     * header, so clients back off instead of piling onto the queue.
+     *
+     * @param e the rejection, carrying the retry delay
+     * @return an empty {@code 503} response
+     */
+    @ExceptionHandler(GenerationRejectedException.class)
+    public ResponseEntity<Void> handleGenerationRejected(GenerationRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .build();
+    }
+
+    /**
+     * Turns instructions that stayed invalid after every attempt into {@code 502 Bad Gateway}, so clients can
+     * tell a model failure from a recipe without instructions.
+     *
+     * @param e the failure, carrying the last validation violation
+     * @return an empty {@code 502} response
+     */
+    @ExceptionHandler(InvalidInstructionsException.class)
+    public ResponseEntity<Void> handleInvalidInstructions(InvalidInstructionsException e) {
+        log.warn(e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+    }
+
+    private static void checkYield(int yield) {
+        if (yield <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "yield must be > 0");
+        }
+    }
+
+    /**
+     * Runs a scaling lookup, turning a recipe without a yield to scale from into {@code 422 Unprocessable Entity}.
+     */
+    private static <T> T scaled(Supplier<T> lookup) {
+        try {
+            return lookup.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+    }
+
+    private static Set<RecipeField> parseFields(List<String> fields) {
+        List<String> names = nonBlank(fields);
+        if (names.isEmpty()) {
+            return EnumSet.allOf(RecipeField.class);
+        }
+        try {
+            Set<RecipeField> selected = EnumSet.noneOf(RecipeField.class);
+            names.forEach(name -> selected.add(RecipeField.fromJsonName(name)));
+            return selected;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields must be any of title, yield, ingredients");
+        }
+    }
+
+    private static List<String> nonBlank(List<String> values) {
+        return values == null ? List.of() : values.stream().filter(v -> !v.isBlank()).toList();
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new ClientDisconnectedException(e);
+        }
+    }
+
+    /**
+     * Signals that an event could not be written because the client closed the stream.
+     */
+    private static class ClientDisconnectedException extends RuntimeException {
+        ClientDisconnectedException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package org.osa.directsupplyrecipe.model;
+
+import java.util.Locale;
+
+/**
+ * Enumerates the {@code Recipe} fields that can be selected for projection in list responses.
+ */
+public enum RecipeField {
+    TITLE,
+    YIELD,
+    INGREDIENTS;
+
+    /**
+     * Resolves a field from its JSON property name, ignoring case.
+     *
+     * @param name the JSON property name, e.g. {@code "title"}
+     * @return the matching field
+     * @throws IllegalArgumentException if no field has that name
+     */
+    public static RecipeField fromJsonName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the JSON property name of this field.
+     *
+     * @return the property name, e.g. {@code "title"}
+     */
+    public String jsonName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
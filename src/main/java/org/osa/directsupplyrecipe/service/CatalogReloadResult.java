@@ -0,0 +1,16 @@
+package org.osa.directsupplyrecipe.service;
+
+/**
+ * Outcome of a {@link CatalogReloader} reload.
+ *
+ * @param previousVersion the content version of the catalog that was replaced
+ * @param version the content version of the catalog now served
+ * @param recipes the number of recipes now served
+ * @param added the number of recipes whose title is new
+ * @param changed the number of recipes whose content changed; their cached instructions were invalidated
+ * @param removed the number of recipes that no longer exist; their cached instructions were invalidated
+ * @param durationMillis the time spent loading, indexing and publishing the catalog
+ */
+public record CatalogReloadResult(String previousVersion, String version, int recipes, int added, int changed,
+                                  int removed, long durationMillis) {
+}
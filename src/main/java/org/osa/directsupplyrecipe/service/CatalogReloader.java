@@ -0,0 +1,182 @@
+package org.osa.directsupplyrecipe.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.catalog.CatalogDiff;
+import org.osa.directsupplyrecipe.catalog.RecipeCatalog;
+import org.osa.directsupplyrecipe.config.RecipeConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces the recipe catalog at runtime, without a restart.
+ *
+ * A reload reads and indexes the configured catalog source (see {@link RecipeConfig#loadRecipeCatalog()}) on
+ * the calling thread, off the request path, and hands the finished catalog to
+ * {@link RecipeService#replaceCatalog(RecipeCatalog)}, which publishes it with one atomic swap and invalidates
+ * only the cached instructions of changed and removed recipes. If the source cannot be read or parsed, the
+ * current catalog keeps being served. Reloads are serialized.
+ *
+ * Reloads run on demand with {@code POST /admin/catalog/reload}, and, when {@code recipes.reload.watch} is set
+ * and the catalog is a file ({@code recipes.snapshot.path} or {@code recipes.json.path}), whenever that file
+ * is created or modified. Events are debounced by {@code recipes.reload.debounce}, so a file written in
+ * several steps is read once it is quiet; replacing it with an atomic move avoids reading it half-written.
+ * With {@code recipes.reload.prewarm}, a changed catalog also starts an {@link InstructionPrewarmer} run.
+ */
+@Slf4j
+@Component
+public class CatalogReloader {
+
+    private final RecipeService recipeService;
+    private final RecipeConfig recipeConfig;
+    private final InstructionPrewarmer instructionPrewarmer;
+    private final boolean watch;
+    private final Duration debounce;
+    private final boolean prewarm;
+    private volatile WatchService watchService;
+
+    /**
+     * Constructs a CatalogReloader.
+     *
+     * @param recipeService the service serving the catalog
+     * @param recipeConfig the configuration that loads the catalog
+     * @param instructionPrewarmer the pre-warm job started after a change, if enabled
+     * @param watch whether to reload when the catalog file changes
+     * @param debounce how long the catalog file must stay unchanged before it is reloaded
+     * @param prewarm whether to start a pre-warm run after a reload that changed the catalog
+     */
+    public CatalogReloader(RecipeService recipeService,
+                           RecipeConfig recipeConfig,
+                           InstructionPrewarmer instructionPrewarmer,
+                           @Value("${recipes.reload.watch:false}") boolean watch,
+                           @Value("${recipes.reload.debounce:1s}") Duration debounce,
+                           @Value("${recipes.reload.prewarm:false}") boolean prewarm) {
+        this.recipeService = recipeService;
+        this.recipeConfig = recipeConfig;
+        this.instructionPrewarmer = instructionPrewarmer;
+        this.watch = watch;
+        this.debounce = debounce;
+        this.prewarm = prewarm;
+    }
+
+    /**
+     * Loads the catalog source again and publishes it if its content changed.
+     *
+     * @return the outcome of the reload
+     * @throws IOException if the catalog source cannot be read or parsed; the current catalog is kept
+     */
+    public synchronized CatalogReloadResult reload() throws IOException {
+        long start = System.nanoTime();
+        RecipeCatalog next = recipeConfig.loadRecipeCatalog();
+        String previousVersion = recipeService.getCatalogVersion();
+        if (next.getVersion().equals(previousVersion)) {
+            log.info("Recipe catalog unchanged at version {}", previousVersion);
+            return new CatalogReloadResult(previousVersion, previousVersion, next.size(), 0, 0, 0,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+
+        CatalogDiff diff = recipeService.replaceCatalog(next);
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Reloaded recipe catalog {} -> {} in {} ms: {} recipes, {} added, {} changed, {} removed",
+                previousVersion, next.getVersion(), durationMillis, next.size(), diff.added(), diff.changed(),
+                diff.removed());
+        if (prewarm && !diff.isEmpty()) {
+            instructionPrewarmer.start();
+        }
+        return new CatalogReloadResult(previousVersion, next.getVersion(), next.size(), diff.added(),
+                diff.changed(), diff.removed(), durationMillis);
+    }
+
+    /**
+     * Starts watching the catalog file once the application is ready, if enabled.
+     *
+     * @throws IOException if the directory of the catalog file cannot be watched
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWatching() throws IOException {
+        if (!watch) {
+            return;
+        }
+        Path file = recipeConfig.getCatalogFile();
+        if (file == null) {
+            log.warn("recipes.reload.watch is set but the catalog is a classpath resource; not watching");
+            return;
+        }
+        Path absolute = file.toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        absolute.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(() -> watch(watchService, absolute.getFileName()), "catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        log.info("Watching {} for recipe catalog changes", absolute);
+    }
+
+    /**
+     * Stops watching the catalog file on shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.warn("Failed to stop watching the recipe catalog: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void watch(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                if (!isCatalogEvent(service.take(), fileName)) {
+                    continue;
+                }
+                // Wait until the file has been quiet for the debounce period
+                WatchKey key;
+                while ((key = service.poll(debounce.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    isCatalogEvent(key, fileName);
+                }
+                try {
+                    reload();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Cannot reload recipe catalog, keeping the current one: {}", e.toString());
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drains the events of a watch key and re-arms it.
+     *
+     * @return whether any event concerns the catalog file
+     */
+    private static boolean isCatalogEvent(WatchKey key, Path fileName) {
+        boolean matches = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context()) || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                matches = true;
+            }
+        }
+        key.reset();
+        return matches;
+    }
+}
@@ -0,0 +1,271 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.google.genai.Client;
+import com.google.genai.ResponseStream;
+import com.google.genai.types.GenerateContentConfig;
+import com.google.genai.types.GenerateContentResponse;
+import com.google.genai.types.HttpOptions;
+import com.google.genai.types.Schema;
+import com.google.genai.types.Type;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link InstructionGenerator} backed by the Gemini API.
+ *
+ * Clients are created on first use and shared by all requests so the underlying HTTP connection pools
+ * and TLS sessions are reused. Creation is deferred because the SDK reads the API key from the
+ * environment and fails without one, which would otherwise prevent the application from starting in
+ * environments that never call the model.
+ *
+ * Each SDK client uses an HTTP client with the default pool of two connections per host, which cannot
+ * be configured, so a single client serialises all but two concurrent calls. Enough clients are created
+ * for {@code gemini.client.connections} concurrent calls (by default the generation limiter's
+ * {@code instruction.generation.max-concurrent}), and each call goes to the least busy one. When hedging is enabled,
+ * connections for the {@link GenerationHedger}'s extra attempts are added on top, so a hedge never waits for a
+ * connection held by the slow call it races, or by a cancelled call whose blocking read ignored the interrupt.
+ *
+ * The SDK exposes a single {@code timeout} setting, which it applies as the connect timeout and
+ * forwards to the server as the request deadline; it is configured with {@code gemini.client.timeout}.
+ * {@code gemini.base-url} points the client at another endpoint, such as the load test's local stand-in.
+ *
+ * Calls that pass an {@link InstructionFormat} use structured output: the model is asked for
+ * {@code application/json} matching a response schema (an array of strings, or an object of such arrays for a
+ * batch) with the format's step count bounds, rather than relying on the prompt wording alone.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "instruction.generator", havingValue = "gemini", matchIfMissing = true)
+public class GeminiInstructionGenerator implements InstructionGenerator {
+
+    private static final int CONNECTIONS_PER_CLIENT = 2;
+
+    private final String apiKey;
+    private final Duration timeout;
+    private final String baseUrl;
+    private final InstructionMetrics instructionMetrics;
+    private final AtomicIntegerArray callsInFlight;
+    private final Map<InstructionFormat, GenerateContentConfig> configs = new ConcurrentHashMap<>();
+    private volatile Client[] clients;
+
+    /**
+     * Constructs a GeminiInstructionGenerator.
+     *
+     * @param apiKey the Gemini API key; blank falls back to the SDK's environment lookup
+     * @param timeout the connect timeout and server-side deadline for each call
+     * @param baseUrl the API base URL; blank uses the SDK's default endpoint
+     * @param connections the number of calls that can be in flight at once, besides hedges
+     * @param generationHedger the hedger whose extra attempts need connections of their own
+     * @param instructionMetrics the metrics receiving the token usage reported by the model
+     */
+    public GeminiInstructionGenerator(@Value("${gemini.api-key:}") String apiKey,
+                                      @Value("${gemini.client.timeout:60s}") Duration timeout,
+                                      @Value("${gemini.base-url:}") String baseUrl,
+                                      @Value("${gemini.client.connections:${instruction.generation.max-concurrent:8}}")
+                                      int connections,
+                                      GenerationHedger generationHedger,
+                                      InstructionMetrics instructionMetrics) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("gemini.client.connections must be positive");
+        }
+        this.apiKey = apiKey;
+        this.timeout = timeout;
+        this.baseUrl = baseUrl;
+        this.instructionMetrics = instructionMetrics;
+        int total = connections + generationHedger.getMaxExtraAttempts();
+        this.callsInFlight = new AtomicIntegerArray((total + CONNECTIONS_PER_CLIENT - 1) / CONNECTIONS_PER_CLIENT);
+    }
+
+    /**
+     * Generates the raw response text for the given prompt by invoking the Gemini model.
+     *
+     * @param model the Gemini model identifier
+     * @param promptText the input text prompt used to generate the instruction response
+     * @return the generated instruction response as a string
+     */
+    @Override
+    public String generate(String model, String promptText) {
+        return generate(model, promptText, (GenerateContentConfig) null);
+    }
+
+    /**
+     * Generates the raw response text for the given prompt with structured output in the given format.
+     *
+     * @param model the Gemini model identifier
+     * @param promptText the input text prompt used to generate the instruction response
+     * @param format the response shape the model is constrained to
+     * @return the generated JSON response as a string
+     */
+    @Override
+    public String generate(String model, String promptText, InstructionFormat format) {
+        return generate(model, promptText, config(format));
+    }
+
+    /**
+     * Streams the response for the given prompt from the Gemini model, delivering the text of
+     * each partial response as soon as it is received.
+     *
+     * @param model the Gemini model identifier
+     * @param promptText the input text prompt used to generate the instruction response
+     * @param onChunk receives the text of each partial response
+     */
+    @Override
+    public void generateStream(String model, String promptText, Consumer<String> onChunk) {
+        generateStream(model, promptText, (GenerateContentConfig) null, onChunk);
+    }
+
+    /**
+     * Streams the response for the given prompt with structured output in the given format.
+     *
+     * @param model the Gemini model identifier
+     * @param promptText the input text prompt used to generate the instruction response
+     * @param format the response shape the model is constrained to
+     * @param onChunk receives the text of each partial response
+     */
+    @Override
+    public void generateStream(String model, String promptText, InstructionFormat format, Consumer<String> onChunk) {
+        generateStream(model, promptText, config(format), onChunk);
+    }
+
+    /**
+     * Closes the shared clients, if they were created.
+     */
+    @PreDestroy
+    public void close() {
+        Client[] current = clients;
+        if (current != null) {
+            for (Client client : current) {
+                client.close();
+            }
+        }
+    }
+
+    private String generate(String model, String promptText, GenerateContentConfig config) {
+        GenerateContentResponse response = withClient(client -> client.models.generateContent(model, promptText, config));
+        recordUsage(response);
+        return response.text();
+    }
+
+    private void generateStream(String model, String promptText, GenerateContentConfig config,
+                                Consumer<String> onChunk) {
+        // The connection stays busy until the stream is fully read
+        withClient(client -> {
+            streamResponse(client, model, promptText, config, onChunk);
+            return null;
+        });
+    }
+
+    private void streamResponse(Client client, String model, String promptText, GenerateContentConfig config,
+                                Consumer<String> onChunk) {
+        try (ResponseStream<GenerateContentResponse> stream =
+                     client.models.generateContentStream(model, promptText, config)) {
+            GenerateContentResponse last = null;
+            for (GenerateContentResponse partial : stream) {
+                last = partial;
+                String text = partial.text();
+                if (text != null && !text.isEmpty()) {
+                    onChunk.accept(text);
+                }
+            }
+            if (last != null) {
+                // Usage metadata is cumulative; the final partial response carries the totals
+                recordUsage(last);
+            }
+        }
+    }
+
+    /**
+     * Returns the structured output configuration of a format, built once per distinct format.
+     */
+    private GenerateContentConfig config(InstructionFormat format) {
+        return configs.computeIfAbsent(format, f -> {
+            Schema steps = Schema.builder()
+                    .type(Type.Known.ARRAY)
+                    .items(Schema.builder().type(Type.Known.STRING).build())
+                    .minItems((long) f.minSteps())
+                    .maxItems((long) f.maxSteps())
+                    .build();
+            Schema schema = steps;
+            if (!f.keys().isEmpty()) {
+                Map<String, Schema> properties = new LinkedHashMap<>();
+                f.keys().forEach(key -> properties.put(key, steps));
+                schema = Schema.builder()
+                        .type(Type.Known.OBJECT)
+                        .properties(properties)
+                        .required(f.keys())
+                        .propertyOrdering(f.keys())
+                        .build();
+            }
+            return GenerateContentConfig.builder()
+                    .responseMimeType("application/json")
+                    .responseSchema(schema)
+                    .build();
+        });
+    }
+
+    private void recordUsage(GenerateContentResponse response) {
+        response.usageMetadata().ifPresent(usage -> instructionMetrics.recordTokens(
+                usage.promptTokenCount().orElse(null), usage.candidatesTokenCount().orElse(null)));
+    }
+
+    /**
+     * Runs a call on the client with the fewest calls in flight.
+     */
+    private <T> T withClient(Function<Client, T> call) {
+        Client[] all = clients();
+        int chosen = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (callsInFlight.get(i) < callsInFlight.get(chosen)) {
+                chosen = i;
+            }
+        }
+        callsInFlight.incrementAndGet(chosen);
+        try {
+            return call.apply(all[chosen]);
+        } finally {
+            callsInFlight.decrementAndGet(chosen);
+        }
+    }
+
+    private Client[] clients() {
+        Client[] current = clients;
+        if (current == null) {
+            synchronized (this) {
+                current = clients;
+                if (current == null) {
+                    log.info("Creating {} Gemini clients with timeout {}{}", callsInFlight.length(), timeout,
+                            baseUrl.isBlank() ? "" : " for " + baseUrl);
+                    current = new Client[callsInFlight.length()];
+                    for (int i = 0; i < current.length; i++) {
+                        current[i] = createClient();
+                    }
+                    clients = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Client createClient() {
+        HttpOptions.Builder httpOptions = HttpOptions.builder().timeout((int) timeout.toMillis());
+        if (!baseUrl.isBlank()) {
+            httpOptions.baseUrl(baseUrl);
+        }
+        Client.Builder builder = Client.builder().httpOptions(httpOptions.build());
+        if (!apiKey.isBlank()) {
+            builder.apiKey(apiKey);
+        }
+        return builder.build();
+    }
+}
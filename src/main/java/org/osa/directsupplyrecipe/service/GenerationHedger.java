@@ -0,0 +1,405 @@
+package org.osa.directsupplyrecipe.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cuts the tail latency of upstream generations by hedging: when a call has not completed after the hedge
+ * delay, an identical second call is issued, the first successful result wins and the other call is cancelled.
+ *
+ * The delay is {@code instruction.hedge.delay}, or, when that is zero, the {@code instruction.hedge.percentile}
+ * of the latencies of the last {@value #WINDOW} calls; no hedge is sent until {@value #MIN_SAMPLES} latencies
+ * have been observed. Hedges are bounded by a budget: every call earns {@code instruction.hedge.budget} hedges
+ * (e.g. 0.05 for at most 5% extra calls), up to a reserve of {@value #MAX_RESERVE}, and a call whose budget is
+ * exhausted simply waits for its first attempt. A failure is not hedged; if one attempt fails after a hedge was
+ * sent, the other one is awaited.
+ *
+ * Attempts run on a dedicated pool, while the calling thread, usually a {@link GenerationLimiter} thread, waits
+ * for the winner, so hedges do not take limiter slots. Cancelling the losing attempt interrupts its thread, but an
+ * upstream call that ignores interrupts, like the Gemini SDK's blocking read, runs on and keeps its connection
+ * until the response arrives, which is then discarded. Extra attempts, hedges and such lingering losers, are
+ * therefore capped at {@code instruction.hedge.max-in-flight} beyond the calls waiting, and
+ * {@link GeminiInstructionGenerator} reserves that many connections on top of its pool (see
+ * {@link #getMaxExtraAttempts()}), so a hedge never queues behind the calls it is meant to overtake. A hedge
+ * beyond the cap is skipped like one beyond the budget. Hedging is disabled unless {@code instruction.hedge.enabled}
+ * is set, and calls then run directly on the calling thread.
+ *
+ * Calls, hedges sent, hedges won, hedges skipped for lack of budget or headroom and the current delay are
+ * published as {@code recipe.instructions.hedge.*} meters and through {@link #stats()}.
+ */
+@Component
+public class GenerationHedger implements MeterBinder {
+
+    static final int WINDOW = 512;
+    static final int MIN_SAMPLES = 20;
+    private static final int MAX_RESERVE = 10;
+    private static final long CREDITS_PER_HEDGE = 1_000_000;
+    private static final int RECOMPUTE_EVERY = 32;
+
+    private final boolean enabled;
+    private final long fixedDelayNanos;
+    private final double percentile;
+    private final long creditsPerCall;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final AtomicLong credits = new AtomicLong();
+    private final long[] latencies = new long[WINDOW];
+    private int recorded;
+    private volatile long adaptiveDelayNanos = -1;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder wins = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * Constructs a GenerationHedger.
+     *
+     * @param enabled whether calls are hedged at all
+     * @param delay how long a call runs before it is hedged; zero to use the observed latency percentile
+     * @param percentile the latency percentile used as delay when {@code delay} is zero, between 0 and 1
+     * @param budget the number of hedges each call earns, e.g. 0.05 for at most 5% extra calls
+     * @param maxInFlight the maximum number of attempts running beyond one per waiting call
+     */
+    public GenerationHedger(@Value("${instruction.hedge.enabled:false}") boolean enabled,
+                            @Value("${instruction.hedge.delay:0}") Duration delay,
+                            @Value("${instruction.hedge.percentile:0.95}") double percentile,
+                            @Value("${instruction.hedge.budget:0.05}") double budget,
+                            @Value("${instruction.hedge.max-in-flight:4}") int maxInFlight) {
+        if (delay.isNegative() || percentile <= 0 || percentile >= 1 || budget < 0 || budget > 1 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("instruction.hedge needs a non-negative delay, a percentile in (0, 1), "
+                    + "a budget in [0, 1] and a positive max-in-flight");
+        }
+        this.enabled = enabled;
+        this.fixedDelayNanos = delay.toNanos();
+        this.percentile = percentile;
+        this.creditsPerCall = Math.round(budget * CREDITS_PER_HEDGE);
+        this.maxInFlight = maxInFlight;
+        this.executor = enabled ? Executors.newCachedThreadPool(new CustomizableThreadFactory("instruction-hedge-"))
+                : null;
+    }
+
+    /**
+     * Runs an upstream call, hedging it if it is slow and the budget allows.
+     *
+     * @param task the call; it may run twice, concurrently, so it must be idempotent
+     * @param <T> the result type
+     * @return the result of the first attempt to succeed
+     * @throws RuntimeException the failure of the first attempt if no attempt succeeded
+     */
+    public <T> T call(Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        calls.increment();
+        earnCredits();
+
+        Race<T> race = new Race<>();
+        waiting.incrementAndGet();
+        Attempt primary = start(task, race, false);
+        try {
+            long delay = currentDelayNanos();
+            if (delay >= 0) {
+                try {
+                    return race.first.get(delay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    // Slow: hedge if the budget allows
+                } catch (ExecutionException e) {
+                    throw unwrap(e.getCause());
+                }
+                if (running.get() - waiting.get() >= maxInFlight) {
+                    // No connection headroom left, e.g. while losers that ignored their interrupt still run
+                    skipped.increment();
+                } else if (spendCredit()) {
+                    Attempt hedge = start(task, race, true);
+                    if (hedge == null) {
+                        // The primary finished right at the delay: not a slow call, so the credit is returned
+                        credits.addAndGet(CREDITS_PER_HEDGE);
+                    } else {
+                        hedges.increment();
+                        try {
+                            return await(race.first);
+                        } finally {
+                            hedge.cancel();
+                        }
+                    }
+                } else {
+                    skipped.increment();
+                }
+            }
+            return await(race.first);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a generation");
+        } finally {
+            waiting.decrementAndGet();
+            primary.cancel();
+        }
+    }
+
+    /**
+     * Returns the delay after which a call is currently hedged.
+     *
+     * @return the hedge delay, or {@code null} if calls are not hedged (disabled, or too few latencies observed)
+     */
+    public Duration getDelay() {
+        long delay = enabled ? currentDelayNanos() : -1;
+        return delay < 0 ? null : Duration.ofNanos(delay);
+    }
+
+    /**
+     * Returns the number of upstream calls that can run beyond one per waiting call: hedges, and cancelled
+     * attempts that have not returned yet. An upstream client needs this many connections on top of the ones
+     * sized for its callers.
+     *
+     * @return the maximum number of extra attempts, or 0 if hedging is disabled
+     */
+    public int getMaxExtraAttempts() {
+        return enabled ? maxInFlight : 0;
+    }
+
+    /**
+     * Returns a point-in-time snapshot of the hedging counters.
+     *
+     * @return the current counts and delay
+     */
+    public Stats stats() {
+        long callCount = calls.sum();
+        long hedgeCount = hedges.sum();
+        long winCount = wins.sum();
+        Duration delay = getDelay();
+        return new Stats(enabled, callCount, hedgeCount, winCount, skipped.sum(),
+                callCount == 0 ? 0 : (double) hedgeCount / callCount,
+                hedgeCount == 0 ? 0 : (double) winCount / hedgeCount,
+                delay == null ? null : delay.toMillis());
+    }
+
+    /**
+     * Publishes the hedging counters and delay as meters.
+     *
+     * @param registry the registry to publish the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("recipe.instructions.hedge.calls", calls, LongAdder::sum)
+                .description("Upstream generations eligible for hedging")
+                .register(registry);
+        FunctionCounter.builder("recipe.instructions.hedge.sent", hedges, LongAdder::sum)
+                .description("Hedge calls sent because a generation was slow")
+                .register(registry);
+        FunctionCounter.builder("recipe.instructions.hedge.wins", wins, LongAdder::sum)
+                .description("Hedge calls that answered before the original call")
+                .register(registry);
+        FunctionCounter.builder("recipe.instructions.hedge.skipped", skipped, LongAdder::sum)
+                .description("Hedge calls not sent because the hedge budget or connection headroom was exhausted")
+                .register(registry);
+        Gauge.builder("recipe.instructions.hedge.delay", this,
+                        hedger -> hedger.getDelay() == null ? Double.NaN : hedger.getDelay().toNanos() / 1e9)
+                .description("Time a generation runs before it is hedged")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Stops the attempt pool and interrupts running attempts on shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Starts an attempt unless the race is already decided.
+     *
+     * @return the running attempt, or {@code null} if the race already has a result
+     */
+    private <T> Attempt start(Supplier<T> task, Race<T> race, boolean hedge) {
+        if (!race.enter()) {
+            return null;
+        }
+        Attempt attempt = new Attempt();
+        running.incrementAndGet();
+        attempt.future = executor.submit(() -> {
+            if (!attempt.claim()) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                T result = task.get();
+                recordLatency(System.nanoTime() - start);
+                if (race.win()) {
+                    // Counted before the caller is released, so its stats already include the win
+                    if (hedge) {
+                        wins.increment();
+                    }
+                    race.first.complete(result);
+                }
+            } catch (RuntimeException | Error e) {
+                race.fail(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+        return attempt;
+    }
+
+    private static <T> T await(CompletableFuture<T> first) throws InterruptedException {
+        try {
+            return first.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        if (failure instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(failure);
+    }
+
+    private void earnCredits() {
+        long max = MAX_RESERVE * CREDITS_PER_HEDGE;
+        credits.getAndUpdate(current -> Math.min(max, current + creditsPerCall));
+    }
+
+    private boolean spendCredit() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < CREDITS_PER_HEDGE) {
+                return false;
+            }
+        } while (!credits.compareAndSet(current, current - CREDITS_PER_HEDGE));
+        return true;
+    }
+
+    private long currentDelayNanos() {
+        return fixedDelayNanos > 0 ? fixedDelayNanos : adaptiveDelayNanos;
+    }
+
+    private void recordLatency(long nanos) {
+        if (fixedDelayNanos > 0) {
+            return;
+        }
+        synchronized (latencies) {
+            latencies[recorded % WINDOW] = nanos;
+            recorded++;
+            if (recorded >= MIN_SAMPLES && (recorded < WINDOW || recorded % RECOMPUTE_EVERY == 0)) {
+                long[] window = Arrays.copyOf(latencies, Math.min(recorded, WINDOW));
+                Arrays.sort(window);
+                adaptiveDelayNanos = window[(int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1)];
+            }
+        }
+    }
+
+    /**
+     * One submitted attempt. It counts as running from submission until its task returns; an attempt cancelled
+     * before its task started is uncounted by the cancelling thread instead.
+     */
+    private final class Attempt {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Future<?> future;
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        void cancel() {
+            if (claim()) {
+                running.decrementAndGet();
+            }
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * The attempts of one call: the first success completes {@code first}; a failure only does once every
+     * attempt started has failed, with the first failure.
+     */
+    private static final class Race<T> {
+        private final CompletableFuture<T> first = new CompletableFuture<>();
+        private int started;
+        private int failed;
+        private boolean won;
+        private Throwable firstFailure;
+
+        synchronized boolean enter() {
+            if (won || first.isDone()) {
+                return false;
+            }
+            started++;
+            return true;
+        }
+
+        /**
+         * Claims the win for a successful attempt, which must then complete {@code first} with its result.
+         *
+         * @return whether no other attempt won or the race failed already
+         */
+        synchronized boolean win() {
+            if (won || first.isDone()) {
+                return false;
+            }
+            won = true;
+            return true;
+        }
+
+        synchronized void fail(Throwable failure) {
+            if (firstFailure == null) {
+                firstFailure = failure;
+            }
+            if (++failed == started && !won) {
+                first.completeExceptionally(firstFailure);
+            }
+        }
+    }
+
+    /**
+     * Point-in-time hedging counters.
+     *
+     * @param enabled whether hedging is enabled
+     * @param calls upstream generations eligible for hedging
+     * @param hedges hedge calls sent
+     * @param wins hedge calls that answered before the original call
+     * @param skipped hedge calls not sent because the budget or the connection headroom was exhausted
+     * @param hedgeRate hedges sent per call
+     * @param winRate wins per hedge sent
+     * @param delayMillis the current hedge delay, or {@code null} if calls are not hedged yet
+     */
+    public record Stats(boolean enabled, long calls, long hedges, long wins, long skipped, double hedgeRate,
+                        double winRate, Long delayMillis) {
+    }
+}
@@ -0,0 +1,163 @@
+package org.osa.directsupplyrecipe.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of upstream instruction generations that run at the same time.
+ *
+ * Generations run on a dedicated pool of {@code instruction.generation.max-concurrent} threads, so a slow
+ * model never holds servlet threads and the catalog endpoints keep serving during a traffic spike. Up to
+ * {@code instruction.generation.queue-capacity} further generations wait in a FIFO queue. Beyond that,
+ * {@link #submit(Supplier)} fails fast with a {@link GenerationRejectedException} carrying the configured
+ * {@code instruction.generation.retry-after} hint instead of queueing without bound.
+ *
+ * Running, queued and rejected generations are published as {@code recipe.instructions.generation.*} meters.
+ */
+@Slf4j
+@Component
+public class GenerationLimiter implements MeterBinder {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration retryAfter;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Constructs a GenerationLimiter.
+     *
+     * @param maxConcurrent the maximum number of generations running at once
+     * @param queueCapacity the maximum number of generations waiting for a free slot
+     * @param retryAfter how long rejected clients are asked to wait before retrying
+     */
+    public GenerationLimiter(@Value("${instruction.generation.max-concurrent:8}") int maxConcurrent,
+                             @Value("${instruction.generation.queue-capacity:32}") int queueCapacity,
+                             @Value("${instruction.generation.retry-after:5s}") Duration retryAfter) {
+        if (maxConcurrent <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("max-concurrent must be > 0 and queue-capacity must be >= 0");
+        }
+        // A queue capacity of 0 means "no waiting": hand off directly or reject
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                queueCapacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("instruction-generation-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Schedules a generation, or rejects it immediately when all slots are busy and the queue is full.
+     *
+     * @param task the generation to run on a generation thread
+     * @param <T> the result type
+     * @return a future completed with the result, or exceptionally with the task's exception
+     * @throws GenerationRejectedException if the limiter is saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        Task<T> queued = new Task<>(task);
+        try {
+            executor.execute(queued);
+            return queued.result;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            log.warn("Instruction generation rejected: {} running, {} queued", executor.getActiveCount(),
+                    executor.getQueue().size());
+            throw new GenerationRejectedException(retryAfter);
+        }
+    }
+
+    /**
+     * Returns the number of generations currently running.
+     *
+     * @return the running generation count
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Returns the number of generations waiting for a free slot.
+     *
+     * @return the queued generation count
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of generations rejected since startup.
+     *
+     * @return the rejected generation count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Publishes the running and queued generation counts and the rejection count as meters.
+     *
+     * @param registry the registry to publish the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("recipe.instructions.generation.active", this, GenerationLimiter::getActiveCount)
+                .register(registry);
+        Gauge.builder("recipe.instructions.generation.queued", this, GenerationLimiter::getQueuedCount)
+                .register(registry);
+        FunctionCounter.builder("recipe.instructions.generation.rejected", rejected, AtomicLong::get)
+                .register(registry);
+    }
+
+    /**
+     * Stops accepting generations and interrupts running ones on shutdown. Queued generations are dropped and
+     * their futures fail with a {@link RejectedExecutionException}, so no caller waits for them forever.
+     */
+    @PreDestroy
+    public void close() {
+        List<Runnable> dropped = executor.shutdownNow();
+        for (Runnable task : dropped) {
+            if (task instanceof Task<?> queued) {
+                queued.result.completeExceptionally(
+                        new RejectedExecutionException("Instruction generation limiter closed"));
+            }
+        }
+    }
+
+    /**
+     * A generation and the future of its result, completed when it runs or when it is dropped on shutdown.
+     */
+    private static final class Task<T> implements Runnable {
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Task(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(supplier.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+            }
+        }
+    }
+}
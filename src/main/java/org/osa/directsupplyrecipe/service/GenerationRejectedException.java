@@ -0,0 +1,31 @@
+package org.osa.directsupplyrecipe.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an instruction generation cannot be scheduled because the {@link GenerationLimiter}
+ * is saturated. Carries the delay after which the client should retry.
+ */
+public class GenerationRejectedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    /**
+     * Constructs a GenerationRejectedException.
+     *
+     * @param retryAfter how long the client should wait before retrying
+     */
+    public GenerationRejectedException(Duration retryAfter) {
+        super("Too many instruction generations in progress; retry after " + retryAfter.toSeconds() + "s");
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Returns how long the client should wait before retrying.
+     *
+     * @return the retry delay
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,488 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.RecipeContentHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier cache for generated recipe instructions.
+ *
+ * Entries are keyed by the recipe content hash, the model identifier and the prompt version
+ * (see {@link #keyFor(Recipe, String)}), so an edited recipe, a model switch or a prompt change
+ * naturally misses. The memory tier is an access-ordered LRU bounded by
+ * {@code instruction.cache.max-size}; entries older than {@code instruction.cache.ttl} are
+ * dropped on access.
+ *
+ * When {@code instruction.cache.disk-path} is set, every put is also appended as one JSON line
+ * to that file. Only the byte offsets of the disk records are kept in memory, oldest first and
+ * bounded by {@code instruction.cache.disk-max-size}; a memory miss reads the single record back
+ * and promotes it. Expired records are dropped from the head of the index as new ones are
+ * appended. On startup the file is scanned to rebuild the offset index: a torn, unterminated last
+ * line from a crash is truncated, while a complete line that does not parse is skipped and left as
+ * a dead record. Whenever superseded, deleted, expired or evicted records outnumber
+ * live ones the file is compacted, at startup or while running.
+ *
+ * Hit, miss and eviction counters are exposed through {@link #stats()} and, as a {@link MeterBinder},
+ * as {@code recipe.instructions.cache.*} meters.
+ */
+@Slf4j
+@Component
+public class InstructionCache implements MeterBinder {
+
+    private final int maxSize;
+    private final int diskMaxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final ObjectMapper objectMapper;
+
+    private final LinkedHashMap<String, Entry> memory;
+    private final Object diskLock = new Object();
+    private final LinkedHashMap<String, DiskSlot> diskIndex = new LinkedHashMap<>();
+    private final Path diskPath;
+    private FileChannel diskChannel;
+    private long diskEnd;
+    private long diskRecords;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an InstructionCache backed by the system clock.
+     *
+     * @param maxSize the maximum number of entries kept in memory
+     * @param ttl how long an entry stays valid after it was generated
+     * @param diskPath the append-only file backing the disk tier; blank disables the disk tier
+     * @param diskMaxSize the maximum number of entries indexed on disk
+     * @param objectMapper the mapper used to (de)serialize disk records
+     */
+    @Autowired
+    public InstructionCache(@Value("${instruction.cache.max-size:10000}") int maxSize,
+                            @Value("${instruction.cache.ttl:24h}") Duration ttl,
+                            @Value("${instruction.cache.disk-path:}") String diskPath,
+                            @Value("${instruction.cache.disk-max-size:100000}") int diskMaxSize,
+                            ObjectMapper objectMapper) {
+        this(maxSize, ttl, diskPath, diskMaxSize, objectMapper, Clock.systemUTC());
+    }
+
+    InstructionCache(int maxSize, Duration ttl, String diskPath, int diskMaxSize, ObjectMapper objectMapper,
+                     Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("instruction.cache.max-size must be positive");
+        }
+        if (diskMaxSize <= 0) {
+            throw new IllegalArgumentException("instruction.cache.disk-max-size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.diskMaxSize = diskMaxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > InstructionCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.diskPath = diskPath == null || diskPath.isBlank() ? null : Path.of(diskPath);
+        if (this.diskPath != null) {
+            openDiskTier();
+        }
+    }
+
+    /**
+     * Builds the cache key for the given recipe and model.
+     *
+     * @param recipe the recipe whose instructions are cached
+     * @param model the model identifier used to generate the instructions
+     * @return a key combining the recipe content hash, the model and the prompt version
+     */
+    public String keyFor(Recipe recipe, String model) {
+        return RecipeContentHash.of(recipe) + ':' + model + ':' + InstructionPromptBuilder.PROMPT_VERSION;
+    }
+
+    /**
+     * Looks up cached instructions, consulting the disk tier on a memory miss.
+     *
+     * @param key the cache key produced by {@link #keyFor(Recipe, String)}
+     * @return the cached steps, or an empty {@code Optional} if absent or expired
+     */
+    public Optional<List<String>> get(String key) {
+        long now = clock.millis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (!isExpired(entry.createdAt(), now)) {
+                    hits.increment();
+                    return Optional.of(entry.steps());
+                }
+                memory.remove(key);
+                evictions.increment();
+            }
+        }
+
+        Entry fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            synchronized (memory) {
+                memory.put(key, fromDisk);
+            }
+            hits.increment();
+            diskHits.increment();
+            return Optional.of(fromDisk.steps());
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Checks whether unexpired instructions are cached under the given key, in either tier, without
+     * reading them from disk, promoting them or counting a lookup.
+     *
+     * @param key the cache key produced by {@link #keyFor(Recipe, String)}
+     * @return whether a {@link #get(String)} would currently hit
+     */
+    public boolean contains(String key) {
+        long now = clock.millis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null && !isExpired(entry.createdAt(), now)) {
+                return true;
+            }
+        }
+        synchronized (diskLock) {
+            DiskSlot slot = diskIndex.get(key);
+            return slot != null && !isExpired(slot.createdAt(), now);
+        }
+    }
+
+    /**
+     * Stores generated instructions under the given key in memory and, if enabled, on disk.
+     *
+     * @param key the cache key produced by {@link #keyFor(Recipe, String)}
+     * @param steps the generated instruction steps
+     */
+    public void put(String key, List<String> steps) {
+        Entry entry = new Entry(List.copyOf(steps), clock.millis());
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        appendToDisk(new DiskRecord(key, entry.createdAt(), entry.steps()));
+    }
+
+    /**
+     * Removes the entry for the given key from both tiers.
+     *
+     * @param key the cache key to invalidate
+     */
+    public void invalidate(String key) {
+        synchronized (memory) {
+            memory.remove(key);
+        }
+        synchronized (diskLock) {
+            if (diskIndex.remove(key) != null) {
+                appendToDisk(new DiskRecord(key, clock.millis(), null));
+            }
+        }
+    }
+
+    /**
+     * Publishes the cache counters and sizes as meters. Lookups are counted by {@code result}: {@code hit}
+     * (including disk hits, which are also counted separately as {@code disk_hit}) or {@code miss}.
+     *
+     * @param registry the registry to publish the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("recipe.instructions.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("recipe.instructions.cache.requests", diskHits, LongAdder::sum)
+                .tag("result", "disk_hit").register(registry);
+        FunctionCounter.builder("recipe.instructions.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("recipe.instructions.cache.evictions", evictions, LongAdder::sum).register(registry);
+        Gauge.builder("recipe.instructions.cache.size", this, cache -> cache.stats().memorySize())
+                .tag("tier", "memory").register(registry);
+        Gauge.builder("recipe.instructions.cache.size", this, cache -> cache.stats().diskSize())
+                .tag("tier", "disk").register(registry);
+    }
+
+    /**
+     * Returns a point-in-time snapshot of the cache counters.
+     *
+     * @return the current hit, miss and eviction counts and tier sizes
+     */
+    public Stats stats() {
+        int memorySize;
+        synchronized (memory) {
+            memorySize = memory.size();
+        }
+        int diskSize;
+        synchronized (diskLock) {
+            diskSize = diskIndex.size();
+        }
+        return new Stats(hits.sum(), diskHits.sum(), misses.sum(), evictions.sum(), memorySize, diskSize);
+    }
+
+    /**
+     * Closes the disk tier file, if open.
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (diskLock) {
+            if (diskChannel != null) {
+                try {
+                    diskChannel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close instruction cache file {}: {}", diskPath, e.getMessage());
+                }
+                diskChannel = null;
+            }
+        }
+    }
+
+    private boolean isExpired(long createdAt, long now) {
+        return now - createdAt >= ttlMillis;
+    }
+
+    private Entry readFromDisk(String key, long now) {
+        synchronized (diskLock) {
+            if (diskChannel == null) {
+                return null;
+            }
+            DiskSlot slot = diskIndex.get(key);
+            if (slot == null) {
+                return null;
+            }
+            if (isExpired(slot.createdAt(), now)) {
+                diskIndex.remove(key);
+                evictions.increment();
+                return null;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(slot.length());
+                while (buffer.hasRemaining()) {
+                    if (diskChannel.read(buffer, slot.offset() + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                }
+                DiskRecord record = objectMapper.readValue(buffer.array(), DiskRecord.class);
+                return new Entry(List.copyOf(record.steps()), record.createdAt());
+            } catch (IOException e) {
+                log.warn("Failed to read instruction cache record for {}: {}", key, e.getMessage());
+                diskIndex.remove(key);
+                return null;
+            }
+        }
+    }
+
+    private void appendToDisk(DiskRecord record) {
+        synchronized (diskLock) {
+            if (diskChannel == null) {
+                return;
+            }
+            try {
+                byte[] line = objectMapper.writeValueAsBytes(record);
+                ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+                long offset = diskEnd;
+                while (buffer.hasRemaining()) {
+                    diskEnd += diskChannel.write(buffer, diskEnd);
+                }
+                diskRecords++;
+                if (record.steps() != null) {
+                    // Re-inserted at the tail, so the index stays ordered oldest first
+                    diskIndex.remove(record.key());
+                    diskIndex.put(record.key(), new DiskSlot(offset, line.length, record.createdAt()));
+                }
+                evictFromDiskIndex(clock.millis());
+            } catch (IOException e) {
+                log.warn("Failed to append instruction cache record for {}: {}", record.key(), e.getMessage());
+                return;
+            }
+            if (diskRecords - diskIndex.size() > diskIndex.size()) {
+                compactOpenDiskTier();
+            }
+        }
+    }
+
+    /**
+     * Compacts the disk file while the cache is running. The file is closed for the rewrite and reopened
+     * afterwards; if the rewrite fails the original file and index are kept.
+     */
+    private void compactOpenDiskTier() {
+        try {
+            diskChannel.close();
+            compactDiskTier();
+        } catch (IOException e) {
+            log.warn("Failed to compact instruction cache file {}: {}", diskPath, e.getMessage());
+        }
+        try {
+            diskChannel = FileChannel.open(diskPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            diskChannel = null;
+            log.warn("Failed to reopen instruction cache file {}, disk tier disabled: {}", diskPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops expired entries and, beyond {@code instruction.cache.disk-max-size}, the oldest ones from the
+     * disk index. Their records stay in the file as dead records until the next compaction.
+     */
+    private void evictFromDiskIndex(long now) {
+        Iterator<DiskSlot> oldestFirst = diskIndex.values().iterator();
+        while (oldestFirst.hasNext()) {
+            DiskSlot oldest = oldestFirst.next();
+            if (diskIndex.size() <= diskMaxSize && !isExpired(oldest.createdAt(), now)) {
+                return;
+            }
+            oldestFirst.remove();
+            evictions.increment();
+        }
+    }
+
+    private void openDiskTier() {
+        try {
+            Path parent = diskPath.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            diskRecords = loadDiskIndex();
+            evictFromDiskIndex(clock.millis());
+            if (diskRecords - diskIndex.size() > diskIndex.size()) {
+                compactDiskTier();
+            }
+            diskChannel = FileChannel.open(diskPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            diskChannel.truncate(diskEnd);
+            log.info("Instruction cache disk tier {} opened with {} entries", diskPath, diskIndex.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open instruction cache file " + diskPath, e);
+        }
+    }
+
+    /**
+     * Scans the disk file and rebuilds the key to offset index. Only an unterminated last line is excluded
+     * from {@link #diskEnd}, so that it is truncated; a corrupt complete line is skipped.
+     *
+     * @return the number of complete records read (live, superseded, deleted and corrupt)
+     */
+    private int loadDiskIndex() throws IOException {
+        diskEnd = 0;
+        if (!Files.exists(diskPath)) {
+            return 0;
+        }
+        long now = clock.millis();
+        int records = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(diskPath), 1 << 16)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+            long offset = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                DiskRecord record;
+                try {
+                    record = objectMapper.readValue(line.toByteArray(), DiskRecord.class);
+                } catch (IOException e) {
+                    log.warn("Skipping corrupt instruction cache record at offset {}", offset);
+                    record = null;
+                }
+                records++;
+                if (record != null) {
+                    diskIndex.remove(record.key());
+                    if (record.steps() != null && !isExpired(record.createdAt(), now)) {
+                        diskIndex.put(record.key(), new DiskSlot(offset, line.size(), record.createdAt()));
+                    }
+                }
+                offset += line.size() + 1;
+                diskEnd = offset;
+                line.reset();
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Rewrites the disk file so it contains only live records, in index order, then atomically replaces it.
+     * The caller must hold {@code diskLock} and have closed {@link #diskChannel}.
+     */
+    private void compactDiskTier() throws IOException {
+        Path compacted = diskPath.resolveSibling(diskPath.getFileName() + ".compact");
+        Map<String, DiskSlot> newIndex = new LinkedHashMap<>();
+        long newEnd = 0;
+        try (FileChannel source = FileChannel.open(diskPath, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<String, DiskSlot> e : diskIndex.entrySet()) {
+                DiskSlot slot = e.getValue();
+                long copied = source.transferTo(slot.offset(), slot.length() + 1L, target);
+                newIndex.put(e.getKey(), new DiskSlot(newEnd, slot.length(), slot.createdAt()));
+                newEnd += copied;
+            }
+            target.force(true);
+        }
+        Files.move(compacted, diskPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        diskIndex.clear();
+        diskIndex.putAll(newIndex);
+        diskEnd = newEnd;
+        diskRecords = newIndex.size();
+        log.info("Compacted instruction cache file {} to {} entries", diskPath, newIndex.size());
+    }
+
+    /**
+     * Point-in-time cache counters.
+     *
+     * @param hits lookups answered from either tier
+     * @param diskHits the subset of {@code hits} answered from the disk tier
+     * @param misses lookups that found no valid entry
+     * @param evictions entries dropped because of the size bound or TTL
+     * @param memorySize entries currently held in memory
+     * @param diskSize live entries currently indexed on disk
+     */
+    public record Stats(long hits, long diskHits, long misses, long evictions, int memorySize, int diskSize) {
+    }
+
+    private record Entry(List<String> steps, long createdAt) {
+    }
+
+    private record DiskSlot(long offset, int length, long createdAt) {
+    }
+
+    private record DiskRecord(String key, long createdAt, List<String> steps) {
+    }
+}
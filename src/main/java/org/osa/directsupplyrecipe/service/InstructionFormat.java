@@ -0,0 +1,20 @@
+package org.osa.directsupplyrecipe.service;
+
+import java.util.List;
+
+/**
+ * The response shape an {@link InstructionGenerator} is asked for, so generators that support structured
+ * output can constrain the model to it.
+ *
+ * Without keys, the response is a JSON array of steps. With keys, as for a
+ * {@link InstructionPromptBuilder#buildBatch(List) batch prompt}, it is a JSON object mapping every key to
+ * such an array. Every array has between {@code minSteps} and {@code maxSteps} steps of at most
+ * {@code maxStepLength} characters; see {@link InstructionValidator}.
+ *
+ * @param keys the keys of a batched response, or an empty list for a single array of steps
+ * @param minSteps the minimum number of steps per recipe
+ * @param maxSteps the maximum number of steps per recipe
+ * @param maxStepLength the maximum length of a step, in characters
+ */
+public record InstructionFormat(List<String> keys, int minSteps, int maxSteps, int maxStepLength) {
+}
@@ -0,0 +1,64 @@
+package org.osa.directsupplyrecipe.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Strategy for turning an instruction-generation prompt into the raw model response text.
+ *
+ * Implementations are selected with the {@code instruction.generator} property:
+ * {@code gemini} (the default) calls the Gemini API, {@code stub} returns deterministic
+ * output locally for benchmarks and load tests. Implementations must be thread-safe.
+ *
+ * Callers pass the expected {@link InstructionFormat} to the format-aware methods; implementations that support
+ * structured output override them to constrain the response, the others rely on the prompt wording.
+ */
+public interface InstructionGenerator {
+
+    /**
+     * Generates the raw response text for the given prompt.
+     *
+     * @param model the model identifier to generate with
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @return the raw response text, expected to contain a JSON array of steps
+     */
+    String generate(String model, String promptText);
+
+    /**
+     * Generates the response for the given prompt, delivering text chunks as they arrive.
+     * The concatenation of all chunks equals the full response text. The default
+     * implementation delivers the result of {@link #generate(String, String)} as one chunk.
+     *
+     * @param model the model identifier to generate with
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @param onChunk receives each chunk of response text, in order, on the calling thread
+     */
+    default void generateStream(String model, String promptText, Consumer<String> onChunk) {
+        onChunk.accept(generate(model, promptText));
+    }
+
+    /**
+     * Generates the raw response text for the given prompt, in the given format if the implementation can
+     * enforce it. The default implementation ignores the format and calls {@link #generate(String, String)}.
+     *
+     * @param model the model identifier to generate with
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @param format the expected response shape
+     * @return the raw response text
+     */
+    default String generate(String model, String promptText, InstructionFormat format) {
+        return generate(model, promptText);
+    }
+
+    /**
+     * Streams the response for the given prompt, in the given format if the implementation can enforce it.
+     * The default implementation ignores the format and calls {@link #generateStream(String, String, Consumer)}.
+     *
+     * @param model the model identifier to generate with
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @param format the expected response shape
+     * @param onChunk receives each chunk of response text, in order, on the calling thread
+     */
+    default void generateStream(String model, String promptText, InstructionFormat format, Consumer<String> onChunk) {
+        generateStream(model, promptText, onChunk);
+    }
+}
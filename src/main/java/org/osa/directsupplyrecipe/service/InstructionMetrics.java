@@ -0,0 +1,214 @@
+package org.osa.directsupplyrecipe.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer instrumentation of the instruction generation hot path.
+ *
+ * Every meter is named {@code recipe.instructions.*}, so percentile histograms can be enabled for all of
+ * them with a single {@code management.metrics.distribution.percentiles-histogram.recipe.instructions}
+ * property. Stages are timed separately so a slow request can be attributed to prompt building, the
+ * upstream model call or response parsing:
+ * - {@code recipe.instructions.prompt.build}: time to build the prompt.
+ * - {@code recipe.instructions.generate}: upstream call latency, tagged with {@code mode} (blocking or stream)
+ *   and {@code outcome}: success, empty (the call returned without any text, e.g. a blocked candidate) or error
+ *   (the call failed).
+ * - {@code recipe.instructions.parse}: time to parse a complete response.
+ * - {@code recipe.instructions.parse.fallback}: responses with no usable JSON array.
+ * - {@code recipe.instructions.invalid}: results rejected by {@link InstructionValidator}, tagged with
+ *   {@code reason}; they are never cached.
+ * - {@code recipe.instructions.retries}: generations repeated because the previous result was invalid.
+ * - {@code recipe.instructions.prompt.size} and {@code recipe.instructions.response.size}: sizes in characters.
+ * - {@code recipe.instructions.tokens}: token usage reported by the model, tagged with {@code type}
+ *   (prompt or candidates).
+ * - {@code recipe.instructions.batch.size}: recipes per batched model call.
+ * - {@code recipe.instructions.batch.retries}: recipes missing from a batched response, retried individually.
+ */
+@Component
+public class InstructionMetrics {
+
+    /**
+     * {@code mode} tag of a generation whose full response is awaited.
+     */
+    public static final String MODE_BLOCKING = "blocking";
+
+    /**
+     * {@code mode} tag of a generation whose response is streamed.
+     */
+    public static final String MODE_STREAM = "stream";
+
+    /**
+     * {@code outcome} tag of a call that returned text.
+     */
+    public static final String OUTCOME_SUCCESS = "success";
+
+    /**
+     * {@code outcome} tag of a call that returned normally without any text.
+     */
+    public static final String OUTCOME_EMPTY = "empty";
+
+    /**
+     * {@code outcome} tag of a call that failed.
+     */
+    public static final String OUTCOME_ERROR = "error";
+
+    private static final String PREFIX = "recipe.instructions";
+
+    private final MeterRegistry registry;
+    private final Timer promptBuild;
+    private final Timer parse;
+    private final Counter parseFallbacks;
+    private final DistributionSummary promptSize;
+    private final DistributionSummary responseSize;
+    private final DistributionSummary promptTokens;
+    private final DistributionSummary candidateTokens;
+    private final DistributionSummary batchSize;
+    private final Counter batchRetries;
+    private final Counter retries;
+
+    /**
+     * Constructs an InstructionMetrics instance and registers its meters.
+     *
+     * @param registry the registry to publish the meters to
+     */
+    public InstructionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.promptBuild = Timer.builder(PREFIX + ".prompt.build")
+                .description("Time to build an instruction prompt")
+                .register(registry);
+        this.parse = Timer.builder(PREFIX + ".parse")
+                .description("Time to parse a model response into instruction steps")
+                .register(registry);
+        this.parseFallbacks = Counter.builder(PREFIX + ".parse.fallback")
+                .description("Model responses without a usable JSON array")
+                .register(registry);
+        this.promptSize = DistributionSummary.builder(PREFIX + ".prompt.size")
+                .description("Prompt length")
+                .baseUnit("characters")
+                .register(registry);
+        this.responseSize = DistributionSummary.builder(PREFIX + ".response.size")
+                .description("Raw model response length")
+                .baseUnit("characters")
+                .register(registry);
+        this.promptTokens = tokens("prompt");
+        this.candidateTokens = tokens("candidates");
+        this.batchSize = DistributionSummary.builder(PREFIX + ".batch.size")
+                .description("Recipes per batched model call")
+                .baseUnit("recipes")
+                .register(registry);
+        this.batchRetries = Counter.builder(PREFIX + ".batch.retries")
+                .description("Recipes missing from a batched response and retried individually")
+                .register(registry);
+        this.retries = Counter.builder(PREFIX + ".retries")
+                .description("Generations repeated because the previous result was invalid")
+                .register(registry);
+    }
+
+    /**
+     * Starts timing a stage; pass the sample to one of the {@code record} methods when it ends.
+     *
+     * @return a running timer sample
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Records a completed prompt build.
+     *
+     * @param sample the sample started before building
+     * @param prompt the built prompt
+     */
+    public void recordPromptBuild(Timer.Sample sample, String prompt) {
+        sample.stop(promptBuild);
+        promptSize.record(prompt.length());
+    }
+
+    /**
+     * Records a completed upstream call.
+     *
+     * @param sample the sample started before the call
+     * @param mode {@link #MODE_BLOCKING} or {@link #MODE_STREAM}
+     * @param succeeded whether the call returned normally
+     * @param response the raw response; {@code null} or empty if the call failed or returned no text
+     */
+    public void recordGenerate(Timer.Sample sample, String mode, boolean succeeded, CharSequence response) {
+        boolean empty = response == null || response.isEmpty();
+        sample.stop(Timer.builder(PREFIX + ".generate")
+                .description("Upstream model call latency")
+                .tag("mode", mode)
+                .tag("outcome", !succeeded ? OUTCOME_ERROR : empty ? OUTCOME_EMPTY : OUTCOME_SUCCESS)
+                .register(registry));
+        if (succeeded) {
+            responseSize.record(empty ? 0 : response.length());
+        }
+    }
+
+    /**
+     * Records a completed parse of a full response.
+     *
+     * @param sample the sample started before parsing
+     * @param fellBack whether the response had no usable JSON array
+     */
+    public void recordParse(Timer.Sample sample, boolean fellBack) {
+        sample.stop(parse);
+        if (fellBack) {
+            parseFallbacks.increment();
+        }
+    }
+
+    /**
+     * Records the token usage reported by the model for one call; unknown counts are skipped.
+     *
+     * @param prompt the prompt token count, or {@code null}
+     * @param candidates the generated token count, or {@code null}
+     */
+    public void recordTokens(Integer prompt, Integer candidates) {
+        if (prompt != null) {
+            promptTokens.record(prompt);
+        }
+        if (candidates != null) {
+            candidateTokens.record(candidates);
+        }
+    }
+
+    /**
+     * Records a batched model call and how many of its recipes had to be retried individually.
+     *
+     * @param size the number of recipes in the batch
+     * @param retried the number of recipes without usable steps in the response
+     */
+    public void recordBatch(int size, int retried) {
+        batchSize.record(size);
+        batchRetries.increment(retried);
+    }
+
+    /**
+     * Records a generation result rejected by the {@link InstructionValidator}.
+     *
+     * @param reason the {@link InstructionValidator.Violation#tag() violation tag}
+     * @param retried whether the generation is attempted again
+     */
+    public void recordInvalid(String reason, boolean retried) {
+        Counter.builder(PREFIX + ".invalid")
+                .description("Generated instructions rejected by validation")
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+        if (retried) {
+            retries.increment();
+        }
+    }
+
+    private DistributionSummary tokens(String type) {
+        return DistributionSummary.builder(PREFIX + ".tokens")
+                .description("Model token usage per call")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .register(registry);
+    }
+}
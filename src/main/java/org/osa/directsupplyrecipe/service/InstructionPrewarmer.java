@@ -0,0 +1,331 @@
+package org.osa.directsupplyrecipe.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.utils.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Generates instructions for the whole catalog ahead of demand, so that after a deploy or a catalog
+ * update no user pays the multi-second model latency for a recipe.
+ *
+ * A run walks every recipe with {@code instruction.prewarm.parallelism} workers. Recipes whose instructions
+ * are already cached are skipped without a model call; the others are generated through
+ * {@link RecipeService}, so they share its cache and {@link GenerationLimiter} with live traffic. Each worker
+ * claims up to {@code instruction.batch.max-size} uncached recipes at a time and submits them together, so they
+ * share one model call. Model calls, not recipes, are paced by a token bucket of {@code instruction.prewarm.rate}
+ * per second with bursts of up to {@code instruction.prewarm.burst}: a group costs one token. A rejection by a
+ * saturated limiter is retried after its {@code Retry-After} delay. Failed recipes are counted and left for the
+ * next run.
+ *
+ * Because finished recipes are skipped, a run is resumable: after a crash, the next run only generates what
+ * is not cached yet. This relies on the cache surviving the restart, i.e. on {@code instruction.cache.disk-path},
+ * and on the cache being large enough for the catalog.
+ *
+ * A run starts when the application is ready if {@code instruction.prewarm.on-startup} is set, or on demand
+ * with {@code POST /admin/prewarm}. While a startup run is in progress this bean reports
+ * {@code OUT_OF_SERVICE} as a health indicator, which keeps the readiness probe failing until the cache is
+ * warm. Progress is published as {@code recipe.instructions.prewarm.*} meters.
+ */
+@Slf4j
+@Component
+public class InstructionPrewarmer implements MeterBinder, HealthIndicator {
+
+    private final RecipeService recipeService;
+    private final int parallelism;
+    private final double rate;
+    private final int burst;
+    private final boolean onStartup;
+    private volatile Run current;
+
+    /**
+     * Constructs an InstructionPrewarmer.
+     *
+     * @param recipeService the service generating and caching instructions
+     * @param parallelism the number of workers, each generating up to one batch of recipes at a time
+     * @param rate the maximum number of model calls started per second
+     * @param burst the number of model calls that may start at once before the rate applies
+     * @param onStartup whether to start a run, gating readiness, when the application is ready
+     */
+    public InstructionPrewarmer(RecipeService recipeService,
+                                @Value("${instruction.prewarm.parallelism:4}") int parallelism,
+                                @Value("${instruction.prewarm.rate:2}") double rate,
+                                @Value("${instruction.prewarm.burst:4}") int burst,
+                                @Value("${instruction.prewarm.on-startup:false}") boolean onStartup) {
+        if (parallelism <= 0 || rate <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("instruction.prewarm parallelism, rate and burst must be positive");
+        }
+        this.recipeService = recipeService;
+        this.parallelism = parallelism;
+        this.rate = rate;
+        this.burst = burst;
+        this.onStartup = onStartup;
+    }
+
+    /**
+     * Starts a readiness-gating run once the application is ready, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarmOnStartup() {
+        if (onStartup) {
+            start(true);
+        }
+    }
+
+    /**
+     * Starts a run in the background, unless one is already in progress. Runs started this way do not
+     * affect readiness.
+     *
+     * @return whether a new run was started
+     */
+    public boolean start() {
+        return start(false);
+    }
+
+    /**
+     * Asks the run in progress, if any, to stop; generations already started still complete.
+     *
+     * @return whether a run was in progress
+     */
+    public boolean cancel() {
+        Run run = current;
+        if (run == null || run.finishedAt != null) {
+            return false;
+        }
+        run.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Returns the progress of the current or last run.
+     *
+     * @return the run status, in state {@code IDLE} if no run has been started
+     */
+    public PrewarmStatus status() {
+        Run run = current;
+        if (run == null) {
+            return new PrewarmStatus(PrewarmStatus.State.IDLE, 0, 0, 0, 0, null, null);
+        }
+        return run.status();
+    }
+
+    /**
+     * Reports {@code OUT_OF_SERVICE} while a startup run is in progress, {@code UP} otherwise, with the
+     * run status as details.
+     *
+     * @return the pre-warm health
+     */
+    @Override
+    public Health health() {
+        Run run = current;
+        PrewarmStatus status = status();
+        Health.Builder health = run != null && run.gatesReadiness && status.state() == PrewarmStatus.State.RUNNING
+                ? Health.outOfService() : Health.up();
+        return health.withDetail("state", status.state())
+                .withDetail("total", status.total())
+                .withDetail("progress", status.getProgress())
+                .build();
+    }
+
+    /**
+     * Publishes the progress of the current or last run as {@code recipe.instructions.prewarm.recipes}
+     * gauges tagged by {@code status} (total, already_warm, generated, failed) and a
+     * {@code recipe.instructions.prewarm.progress} ratio.
+     *
+     * @param registry the registry to publish the meters to
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        recipesGauge(registry, "total", PrewarmStatus::total);
+        recipesGauge(registry, "already_warm", PrewarmStatus::alreadyWarm);
+        recipesGauge(registry, "generated", PrewarmStatus::generated);
+        recipesGauge(registry, "failed", PrewarmStatus::failed);
+        Gauge.builder("recipe.instructions.prewarm.progress", this, prewarmer -> prewarmer.status().getProgress())
+                .description("Fraction of the catalog visited by the current or last pre-warm run")
+                .register(registry);
+    }
+
+    /**
+     * Cancels the run in progress on shutdown and interrupts its workers, so none keeps waiting for a
+     * generation that the shutting-down {@link GenerationLimiter} will not run.
+     */
+    @PreDestroy
+    public void close() {
+        cancel();
+        Run run = current;
+        if (run != null) {
+            run.workers.shutdownNow();
+        }
+    }
+
+    private synchronized boolean start(boolean gatesReadiness) {
+        Run running = current;
+        if (running != null && running.finishedAt == null) {
+            return false;
+        }
+        List<Recipe> recipes = recipeService.getRecipes();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                new CustomizableThreadFactory("instruction-prewarm-"));
+        Run run = new Run(recipes, gatesReadiness, workers);
+        current = run;
+        log.info("Pre-warming instructions for {} recipes with parallelism {} at {}/s", recipes.size(),
+                parallelism, rate);
+
+        TokenBucket bucket = new TokenBucket(rate, burst);
+        CompletableFuture<?>[] done = new CompletableFuture<?>[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            done[i] = CompletableFuture.runAsync(() -> work(run, bucket), workers);
+        }
+        CompletableFuture.allOf(done).whenComplete((ignored, failure) -> {
+            workers.shutdown();
+            run.finishedAt = Instant.now();
+            if (failure != null) {
+                log.error("Instruction pre-warm stopped unexpectedly", failure);
+            }
+            PrewarmStatus status = run.status();
+            log.info("Instruction pre-warm {}: {} already warm, {} generated, {} failed of {}",
+                    status.state().name().toLowerCase(), status.alreadyWarm(), status.generated(), status.failed(),
+                    status.total());
+        });
+        return true;
+    }
+
+    /**
+     * Claims groups of up to one batch of uncached recipes until the catalog is exhausted or the run is
+     * cancelled. A group costs one token, as its recipes are submitted together and share one model call.
+     */
+    private void work(Run run, TokenBucket bucket) {
+        int groupSize = recipeService.getPrewarmBatchSize();
+        List<Recipe> group = new ArrayList<>(groupSize);
+        while (!run.cancelled) {
+            group.clear();
+            int index;
+            while (group.size() < groupSize && (index = run.next.getAndIncrement()) < run.recipes.size()) {
+                Recipe recipe = run.recipes.get(index);
+                if (recipeService.hasCachedInstructions(recipe)) {
+                    run.alreadyWarm.increment();
+                } else {
+                    group.add(recipe);
+                }
+            }
+            if (group.isEmpty()) {
+                return;
+            }
+            try {
+                bucket.acquire();
+                warm(run, group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Submits a group of recipes without waiting between them, so they reach the batcher together, then
+     * waits for each of them. The waits are interruptible, so {@link #close()} can stop a worker whose
+     * generations will never run.
+     */
+    private void warm(Run run, List<Recipe> group) throws InterruptedException {
+        List<CompletableFuture<List<String>>> results = new ArrayList<>(group.size());
+        for (Recipe recipe : group) {
+            results.add(submit(recipe));
+        }
+        for (int i = 0; i < group.size(); i++) {
+            await(run, group.get(i), results.get(i));
+        }
+    }
+
+    /**
+     * Waits for one recipe's generation, resubmitting it alone after each limiter rejection.
+     */
+    private void await(Run run, Recipe recipe, CompletableFuture<List<String>> result) throws InterruptedException {
+        while (true) {
+            try {
+                List<String> steps = result.get();
+                (steps.isEmpty() ? run.failed : run.generated).increment();
+                return;
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof GenerationRejectedException rejected)) {
+                    log.debug("Pre-warm of {} failed: {}", recipe.getTitle(), e.getCause().getMessage());
+                    run.failed.increment();
+                    return;
+                }
+                if (run.cancelled) {
+                    return;
+                }
+                Thread.sleep(rejected.getRetryAfter().toMillis());
+                result = submit(recipe);
+            }
+        }
+    }
+
+    /**
+     * Starts one recipe's generation, reporting a synchronous limiter rejection through the returned future.
+     */
+    private CompletableFuture<List<String>> submit(Recipe recipe) {
+        try {
+            return recipeService.prewarmInstructionsAsync(recipe);
+        } catch (GenerationRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void recipesGauge(MeterRegistry registry, String status, ToDoubleFunction<PrewarmStatus> value) {
+        Gauge.builder("recipe.instructions.prewarm.recipes", this, prewarmer -> value.applyAsDouble(prewarmer.status()))
+                .description("Recipes visited by the current or last pre-warm run")
+                .tag("status", status)
+                .register(registry);
+    }
+
+    /**
+     * The mutable state of one run.
+     */
+    private static final class Run {
+        private final List<Recipe> recipes;
+        private final boolean gatesReadiness;
+        private final ExecutorService workers;
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger next = new AtomicInteger();
+        private final LongAdder alreadyWarm = new LongAdder();
+        private final LongAdder generated = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private volatile boolean cancelled;
+        private volatile Instant finishedAt;
+
+        Run(List<Recipe> recipes, boolean gatesReadiness, ExecutorService workers) {
+            this.recipes = recipes;
+            this.gatesReadiness = gatesReadiness;
+            this.workers = workers;
+        }
+
+        PrewarmStatus status() {
+            Instant finished = finishedAt;
+            PrewarmStatus.State state = finished == null ? PrewarmStatus.State.RUNNING
+                    : cancelled ? PrewarmStatus.State.CANCELLED : PrewarmStatus.State.COMPLETED;
+            return new PrewarmStatus(state, recipes.size(), alreadyWarm.sum(), generated.sum(), failed.sum(),
+                    startedAt, finished);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.osa.directsupplyrecipe.service;
 import org.osa.directsupplyrecipe.model.Recipe;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * The {@code InstructionPromptBuilder} class is responsible for constructing
  * text prompts that serve as input for generating cooking instructions based on a given recipe.
@@ -12,6 +14,29 @@ import org.springframework.stereotype.Component;
 @Component
 public class InstructionPromptBuilder {
 
+    /**
+     * Version of the prompt template produced by {@link #build(Recipe)}.
+     * Bump this whenever the wording changes so cached instructions generated from the
+     * previous template are no longer served.
+     */
+    public static final String PROMPT_VERSION = "v1";
+
+    /**
+     * Prefix of the line introducing each recipe in a {@link #buildBatch(List) batch prompt},
+     * followed by the recipe's key.
+     */
+    public static final String BATCH_KEY_PREFIX = "Recipe key: ";
+
+    /**
+     * Prefix of the line holding a recipe's title.
+     */
+    static final String TITLE_PREFIX = "Recipe title: ";
+
+    /**
+     * Prefix of each line listing one of a recipe's ingredients.
+     */
+    static final String INGREDIENT_PREFIX = "- ";
+
     /**
      * Builds the instruction-generation prompt text for the provided recipe.
      *
@@ -26,8 +51,39 @@ public class InstructionPromptBuilder {
         sb.append("Each array element must be one step.\n");
         sb.append("Do not include numbers, titles, commentary, code fences, or any text outside the JSON array.\n");
         sb.append("Order steps from first to last.\n\n");
+        appendRecipe(sb, recipe);
+        return sb.toString();
+    }
 
-        sb.append("Recipe title: ")
+    /**
+     * Builds one prompt asking for the instructions of several recipes at once, so the fixed
+     * preamble and the model round trip are paid once per batch instead of once per recipe.
+     * The response is expected to be a JSON object mapping each recipe's key, its 1-based position
+     * in {@code recipes} as a string, to the JSON array of steps for that recipe.
+     *
+     * @param recipes the recipes to generate instructions for, in key order
+     * @return a formatted string serving as a prompt for generating cooking instructions for every recipe
+     */
+    public String buildBatch(List<Recipe> recipes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("You are an expert chef.\n");
+        sb.append("Create clear, complete cooking instructions for each of the ")
+          .append(recipes.size())
+          .append(" recipes below.\n");
+        sb.append("Return ONLY a valid JSON object. Its keys are the recipe keys given below, ")
+          .append("and each value is a JSON array of strings.\n");
+        sb.append("Each array element must be one step.\n");
+        sb.append("Do not include numbers, titles, commentary, code fences, or any text outside the JSON object.\n");
+        sb.append("Order steps from first to last.\n");
+        for (int i = 0; i < recipes.size(); i++) {
+            sb.append("\n").append(BATCH_KEY_PREFIX).append(i + 1).append("\n");
+            appendRecipe(sb, recipes.get(i));
+        }
+        return sb.toString();
+    }
+
+    private static void appendRecipe(StringBuilder sb, Recipe recipe) {
+        sb.append(TITLE_PREFIX)
           .append(recipe.getTitle() == null ? "" : recipe.getTitle())
           .append("\n");
         sb.append("Yield: ")
@@ -36,11 +92,10 @@ public class InstructionPromptBuilder {
         sb.append("Ingredients:\n");
         if (recipe.getIngredients() != null && !recipe.getIngredients().isEmpty()) {
             for (String ing : recipe.getIngredients()) {
-                sb.append("- ").append(ing).append("\n");
+                sb.append(INGREDIENT_PREFIX).append(ing).append("\n");
             }
         } else {
-            sb.append("- (none provided)\n");
+            sb.append(INGREDIENT_PREFIX).append("(none provided)\n");
         }
-        return sb.toString();
     }
 }
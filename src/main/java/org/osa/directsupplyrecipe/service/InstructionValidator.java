@@ -0,0 +1,121 @@
+package org.osa.directsupplyrecipe.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decides whether generated instructions are good enough to be served and cached.
+ *
+ * Instructions are valid when they parsed as a JSON array of between {@code instruction.validation.min-steps}
+ * and {@code instruction.validation.max-steps} steps, none of them blank or longer than
+ * {@code instruction.validation.max-step-length} characters. The same bounds are passed to generators as an
+ * {@link InstructionFormat}, so the model is asked for what will be accepted.
+ */
+@Component
+public class InstructionValidator {
+
+    private final int minSteps;
+    private final int maxSteps;
+    private final int maxStepLength;
+    private final InstructionFormat format;
+
+    /**
+     * Constructs an InstructionValidator.
+     *
+     * @param minSteps the minimum number of steps
+     * @param maxSteps the maximum number of steps
+     * @param maxStepLength the maximum length of a step, in characters
+     */
+    public InstructionValidator(@Value("${instruction.validation.min-steps:1}") int minSteps,
+                                @Value("${instruction.validation.max-steps:50}") int maxSteps,
+                                @Value("${instruction.validation.max-step-length:500}") int maxStepLength) {
+        if (minSteps <= 0 || maxSteps < minSteps || maxStepLength <= 0) {
+            throw new IllegalArgumentException(
+                    "instruction.validation needs 0 < min-steps <= max-steps and a positive max-step-length");
+        }
+        this.minSteps = minSteps;
+        this.maxSteps = maxSteps;
+        this.maxStepLength = maxStepLength;
+        this.format = new InstructionFormat(List.of(), minSteps, maxSteps, maxStepLength);
+    }
+
+    /**
+     * Checks parsed instructions against the configured bounds.
+     *
+     * @param steps the parsed steps, or {@code null} if the response could not be parsed
+     * @return the first violation found, or {@code null} if the steps are valid
+     */
+    public Violation validate(List<String> steps) {
+        if (steps == null) {
+            return Violation.UNPARSEABLE;
+        }
+        if (steps.size() < minSteps) {
+            return Violation.TOO_FEW_STEPS;
+        }
+        if (steps.size() > maxSteps) {
+            return Violation.TOO_MANY_STEPS;
+        }
+        for (String step : steps) {
+            if (step == null || step.isBlank()) {
+                return Violation.BLANK_STEP;
+            }
+            if (step.length() > maxStepLength) {
+                return Violation.STEP_TOO_LONG;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the format of a single recipe's instructions.
+     *
+     * @return a JSON array format within the configured bounds
+     */
+    public InstructionFormat format() {
+        return format;
+    }
+
+    /**
+     * Returns the format of a batched response for the given number of recipes, keyed {@code "1"} to
+     * {@code "n"} as in {@link InstructionPromptBuilder#buildBatch(List)}.
+     *
+     * @param recipes the number of recipes in the batch
+     * @return a JSON object format within the configured bounds
+     */
+    public InstructionFormat batchFormat(int recipes) {
+        List<String> keys = new ArrayList<>(recipes);
+        for (int i = 1; i <= recipes; i++) {
+            keys.add(String.valueOf(i));
+        }
+        return new InstructionFormat(List.copyOf(keys), minSteps, maxSteps, maxStepLength);
+    }
+
+    /**
+     * The reasons generated instructions are rejected.
+     */
+    public enum Violation {
+        /** The response contains no JSON array of strings. */
+        UNPARSEABLE,
+        /** Fewer steps than {@code instruction.validation.min-steps}, e.g. none. */
+        TOO_FEW_STEPS,
+        /** More steps than {@code instruction.validation.max-steps}. */
+        TOO_MANY_STEPS,
+        /** A step is empty or whitespace. */
+        BLANK_STEP,
+        /** A step is longer than {@code instruction.validation.max-step-length}. */
+        STEP_TOO_LONG;
+
+        /**
+         * Returns the metric tag value of this violation.
+         *
+         * @return the lowercase name
+         */
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
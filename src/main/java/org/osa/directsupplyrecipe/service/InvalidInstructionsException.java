@@ -0,0 +1,31 @@
+package org.osa.directsupplyrecipe.service;
+
+/**
+ * Thrown when the model did not produce valid instructions for a recipe within
+ * {@code instruction.generation.max-attempts} attempts. Nothing is cached, so a later request generates again.
+ */
+public class InvalidInstructionsException extends RuntimeException {
+
+    private final InstructionValidator.Violation violation;
+
+    /**
+     * Constructs an InvalidInstructionsException.
+     *
+     * @param title the title of the recipe
+     * @param violation the reason the last attempt was rejected
+     * @param attempts the number of attempts made
+     */
+    public InvalidInstructionsException(String title, InstructionValidator.Violation violation, int attempts) {
+        super("No valid instructions for " + title + " after " + attempts + " attempts: " + violation.tag());
+        this.violation = violation;
+    }
+
+    /**
+     * Returns the reason the last attempt was rejected.
+     *
+     * @return the violation of the last attempt
+     */
+    public InstructionValidator.Violation getViolation() {
+        return violation;
+    }
+}
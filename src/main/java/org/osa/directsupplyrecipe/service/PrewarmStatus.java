@@ -0,0 +1,41 @@
+package org.osa.directsupplyrecipe.service;
+
+import java.time.Instant;
+
+/**
+ * Progress of an {@link InstructionPrewarmer} run.
+ *
+ * @param state the run state
+ * @param total the number of recipes in the catalog when the run started
+ * @param alreadyWarm recipes whose instructions were already cached and were skipped
+ * @param generated recipes whose instructions were generated and cached by this run
+ * @param failed recipes whose generation failed or produced no steps; a later run retries them
+ * @param startedAt when the run started, or {@code null} if none has
+ * @param finishedAt when the run ended, or {@code null} if it has not
+ */
+public record PrewarmStatus(State state, int total, long alreadyWarm, long generated, long failed,
+                            Instant startedAt, Instant finishedAt) {
+
+    /**
+     * Returns the fraction of the catalog visited so far, between 0 and 1.
+     *
+     * @return the progress ratio
+     */
+    public double getProgress() {
+        return total == 0 ? 1 : Math.min(1, (double) (alreadyWarm + generated + failed) / total);
+    }
+
+    /**
+     * The lifecycle of a pre-warm run.
+     */
+    public enum State {
+        /** No run has been started. */
+        IDLE,
+        /** A run is walking the catalog. */
+        RUNNING,
+        /** The last run visited every recipe. */
+        COMPLETED,
+        /** The last run was cancelled before visiting every recipe. */
+        CANCELLED
+    }
+}
@@ -0,0 +1,77 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.osa.directsupplyrecipe.model.RecipeField;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes lists of recipes as a JSON array directly to an output stream with a streaming
+ * {@link JsonGenerator}, so large pages are never materialized as a single buffer or tree.
+ * Only the selected {@link RecipeField}s are written, which keeps list views (titles only)
+ * small on the wire.
+ */
+@Component
+public class RecipeJsonWriter {
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Constructs a RecipeJsonWriter.
+     *
+     * @param objectMapper the application mapper whose factory (and its buffer recycling) is reused
+     */
+    public RecipeJsonWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Writes the recipes as a JSON array of objects containing only the selected fields.
+     * The stream is flushed but not closed.
+     *
+     * @param recipes the recipes to write
+     * @param fields the fields to include in each object
+     * @param out the destination stream
+     * @throws IOException if writing to {@code out} fails
+     */
+    public void write(List<Recipe> recipes, Set<RecipeField> fields, OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (Recipe recipe : recipes) {
+                generator.writeStartObject();
+                if (fields.contains(RecipeField.TITLE)) {
+                    generator.writeStringField(RecipeField.TITLE.jsonName(), recipe.getTitle());
+                }
+                if (fields.contains(RecipeField.YIELD)) {
+                    generator.writeNumberField(RecipeField.YIELD.jsonName(), recipe.getYield());
+                }
+                if (fields.contains(RecipeField.INGREDIENTS)) {
+                    generator.writeFieldName(RecipeField.INGREDIENTS.jsonName());
+                    writeStrings(generator, recipe.getIngredients());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static void writeStrings(JsonGenerator generator, List<String> values) throws IOException {
+        if (values == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+}
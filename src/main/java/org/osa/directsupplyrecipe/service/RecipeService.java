@@ -1,45 +1,174 @@
 package org.osa.directsupplyrecipe.service;
 
-import com.google.genai.Client;
-import com.google.genai.types.GenerateContentResponse;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.osa.directsupplyrecipe.catalog.CatalogDiff;
+import org.osa.directsupplyrecipe.catalog.RecipeCatalog;
+import org.osa.directsupplyrecipe.catalog.RecipePage;
+import org.osa.directsupplyrecipe.catalog.ScaledRecipe;
+import org.osa.directsupplyrecipe.config.InstructionProperties;
 import org.osa.directsupplyrecipe.model.Recipe;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.osa.directsupplyrecipe.utils.JsonArraySanitizer;
+import org.osa.directsupplyrecipe.utils.JsonArrayStepTokenizer;
+import org.osa.directsupplyrecipe.utils.MicroBatcher;
+import org.osa.directsupplyrecipe.utils.SingleFlight;
+import org.osa.directsupplyrecipe.utils.SingleFlightStream;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Service class for managing and retrieving recipes, including their instructions.
  * Provides functionality to retrieve a list of available recipes, fetch specific recipes
- * by name, and generate step-by-step instructions for a recipe by leveraging a Gemini model.
+ * by name, and generate step-by-step instructions for a recipe through an {@link InstructionGenerator}.
+ *
+ * Pre-warm misses ({@link #prewarmInstructionsAsync(Recipe)}) for different recipes that arrive within
+ * {@code instruction.batch.window} of each other are generated together, up to {@code instruction.batch.max-size}
+ * recipes per model call, with a single multi-recipe prompt answered by a JSON object keyed by recipe. This pays
+ * the prompt preamble, the round trip and a generation slot once per batch when many recipes miss at once, during
+ * warm-up or after a cache rebuild. Recipes missing from a batched response are retried individually. A max size
+ * of 1 disables batching. Interactive requests are never batched: the window would be added to every miss, and a
+ * multi-recipe answer takes longer than a single one.
+ *
+ * Generators are asked for structured output in the {@link InstructionFormat} of the {@link InstructionValidator},
+ * and every result is validated before it is served or cached. An invalid result is recorded as a
+ * {@code recipe.instructions.invalid} metric and generated again, up to {@code instruction.generation.max-attempts}
+ * attempts in total, after an exponential, jittered {@code instruction.generation.retry-backoff} that is waited out
+ * without holding a generation slot. Another attempt is only made if it is expected to end within
+ * {@code instruction.generation.deadline} of the first. When no attempt is valid the request fails with an
+ * {@link InvalidInstructionsException} rather than an empty list, and nothing is cached.
+ *
+ * Recipes and their instructions can be requested at another yield than the catalog's. Scaling is computed
+ * locally from the ingredient quantities parsed with the catalog: the instructions of the catalog recipe are
+ * served or generated and cached as usual, and only the quantities they mention are rewritten, so a yield
+ * never costs a model call of its own.
+ *
+ * The catalog can be replaced at runtime with {@link #replaceCatalog(RecipeCatalog)}. Each call reads the
+ * current catalog once, so it is answered entirely from one version even while a replacement is published.
  */
 @Slf4j
 @Service
 public class RecipeService {
 
-    private final List<Recipe> recipes;
+    /**
+     * Upper bound on the number of results returned by {@link #searchRecipeTitles(String, int)}.
+     */
+    public static final int MAX_SEARCH_RESULTS = 50;
+
+    private final AtomicReference<RecipeCatalog> catalog;
     private final String geminiDefaultModel;
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final InstructionPromptBuilder instructionPromptBuilder;
+    private final InstructionCache instructionCache;
+    private final InstructionGenerator instructionGenerator;
+    private final GenerationLimiter generationLimiter;
+    private final GenerationHedger generationHedger;
+    private final InstructionMetrics instructionMetrics;
+    private final InstructionValidator instructionValidator;
+    private final double responseLogSampleRate;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration deadline;
+    private static final Attempt<Void> COMPLETED = new Attempt<>(null, null);
+    // Steps a streaming client may fall behind by before it is dropped, so a stalled socket cannot hold them all
+    private static final int STREAM_MAX_PENDING_STEPS = 64;
+
+    private final SingleFlight<String, List<String>> inFlightGenerations = new SingleFlight<>();
+    private final ExecutorService streamDelivery = Executors.newCachedThreadPool(
+            new CustomizableThreadFactory("instruction-stream-"));
+    private final SingleFlightStream<String, String> inFlightStreams =
+            new SingleFlightStream<>(streamDelivery, STREAM_MAX_PENDING_STEPS);
+    private final MicroBatcher<PendingGeneration, List<String>> generationBatcher;
+    private final int prewarmBatchSize;
 
     /**
      * Constructs a RecipeService instance.
      *
-     * @param recipes the list of available Recipe objects to be managed by this service
+     * @param catalog the initial indexed catalog of available recipes managed by this service
      * @param geminiDefaultModel the default model identifier for the Gemini model; injected via configuration
      * @param instructionPromptBuilder the builder responsible for creating instruction-generation prompts
+     * @param instructionCache the cache holding previously generated instructions
+     * @param instructionGenerator the generator that turns prompts into raw model responses
+     * @param generationLimiter the limiter that bounds and runs concurrent generations
+     * @param generationHedger the hedger that re-issues slow blocking model calls
+     * @param instructionMetrics the metrics recorded for each generation stage
+     * @param instructionValidator the validator deciding whether generated instructions can be served
+     * @param instructionProperties the logging, batching and retry settings of generations
      */
-    public RecipeService(List<Recipe> recipes,
+    public RecipeService(RecipeCatalog catalog,
                          @Value("${gemini.default.model}") String geminiDefaultModel,
-                         InstructionPromptBuilder instructionPromptBuilder) {
-        this.recipes = recipes;
+                         InstructionPromptBuilder instructionPromptBuilder,
+                         InstructionCache instructionCache,
+                         InstructionGenerator instructionGenerator,
+                         GenerationLimiter generationLimiter,
+                         GenerationHedger generationHedger,
+                         InstructionMetrics instructionMetrics,
+                         InstructionValidator instructionValidator,
+                         InstructionProperties instructionProperties) {
+        this.catalog = new AtomicReference<>(catalog);
         this.geminiDefaultModel = geminiDefaultModel;
         this.instructionPromptBuilder = instructionPromptBuilder;
+        this.instructionCache = instructionCache;
+        this.instructionGenerator = instructionGenerator;
+        this.generationLimiter = generationLimiter;
+        this.generationHedger = generationHedger;
+        this.instructionMetrics = instructionMetrics;
+        this.instructionValidator = instructionValidator;
+        this.responseLogSampleRate = instructionProperties.log().responseSampleRate();
+        this.maxAttempts = instructionProperties.generation().maxAttempts();
+        this.retryBackoff = instructionProperties.generation().retryBackoff();
+        this.deadline = instructionProperties.generation().deadline();
+        InstructionProperties.Batch batch = instructionProperties.batch();
+        this.generationBatcher = batch.maxSize() > 1
+                ? new MicroBatcher<>("instruction-batcher", batch.maxSize(), batch.window(), this::generateBatch)
+                : null;
+        this.prewarmBatchSize = generationBatcher != null ? batch.maxSize() : 1;
+    }
+
+    /**
+     * Stops the batching timer and the delivery of streamed steps on shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        if (generationBatcher != null) {
+            generationBatcher.close();
+        }
+        streamDelivery.shutdownNow();
+    }
+
+    /**
+     * Publishes a new catalog with a single atomic swap, then invalidates the cached instructions of the
+     * recipes whose content no longer exists. Instructions of unchanged recipes stay cached; those of added
+     * or edited recipes are generated on first request, as their content hash has no cache entry yet.
+     * Readers are never blocked and see either the previous or the new catalog, never a mix of both.
+     *
+     * @param next the fully built catalog to serve from now on
+     * @return the differences from the previous catalog
+     */
+    public CatalogDiff replaceCatalog(RecipeCatalog next) {
+        RecipeCatalog previous = catalog.getAndSet(next);
+        CatalogDiff diff = CatalogDiff.between(previous, next);
+        for (Recipe recipe : diff.stale()) {
+            instructionCache.invalidate(instructionCache.keyFor(recipe, geminiDefaultModel));
+        }
+        return diff;
     }
 
     /**
@@ -48,7 +177,31 @@ public class RecipeService {
      * @return a list of {@code Recipe} objects representing the available recipes
      */
     public List<Recipe> getRecipes() {
-        return recipes;
+        return catalog.get().getRecipes();
+    }
+
+    /**
+     * Retrieves one page of the recipes that use all of the included ingredients and none of the excluded ones.
+     * Ingredients are matched by normalized name (quantity and unit ignored), so {@code chicken}
+     * matches {@code "200g chicken breast"}.
+     *
+     * @param includes ingredient names that must all be present; may be empty
+     * @param excludes ingredient names that must all be absent; may be empty
+     * @param offset the number of matching recipes to skip
+     * @param limit the maximum number of recipes to return
+     * @return the requested page of matching recipes in catalog order, with the total match count
+     */
+    public RecipePage getRecipePage(Collection<String> includes, Collection<String> excludes, int offset, int limit) {
+        return catalog.get().page(includes, excludes, offset, limit);
+    }
+
+    /**
+     * Retrieves the content version of the recipe catalog, which changes whenever any recipe changes.
+     *
+     * @return the catalog version
+     */
+    public String getCatalogVersion() {
+        return catalog.get().getVersion();
     }
 
     /**
@@ -59,63 +212,636 @@ public class RecipeService {
      * @return the {@code Recipe} object corresponding to the specified name, or {@code null} if not found
      */
     public Recipe getRecipe(String name) {
-        return recipes.stream()
-                .filter(recipe -> recipe.getTitle().equalsIgnoreCase(name))
-                .findFirst()
-                .orElse(null);
+        return catalog.get().findByTitle(name);
     }
 
     /**
-     * Retrieves the instructions for a recipe specified by its name.
-     * If no recipe with the given name exists, an empty list is returned.
+     * Retrieves a recipe by its name, scaled to the given yield.
+     * If no recipe with the given name exists, this method returns {@code null}.
+     *
+     * @param name the name of the recipe to retrieve; case-insensitive
+     * @param yield the number of servings to scale the recipe to
+     * @return the recipe with its ingredient quantities scaled to {@code yield}, or {@code null} if not found
+     * @throws IllegalArgumentException if {@code yield} is not positive or the recipe has no yield to scale from
+     */
+    public Recipe getRecipe(String name, int yield) {
+        ScaledRecipe scaled = catalog.get().scale(name, yield);
+        return scaled == null ? null : scaled.getRecipe();
+    }
+
+    /**
+     * Retrieves the titles of recipes whose title starts with the given prefix, for type-ahead.
+     * The number of results is capped at {@link #MAX_SEARCH_RESULTS}.
+     *
+     * @param prefix the title prefix; case-insensitive
+     * @param limit the maximum number of titles to return
+     * @return the matching titles in alphabetical order, or an empty list if the prefix is blank
+     */
+    public List<String> searchRecipeTitles(String prefix, int limit) {
+        int boundedLimit = Math.min(Math.max(limit, 0), MAX_SEARCH_RESULTS);
+        return catalog.get().findByTitlePrefix(prefix, boundedLimit).stream()
+                .map(Recipe::getTitle)
+                .toList();
+    }
+
+    /**
+     * Retrieves the instructions for a recipe specified by its name, waiting for them to be generated if needed.
+     * See {@link #getRecipeInstructionsAsync(String)}.
      *
      * @param name the name of the recipe for which instructions are to be retrieved
      * @return a list of strings representing the instructions for the specified recipe,
      *         or an empty list if no such recipe is found
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
      */
     public List<String> getRecipeInstructions(String name) {
+        try {
+            return getRecipeInstructionsAsync(name).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the instructions for a recipe specified by its name, without blocking the calling thread.
+     * If no recipe with the given name exists, an empty list is returned.
+     * Instructions are served from the {@link InstructionCache} when the same recipe content
+     * was already generated with the current model and prompt version, and the returned future is then
+     * already complete. Otherwise the generation runs on the {@link GenerationLimiter}, and concurrent requests
+     * for the same recipe share a single in-flight generation.
+     *
+     * @param name the name of the recipe for which instructions are to be retrieved
+     * @return a future of the instructions for the specified recipe, or of an empty list if no such recipe is found
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<List<String>> getRecipeInstructionsAsync(String name) {
         Recipe recipe = getRecipe(name);
         if (recipe == null) {
             // Return an empty array when a recipe is not found to ensure a valid JSON array response
-            return Collections.emptyList();
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return getRecipeInstructionsAsync(recipe);
+    }
+
+    /**
+     * Retrieves the instructions for a recipe specified by its name, scaled to the given yield, without
+     * blocking the calling thread. The instructions of the catalog recipe are retrieved as in
+     * {@link #getRecipeInstructionsAsync(String)}, and therefore cached once for every yield, and the ingredient
+     * quantities they mention are then scaled.
+     *
+     * @param name the name of the recipe for which instructions are to be retrieved
+     * @param yield the number of servings to scale the instructions to
+     * @return a future of the scaled instructions, or of an empty list if no such recipe is found
+     * @throws IllegalArgumentException if {@code yield} is not positive or the recipe has no yield to scale from
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<List<String>> getRecipeInstructionsAsync(String name, int yield) {
+        ScaledRecipe scaled = catalog.get().scale(name, yield);
+        if (scaled == null) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return getRecipeInstructionsAsync(scaled.getBase()).thenApply(scaled::scaleSteps);
+    }
+
+    /**
+     * Retrieves the instructions for the given catalog recipe, without blocking the calling thread.
+     * Behaves as {@link #getRecipeInstructionsAsync(String)} once the recipe has been looked up, so recipes
+     * sharing a title can each be addressed.
+     *
+     * @param recipe the recipe for which instructions are to be retrieved
+     * @return a future of the instructions for the recipe
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<List<String>> getRecipeInstructionsAsync(Recipe recipe) {
+        return getRecipeInstructionsAsync(recipe, false);
+    }
+
+    /**
+     * Retrieves the instructions for the given catalog recipe ahead of demand, without blocking the calling
+     * thread. Behaves as {@link #getRecipeInstructionsAsync(Recipe)}, except that a miss may be batched with
+     * other pre-warm misses when {@code instruction.batch.max-size} is above 1.
+     *
+     * @param recipe the recipe for which instructions are to be generated
+     * @return a future of the instructions for the recipe; when batching, a saturated {@link GenerationLimiter}
+     *         fails it with a {@link GenerationRejectedException}
+     * @throws GenerationRejectedException if a generation is needed without batching but the
+     *         {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<List<String>> prewarmInstructionsAsync(Recipe recipe) {
+        return getRecipeInstructionsAsync(recipe, generationBatcher != null);
+    }
+
+    /**
+     * Returns how many pre-warm misses submitted together through {@link #prewarmInstructionsAsync(Recipe)}
+     * share one model call.
+     *
+     * @return {@code instruction.batch.max-size}, or 1 when batching is disabled
+     */
+    public int getPrewarmBatchSize() {
+        return prewarmBatchSize;
+    }
+
+    /**
+     * Serves the instructions for the given recipe from the cache, or joins or starts its generation.
+     *
+     * @param recipe the recipe for which instructions are to be retrieved
+     * @param batched whether a new generation goes through the batcher
+     * @return a future of the instructions for the recipe
+     */
+    private CompletableFuture<List<String>> getRecipeInstructionsAsync(Recipe recipe, boolean batched) {
+        String cacheKey = instructionCache.keyFor(recipe, geminiDefaultModel);
+        Optional<List<String>> cached = instructionCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        // Concurrent callers for the same recipe content and model share one generation
+        return inFlightGenerations.executeAsync(cacheKey, () -> batched
+                ? generationBatcher.submit(new PendingGeneration(recipe, cacheKey))
+                : generateAndCacheInstructions(recipe, cacheKey));
+    }
+
+    /**
+     * Starts the generation of a flushed batch: a lone recipe is generated with the single-recipe prompt,
+     * several share one generation slot and model call.
+     *
+     * @param batch the cache misses collected by the batcher
+     * @throws GenerationRejectedException if the {@link GenerationLimiter} is saturated
+     */
+    private void generateBatch(List<MicroBatcher.Pending<PendingGeneration, List<String>>> batch) {
+        if (batch.size() == 1) {
+            generateIndividually(batch.get(0));
+            return;
+        }
+        generationLimiter.submit(() -> {
+            generateAndCacheBatch(batch);
+            return null;
+        }).exceptionally(failure -> {
+            batch.forEach(pending -> pending.result().completeExceptionally(unwrap(failure)));
+            return null;
+        });
+    }
+
+    /**
+     * Generates the instructions of several recipes with one model call and caches them. Recipes cached in
+     * the meantime are answered from the cache; recipes for which the response has no valid steps, or all
+     * of them if the call fails, are resubmitted individually.
+     *
+     * @param batch the cache misses to generate, completed as their results become available
+     */
+    private void generateAndCacheBatch(List<MicroBatcher.Pending<PendingGeneration, List<String>>> batch) {
+        List<MicroBatcher.Pending<PendingGeneration, List<String>>> misses = new ArrayList<>();
+        for (MicroBatcher.Pending<PendingGeneration, List<String>> pending : batch) {
+            Optional<List<String>> cached = instructionCache.get(pending.item().cacheKey());
+            if (cached.isPresent()) {
+                pending.result().complete(cached.get());
+            } else {
+                misses.add(pending);
+            }
+        }
+        if (misses.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<String>> stepsByKey = null;
+        try {
+            String promptText = buildBatchPrompt(misses.stream().map(pending -> pending.item().recipe()).toList());
+            String rawResponse = generate(promptText, instructionValidator.batchFormat(misses.size()));
+            logResponse(rawResponse);
+            stepsByKey = parseBatchInstructionSteps(rawResponse);
+        } catch (RuntimeException e) {
+            log.warn("Batched generation of {} recipes failed, retrying individually: {}", misses.size(),
+                    e.getMessage());
+        }
+
+        List<List<String>> results = new ArrayList<>(misses.size());
+        int retried = 0;
+        for (int i = 0; i < misses.size(); i++) {
+            List<String> steps = stepsByKey == null ? null : stepsByKey.get(String.valueOf(i + 1));
+            InstructionValidator.Violation violation = steps == null ? null : instructionValidator.validate(steps);
+            if (violation != null) {
+                instructionMetrics.recordInvalid(violation.tag(), true);
+            }
+            if (steps != null && violation == null) {
+                instructionCache.put(misses.get(i).item().cacheKey(), steps);
+                results.add(steps);
+            } else {
+                retried++;
+                results.add(null);
+            }
+        }
+        // Recorded before any caller is released, so the batch is visible in the metrics once its results are
+        instructionMetrics.recordBatch(misses.size(), retried);
+        for (int i = 0; i < misses.size(); i++) {
+            if (results.get(i) != null) {
+                misses.get(i).result().complete(results.get(i));
+            } else {
+                generateIndividually(misses.get(i));
+            }
+        }
+    }
+
+    /**
+     * Generates one recipe's instructions with the single-recipe prompt on the {@link GenerationLimiter}
+     * and completes its pending result.
+     *
+     * @param pending the recipe and the future waiting for its instructions
+     */
+    private void generateIndividually(MicroBatcher.Pending<PendingGeneration, List<String>> pending) {
+        PendingGeneration generation = pending.item();
+        try {
+            generateAndCacheInstructions(generation.recipe(), generation.cacheKey())
+                    .whenComplete((steps, failure) -> {
+                        if (failure != null) {
+                            pending.result().completeExceptionally(unwrap(failure));
+                        } else {
+                            pending.result().complete(steps);
+                        }
+                    });
+        } catch (GenerationRejectedException e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Checks whether instructions for the given recipe are cached for the current model and prompt version,
+     * so they would be served without a generation.
+     *
+     * @param recipe the recipe to check
+     * @return whether its instructions are cached
+     */
+    public boolean hasCachedInstructions(Recipe recipe) {
+        return instructionCache.contains(instructionCache.keyFor(recipe, geminiDefaultModel));
+    }
+
+    /**
+     * Generates instructions for the given recipe on the {@link GenerationLimiter} and stores them in the cache,
+     * generating again while the result is invalid. Runs at most once at a time per cache key; the cache is
+     * re-checked first because a previous run for the same key may have completed just before this one started.
+     *
+     * @param recipe the recipe to generate instructions for
+     * @param cacheKey the cache key of the recipe content and model
+     * @return a future of valid instruction steps, failed with an {@link InvalidInstructionsException} if no
+     *         attempt produced valid instructions
+     * @throws GenerationRejectedException if the {@link GenerationLimiter} is saturated
+     */
+    private CompletableFuture<List<String>> generateAndCacheInstructions(Recipe recipe, String cacheKey) {
+        return generateWithRetries(recipe, () -> {
+            Optional<List<String>> cached = instructionCache.get(cacheKey);
+            if (cached.isPresent()) {
+                return new Attempt<>(cached.get(), null);
+            }
+            String rawResponse = generate(buildPrompt(recipe), instructionValidator.format());
+            logResponse(rawResponse);
+            List<String> steps = parseInstructionSteps(rawResponse);
+            InstructionValidator.Violation violation = instructionValidator.validate(steps);
+            if (violation == null) {
+                instructionCache.put(cacheKey, steps);
+            }
+            return new Attempt<>(steps, violation);
+        });
+    }
+
+    /**
+     * Runs generation attempts on the {@link GenerationLimiter} until one is valid. Each attempt holds a
+     * generation slot only while it runs: the backoff before the next attempt is waited out on a timer, so
+     * other generations can use the slot meanwhile.
+     *
+     * @param recipe the recipe being generated
+     * @param attempt a single generation attempt, run on a generation thread
+     * @param <T> the result type
+     * @return a future of the value of the first valid attempt
+     * @throws GenerationRejectedException if the {@link GenerationLimiter} is saturated for the first attempt
+     */
+    private <T> CompletableFuture<T> generateWithRetries(Recipe recipe, Supplier<Attempt<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submitAttempt(recipe, attempt, 1, System.nanoTime(), result);
+        return result;
+    }
+
+    /**
+     * Submits one attempt to the {@link GenerationLimiter} and completes {@code result} with its outcome, or
+     * schedules the next attempt if it was invalid.
+     *
+     * @param recipe the recipe being generated
+     * @param attempt a single generation attempt
+     * @param number the number of this attempt, starting at 1
+     * @param firstStart the {@link System#nanoTime()} at which the first attempt was submitted
+     * @param result the future completed with the outcome of the last attempt
+     * @param <T> the result type
+     * @throws GenerationRejectedException if the {@link GenerationLimiter} is saturated
+     */
+    private <T> void submitAttempt(Recipe recipe, Supplier<Attempt<T>> attempt, int number, long firstStart,
+                                   CompletableFuture<T> result) {
+        long start = System.nanoTime();
+        generationLimiter.submit(attempt).whenComplete((outcome, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(unwrap(failure));
+            } else if (outcome.violation() == null) {
+                result.complete(outcome.value());
+            } else {
+                retryOrFail(recipe, attempt, outcome.violation(), number, firstStart, System.nanoTime() - start,
+                        result);
+            }
+        });
+    }
+
+    /**
+     * Records an invalid result, then schedules the next attempt, or fails when no attempt is left. The delay
+     * grows exponentially from {@code retryBackoff} and is jittered, so recipes that failed together are not
+     * retried in lockstep. An attempt is only scheduled if, taking as long as the rejected one, it would end
+     * within {@code instruction.generation.deadline} of the first, so a request is answered before the
+     * servlet's async request timeout.
+     *
+     * @param recipe the recipe being generated
+     * @param attempt a single generation attempt
+     * @param violation the reason the result was rejected
+     * @param number the number of the attempt that was rejected, starting at 1
+     * @param firstStart the {@link System#nanoTime()} at which the first attempt was submitted
+     * @param attemptNanos how long the rejected attempt took, including its wait for a slot
+     * @param result the future completed with the outcome of the last attempt
+     * @param <T> the result type
+     */
+    private <T> void retryOrFail(Recipe recipe, Supplier<Attempt<T>> attempt, InstructionValidator.Violation violation,
+                                 int number, long firstStart, long attemptNanos, CompletableFuture<T> result) {
+        long ceiling = retryBackoff.toMillis() << Math.min(number - 1, 10);
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        long expectedEnd = System.nanoTime() - firstStart + TimeUnit.MILLISECONDS.toNanos(delay) + attemptNanos;
+        boolean retry = number < maxAttempts && expectedEnd <= deadline.toNanos();
+        instructionMetrics.recordInvalid(violation.tag(), retry);
+        log.warn("Invalid instructions for {} ({}), attempt {} of {}", recipe.getTitle(), violation.tag(), number,
+                maxAttempts);
+        if (!retry) {
+            result.completeExceptionally(new InvalidInstructionsException(recipe.getTitle(), violation, number));
+            return;
+        }
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            try {
+                submitAttempt(recipe, attempt, number + 1, firstStart, result);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Streams the instructions for a recipe specified by its name, delivering each step as soon as it is available.
+     * Cached instructions are replayed immediately, on the calling thread, and the returned future is then already
+     * complete. Otherwise the model response is streamed on the {@link GenerationLimiter} and each step is
+     * delivered as soon as its JSON string literal closes; if the stream yields no recognizable array, the full
+     * response is parsed as in {@link #getRecipeInstructions(String)}. A complete, valid result is cached.
+     * An invalid result is generated again only while no step has been delivered; once steps were delivered
+     * they cannot be taken back, so an invalid result is then only recorded and not cached.
+     * Concurrent streams of the same recipe share one generation: a stream joining it late first receives the
+     * steps already delivered to the others, then the live ones.
+     * If no recipe with the given name exists, no steps are delivered.
+     *
+     * @param name the name of the recipe for which instructions are to be streamed
+     * @param onStep receives each instruction step, in order; an exception it throws ends this stream, while the
+     *               shared generation goes on for the other streams and the cache
+     * @return a future completed when all steps were delivered, or exceptionally if generation or delivery failed,
+     *         including with an {@link InvalidInstructionsException} if no attempt produced valid instructions
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<Void> streamRecipeInstructions(String name, Consumer<String> onStep) {
+        Recipe recipe = getRecipe(name);
+        if (recipe == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return streamRecipeInstructions(recipe, onStep);
+    }
+
+    /**
+     * Streams the instructions for a recipe specified by its name, scaled to the given yield, step by step.
+     * The instructions of the catalog recipe are streamed as in {@link #streamRecipeInstructions(String, Consumer)},
+     * and each step is scaled before it is delivered.
+     *
+     * @param name the name of the recipe for which instructions are to be streamed
+     * @param yield the number of servings to scale the instructions to
+     * @param onStep receives each scaled instruction step, in order; an exception it throws ends this stream
+     * @return a future completed when all steps were delivered, or exceptionally if generation or delivery failed
+     * @throws IllegalArgumentException if {@code yield} is not positive or the recipe has no yield to scale from
+     * @throws GenerationRejectedException if a generation is needed but the {@link GenerationLimiter} is saturated
+     */
+    public CompletableFuture<Void> streamRecipeInstructions(String name, int yield, Consumer<String> onStep) {
+        ScaledRecipe scaled = catalog.get().scale(name, yield);
+        if (scaled == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return streamRecipeInstructions(scaled.getBase(), step -> onStep.accept(scaled.scaleStep(step)));
+    }
+
+    /**
+     * Streams the instructions for the given catalog recipe, replaying them from the cache or from the generation
+     * in flight for the same recipe content, or generating them.
+     *
+     * @param recipe the recipe for which instructions are to be streamed
+     * @param onStep receives each instruction step, in order
+     * @return a future completed when all steps were delivered
+     */
+    private CompletableFuture<Void> streamRecipeInstructions(Recipe recipe, Consumer<String> onStep) {
+        String cacheKey = instructionCache.keyFor(recipe, geminiDefaultModel);
+        Optional<List<String>> cached = instructionCache.get(cacheKey);
+        if (cached.isPresent()) {
+            cached.get().forEach(onStep);
+            return CompletableFuture.completedFuture(null);
         }
 
+        return inFlightStreams.execute(cacheKey, onStep, publish ->
+                generateWithRetries(recipe, () -> generateAndStreamInstructions(recipe, cacheKey, publish)));
+    }
+
+    /**
+     * Streams one fresh generation for the given recipe to {@code onStep} and caches a complete result. The
+     * cache is re-checked first because a previous stream for the same key may have completed just before.
+     *
+     * @param recipe the recipe to generate instructions for
+     * @param cacheKey the cache key of the recipe content and model
+     * @param onStep receives each instruction step, in order
+     * @return the outcome of the attempt, invalid only if it can still be replaced because no step was delivered
+     */
+    private Attempt<Void> generateAndStreamInstructions(Recipe recipe, String cacheKey, Consumer<String> onStep) {
+        Optional<List<String>> cached = instructionCache.get(cacheKey);
+        if (cached.isPresent()) {
+            cached.get().forEach(onStep);
+            return COMPLETED;
+        }
+        String promptText = buildPrompt(recipe);
+        List<String> steps = new ArrayList<>();
+        StringBuilder rawResponse = new StringBuilder();
+        JsonArrayStepTokenizer tokenizer = new JsonArrayStepTokenizer(step -> {
+            steps.add(step);
+            onStep.accept(step);
+        });
+        Timer.Sample sample = instructionMetrics.start();
+        boolean completed = false;
+        try {
+            instructionGenerator.generateStream(geminiDefaultModel, promptText, instructionValidator.format(),
+                    chunk -> {
+                        rawResponse.append(chunk);
+                        tokenizer.feed(chunk);
+                    });
+            completed = true;
+        } finally {
+            instructionMetrics.recordGenerate(sample, InstructionMetrics.MODE_STREAM, completed, rawResponse);
+        }
+        logResponse(rawResponse);
+
+        if (tokenizer.getEmittedCount() == 0) {
+            // Nothing was delivered yet, so an invalid result can still be replaced
+            List<String> parsed = parseInstructionSteps(rawResponse);
+            InstructionValidator.Violation violation = instructionValidator.validate(parsed);
+            if (violation != null) {
+                return new Attempt<>(null, violation);
+            }
+            parsed.forEach(onStep);
+            instructionCache.put(cacheKey, parsed);
+            return COMPLETED;
+        }
+        if (tokenizer.isMalformed()) {
+            // The streamed prefix stands; complete it from the full parse if that agrees with it
+            List<String> parsed = parseInstructionSteps(rawResponse);
+            InstructionValidator.Violation violation = instructionValidator.validate(parsed);
+            if (violation == null && parsed.size() >= steps.size()
+                    && parsed.subList(0, steps.size()).equals(steps)) {
+                parsed.subList(steps.size(), parsed.size()).forEach(onStep);
+                instructionCache.put(cacheKey, parsed);
+            } else {
+                instructionMetrics.recordInvalid(violation != null ? violation.tag()
+                        : InstructionValidator.Violation.UNPARSEABLE.tag(), false);
+                log.warn("Malformed streamed instructions for {}, not cached", recipe.getTitle());
+            }
+            return COMPLETED;
+        }
+        if (!tokenizer.isComplete()) {
+            // A truncated array still streamed useful steps, but must not be cached as the full answer
+            return COMPLETED;
+        }
+        InstructionValidator.Violation violation = instructionValidator.validate(steps);
+        if (violation != null) {
+            instructionMetrics.recordInvalid(violation.tag(), false);
+            log.warn("Invalid streamed instructions for {} ({}), not cached", recipe.getTitle(), violation.tag());
+            return COMPLETED;
+        }
+        instructionCache.put(cacheKey, steps);
+        return COMPLETED;
+    }
+
+    /**
+     * Builds the instruction prompt for the given recipe, recording its build time and size.
+     *
+     * @param recipe the recipe to build the prompt for
+     * @return the prompt text
+     */
+    private String buildPrompt(Recipe recipe) {
+        Timer.Sample sample = instructionMetrics.start();
         String promptText = instructionPromptBuilder.build(recipe);
-        String rawResponse = generateInstructionResponse(promptText);
-        log.info("Gemini response: {}", rawResponse);
-        //TODO: [improvement] use Gemini's structured output to make things simpler.
-        return parseInstructionSteps(rawResponse);
+        instructionMetrics.recordPromptBuild(sample, promptText);
+        return promptText;
     }
 
+    /**
+     * Builds the batched instruction prompt for the given recipes, recording its build time and size.
+     *
+     * @param recipes the recipes to build the prompt for, in key order
+     * @return the prompt text
+     */
+    private String buildBatchPrompt(List<Recipe> recipes) {
+        Timer.Sample sample = instructionMetrics.start();
+        String promptText = instructionPromptBuilder.buildBatch(recipes);
+        instructionMetrics.recordPromptBuild(sample, promptText);
+        return promptText;
+    }
 
     /**
-     * Generates a response string containing instructions based on the given prompt text by invoking the Gemini model.
+     * Calls the instruction generator and waits for the full response, recording its latency and outcome.
+     * A slow call may be hedged by the {@link GenerationHedger}; the latency is that of the winning call.
      *
-     * @param promptText the input text prompt used to generate the instruction response
-     * @return the generated instruction response as a string
+     * @param promptText the prompt to send
+     * @param format the expected response shape
+     * @return the raw model response
      */
-    private String generateInstructionResponse(String promptText) {
-        Client client = new Client();
-        GenerateContentResponse response = client.models.generateContent(geminiDefaultModel, promptText, null);
-        return response.text();
+    private String generate(String promptText, InstructionFormat format) {
+        Timer.Sample sample = instructionMetrics.start();
+        String rawResponse = null;
+        boolean succeeded = false;
+        try {
+            rawResponse = generationHedger.call(() -> instructionGenerator.generate(geminiDefaultModel, promptText,
+                    format));
+            succeeded = true;
+            return rawResponse;
+        } finally {
+            instructionMetrics.recordGenerate(sample, InstructionMetrics.MODE_BLOCKING, succeeded, rawResponse);
+        }
+    }
+
+    /**
+     * Logs a raw model response at debug level for a sample of calls only, so full payloads are
+     * available for troubleshooting without costing I/O on every request.
+     *
+     * @param rawResponse the raw model response
+     */
+    private void logResponse(CharSequence rawResponse) {
+        if (log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < responseLogSampleRate) {
+            log.debug("Gemini response: {}", rawResponse);
+        }
     }
 
     /**
      * Parses a raw string containing instruction steps in JSON array format into a list of strings.
-     * If the input cannot be parsed as a valid JSON array, an empty list is returned.
      *
      * @param rawText the raw instruction text to be parsed, expected to be in JSON array format
-     * @return a list of strings representing individual instruction steps, or an empty list if parsing fails
+     * @return a list of strings representing individual instruction steps, or {@code null} if the input does not
+     *         contain a valid JSON array
      */
-    private List<String> parseInstructionSteps(String rawText) {
-        try {
-            String cleaned = JsonArraySanitizer.sanitizeToJsonArray(rawText);
-            List<String> steps = objectMapper.readValue(cleaned, new TypeReference<>() {});
-            return steps == null ? Collections.emptyList() : steps;
-        } catch (Exception e) {
-            log.warn("Failed to parse instructions as JSON array. Returning empty array. Error: {}", e.getMessage());
-            return Collections.emptyList();
+    private List<String> parseInstructionSteps(CharSequence rawText) {
+        Timer.Sample sample = instructionMetrics.start();
+        List<String> steps = JsonArraySanitizer.parseStringArray(rawText);
+        instructionMetrics.recordParse(sample, steps == null);
+        if (steps == null) {
+            log.warn("Failed to parse instructions as JSON array.");
+        }
+        return steps;
+    }
+
+    /**
+     * Parses a batched model response into instruction steps keyed by recipe key.
+     *
+     * @param rawText the raw model response, expected to be a JSON object of string arrays
+     * @return the steps by recipe key, or {@code null} if the response contains no JSON object
+     */
+    private Map<String, List<String>> parseBatchInstructionSteps(CharSequence rawText) {
+        Timer.Sample sample = instructionMetrics.start();
+        Map<String, List<String>> stepsByKey = JsonArraySanitizer.parseStringArrayObject(rawText);
+        instructionMetrics.recordParse(sample, stepsByKey == null);
+        if (stepsByKey == null) {
+            log.warn("Failed to parse batched instructions as JSON object.");
         }
+        return stepsByKey;
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * A cache miss waiting to be generated, possibly together with others.
+     *
+     * @param recipe the recipe to generate instructions for
+     * @param cacheKey the cache key of the recipe content and model
+     */
+    private record PendingGeneration(Recipe recipe, String cacheKey) {
     }
 
+    /**
+     * The outcome of one generation attempt.
+     *
+     * @param value the result to complete the request with when the attempt is valid
+     * @param violation the reason the attempt was rejected, or {@code null} if it is valid
+     * @param <T> the result type
+     */
+    private record Attempt<T>(T value, InstructionValidator.Violation violation) {
+    }
 }
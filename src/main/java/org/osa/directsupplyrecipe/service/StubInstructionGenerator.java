@@ -0,0 +1,117 @@
+package org.osa.directsupplyrecipe.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Local {@link InstructionGenerator} that never leaves the JVM, for benchmarks and load tests.
+ *
+ * The response is derived only from the prompt text by {@link SyntheticInstructions}, so identical prompts
+ * always produce identical output, and batch prompts are answered with a JSON object of step arrays. Each call
+ * sleeps for {@code instruction.stub.latency} to mimic the upstream round trip and fails with
+ * probability {@code instruction.stub.failure-rate} to exercise error handling. Streaming calls
+ * spread the same latency over chunks of {@code instruction.stub.chunk-size} characters.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "instruction.generator", havingValue = "stub")
+public class StubInstructionGenerator implements InstructionGenerator {
+
+    private final Duration latency;
+    private final double failureRate;
+    private final int chunkSize;
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * Constructs a StubInstructionGenerator.
+     *
+     * @param latency the simulated duration of each call
+     * @param failureRate the probability in {@code [0, 1]} that a call fails
+     * @param chunkSize the number of characters per chunk when streaming
+     */
+    public StubInstructionGenerator(@Value("${instruction.stub.latency:50ms}") Duration latency,
+                                    @Value("${instruction.stub.failure-rate:0}") double failureRate,
+                                    @Value("${instruction.stub.chunk-size:32}") int chunkSize) {
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("instruction.stub.failure-rate must be between 0 and 1");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("instruction.stub.chunk-size must be positive");
+        }
+        this.latency = latency;
+        this.failureRate = failureRate;
+        this.chunkSize = chunkSize;
+        log.info("Using stub instruction generator (latency {}, failure rate {})", latency, failureRate);
+    }
+
+    /**
+     * Returns deterministic instructions for the prompt after the configured latency.
+     *
+     * @param model the model identifier; ignored
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @return a JSON array of steps derived from the prompt
+     * @throws IllegalStateException when a failure is injected
+     */
+    @Override
+    public String generate(String model, String promptText) {
+        calls.incrementAndGet();
+        sleep(latency);
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IllegalStateException("Injected stub generator failure");
+        }
+        return SyntheticInstructions.render(promptText);
+    }
+
+    /**
+     * Streams deterministic instructions for the prompt in fixed-size chunks, spreading the
+     * configured latency evenly across them.
+     *
+     * @param model the model identifier; ignored
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @param onChunk receives each chunk of the JSON array text
+     * @throws IllegalStateException when a failure is injected
+     */
+    @Override
+    public void generateStream(String model, String promptText, Consumer<String> onChunk) {
+        calls.incrementAndGet();
+        String response = SyntheticInstructions.render(promptText);
+        int chunks = (response.length() + chunkSize - 1) / chunkSize;
+        Duration perChunk = latency.dividedBy(Math.max(chunks, 1));
+        boolean fail = failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate;
+        for (int start = 0; start < response.length(); start += chunkSize) {
+            sleep(perChunk);
+            if (fail && start + chunkSize > response.length() / 2) {
+                throw new IllegalStateException("Injected stub generator failure");
+            }
+            onChunk.accept(response.substring(start, Math.min(start + chunkSize, response.length())));
+        }
+    }
+
+    /**
+     * Returns the number of generate and stream calls made so far.
+     *
+     * @return the call count
+     */
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating generation latency", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derives deterministic model output from a prompt of {@link InstructionPromptBuilder}, for the local stand-ins
+ * of the model: {@link StubInstructionGenerator} and the load test's fake Gemini server.
+ *
+ * Each recipe gets one step per ingredient line, framed by a first and a last step naming the recipe. A single
+ * prompt is answered with a JSON array of steps; a {@link InstructionPromptBuilder#buildBatch(List) batch prompt}
+ * with a JSON object of such arrays keyed by recipe key, as the real model is asked to.
+ */
+public final class SyntheticInstructions {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private SyntheticInstructions() {
+        // Utility class; prevent instantiation
+    }
+
+    /**
+     * Renders the response to a prompt.
+     *
+     * @param promptText the prompt produced by {@link InstructionPromptBuilder}
+     * @return a JSON array of steps, or a JSON object of step arrays for a batch prompt
+     */
+    public static String render(String promptText) {
+        try {
+            if (!promptText.contains(InstructionPromptBuilder.BATCH_KEY_PREFIX)) {
+                return OBJECT_MAPPER.writeValueAsString(steps(promptText));
+            }
+            Map<String, List<String>> stepsByKey = new LinkedHashMap<>();
+            String[] sections = promptText.split(InstructionPromptBuilder.BATCH_KEY_PREFIX);
+            for (int i = 1; i < sections.length; i++) {
+                int keyEnd = sections[i].indexOf('\n');
+                stepsByKey.put(sections[i].substring(0, keyEnd), steps(sections[i].substring(keyEnd + 1)));
+            }
+            return OBJECT_MAPPER.writeValueAsString(stepsByKey);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Derives the steps of the recipe described in a prompt or a section of a batch prompt.
+     *
+     * @param recipeText the prompt text describing one recipe
+     * @return the steps, starting with gathering the ingredients and ending with serving the recipe
+     */
+    public static List<String> steps(String recipeText) {
+        String title = "the recipe";
+        List<String> steps = new ArrayList<>();
+        for (String line : recipeText.split("\n")) {
+            if (line.startsWith(InstructionPromptBuilder.TITLE_PREFIX)) {
+                title = line.substring(InstructionPromptBuilder.TITLE_PREFIX.length());
+            } else if (line.startsWith(InstructionPromptBuilder.INGREDIENT_PREFIX)) {
+                steps.add("Prepare the " + line.substring(InstructionPromptBuilder.INGREDIENT_PREFIX.length()) + ".");
+            }
+        }
+        steps.add(0, "Gather all ingredients for " + title + ".");
+        steps.add("Combine, cook until done and serve " + title + ".");
+        return steps;
+    }
+}
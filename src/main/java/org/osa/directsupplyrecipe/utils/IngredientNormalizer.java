@@ -0,0 +1,107 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for reducing raw ingredient strings such as {@code "200g chicken breast"} to
+ * normalized, searchable ingredient names.
+ *
+ * Normalization lowercases (in {@link Locale#ROOT}), drops a leading quantity and unit
+ * ({@code "200g"}, {@code "1.5 kg"}, {@code "1/2 cup of"}), removes parenthetical notes such as
+ * {@code "(to taste)"}, and reduces common plurals ({@code "eggs"} to {@code "egg"}, {@code "tomatoes"} to
+ * {@code "tomato"}, {@code "cherries"} to {@code "cherry"}, {@code "peaches"} to {@code "peach"}). The same
+ * rules are applied to index terms and to query terms, so they always meet in the middle.
+ */
+public class IngredientNormalizer {
+
+    private static final Pattern QUANTITY_AND_UNIT = Pattern.compile(
+            "^\\s*(" + Quantities.NUMBER + ")(?:\\s*(" + Quantities.UNIT + ")\\b)?\\.?\\s*(?:of\\s+)?",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARENTHETICAL = Pattern.compile("\\([^)]*\\)");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "or", "of", "the", "to", "with", "for", "in");
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private IngredientNormalizer() {
+        // Utility class; prevent instantiation
+    }
+
+    /**
+     * Normalizes a raw ingredient string to its ingredient name.
+     *
+     * @param rawIngredient the ingredient as listed in a recipe, e.g. {@code "3g Salt and pepper (to taste)"}
+     * @return the normalized name, e.g. {@code "salt and pepper"}; empty if nothing remains
+     */
+    public static String normalizeName(String rawIngredient) {
+        if (rawIngredient == null) {
+            return "";
+        }
+        String withoutQuantity = stripQuantityAndUnit(rawIngredient);
+        String withoutNotes = PARENTHETICAL.matcher(withoutQuantity).replaceAll(" ");
+        StringBuilder name = new StringBuilder(withoutNotes.length());
+        for (String word : NON_WORD.split(withoutNotes.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (!name.isEmpty()) {
+                name.append(' ');
+            }
+            name.append(singular(word));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Returns the index terms for a raw ingredient: its full normalized name plus each
+     * significant word of it, so both {@code "chicken breast"} and {@code "chicken"} match
+     * {@code "200g chicken breast"}.
+     *
+     * @param rawIngredient the ingredient as listed in a recipe
+     * @return the distinct terms, full name first; empty if the ingredient has no name
+     */
+    public static Set<String> terms(String rawIngredient) {
+        String name = normalizeName(rawIngredient);
+        Set<String> terms = new LinkedHashSet<>();
+        if (name.isEmpty()) {
+            return terms;
+        }
+        terms.add(name);
+        for (String word : name.split(" ")) {
+            if (!STOP_WORDS.contains(word)) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Removes a leading quantity and unit from a raw ingredient string.
+     *
+     * @param rawIngredient the ingredient as listed in a recipe
+     * @return the remainder of the string after the quantity and unit
+     */
+    public static String stripQuantityAndUnit(String rawIngredient) {
+        Matcher matcher = QUANTITY_AND_UNIT.matcher(rawIngredient);
+        return matcher.lookingAt() ? rawIngredient.substring(matcher.end()) : rawIngredient;
+    }
+
+    private static String singular(String word) {
+        if (word.length() <= 3 || !word.endsWith("s") || word.endsWith("ss")) {
+            return word;
+        }
+        if (word.length() > 4 && word.endsWith("ies")) {
+            return word.substring(0, word.length() - 3) + 'y';
+        }
+        if (word.endsWith("oes") || word.endsWith("ches") || word.endsWith("shes") || word.endsWith("sses")
+                || word.endsWith("xes")) {
+            return word.substring(0, word.length() - 2);
+        }
+        return word.substring(0, word.length() - 1);
+    }
+}
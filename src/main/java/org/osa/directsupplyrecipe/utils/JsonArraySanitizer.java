@@ -1,5 +1,16 @@
 package org.osa.directsupplyrecipe.utils;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Utility class for sanitizing input strings into valid JSON arrays.
  * Provides methods to sanitize potentially malformed JSON array strings,
@@ -13,6 +24,9 @@ package org.osa.directsupplyrecipe.utils;
 public class JsonArraySanitizer {
 
     private static final String EMPTY_JSON_ARRAY = "[]";
+    private static final String FENCE = "```";
+    private static final int MAX_ARRAY_CANDIDATES = 8;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     /**
      * Private constructor to prevent instantiation of the utility class.
@@ -29,11 +43,11 @@ public class JsonArraySanitizer {
      * Sanitizes an input string and extracts a valid JSON array. If the input is null, malformed,
      * or does not resemble a JSON array, an empty JSON array ("[]") is returned.
      *
-     * The method performs the following steps:
-     * - Trims unnecessary whitespace from the input string.
-     * - Removes optional wrapping code fences, typically marked by triple backticks.
-     * - Extracts the first bracketed array structure from the modified input.
-     * - Validates whether the extracted string is a valid JSON array structure.
+     * The input is scanned once, by index, without intermediate copies:
+     * - Leading/trailing whitespace and optional wrapping code fences (with an optional language tag) are skipped.
+     * - The first '[' is located and its matching ']' is found, ignoring brackets inside string literals,
+     *   so trailing prose that itself contains ']' is not included.
+     * Only the final array is copied out of the input.
      *
      * @param inputText the input string potentially containing a JSON array. It may include extra
      *                  formatting artifacts like code fences or additional non-JSON content.
@@ -43,14 +57,198 @@ public class JsonArraySanitizer {
     public static String sanitizeToJsonArray(String inputText) {
         if (inputText == null) return EMPTY_JSON_ARRAY;
 
-        String trimmed = inputText.trim();
-        String withoutFences = stripWrappingCodeFences(trimmed);
-        String arrayOnly = extractFirstBracketedArray(withoutFences);
-
-        if (!looksLikeJsonArray(arrayOnly)) {
+        int from = contentStart(inputText);
+        int to = contentEnd(inputText, from);
+        int start = findArrayStart(inputText, from, to);
+        int end = start < 0 ? -1 : findArrayEnd(inputText, start, to);
+        if (end < 0) {
             return EMPTY_JSON_ARRAY;
         }
-        return arrayOnly;
+        return inputText.substring(start, end + 1);
+    }
+
+    /**
+     * Parses the JSON array of strings embedded in the given model response directly into a list,
+     * streaming from the located array bounds with a shared Jackson factory instead of copying
+     * the array out first.
+     *
+     * Top-level bracketed candidates are tried in order, so a bracketed aside in a preamble
+     * (for example "Steps for [Oats]: [...]") does not hide the real array. Scalar
+     * elements are converted to their text as Jackson's {@code List<String>} binding would;
+     * {@code null} elements, nested arrays or objects make a candidate invalid, so no step is ever
+     * {@code null}.
+     *
+     * @param inputText the raw model response; may be {@code null}
+     * @return the parsed steps, or {@code null} if the input contains no parseable array of strings
+     */
+    public static List<String> parseStringArray(CharSequence inputText) {
+        if (inputText == null) return null;
+
+        int from = contentStart(inputText);
+        int to = contentEnd(inputText, from);
+        for (int attempt = 0; attempt < MAX_ARRAY_CANDIDATES; attempt++) {
+            int start = findArrayStart(inputText, from, to);
+            if (start < 0) {
+                return null;
+            }
+            int end = findArrayEnd(inputText, start, to);
+            if (end < 0) {
+                return null;
+            }
+            List<String> steps = readStringArray(inputText, start, end + 1);
+            if (steps != null) {
+                return steps;
+            }
+            // Resume after the rejected candidate so its own nested arrays are not mistaken for steps
+            from = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Parses the JSON object of string arrays embedded in a batched model response, such as
+     * {@code {"1": ["Chop.", "Cook."], "2": ["Whisk."]}}, skipping wrapping code fences and any prose
+     * before the first '{'. Entries whose value is not an array of non-null scalars are left out, so one malformed
+     * entry does not discard the others; a response truncated mid-object keeps the entries completed
+     * before the cut.
+     *
+     * @param inputText the raw model response; may be {@code null}
+     * @return the steps by key, in response order, or {@code null} if the input contains no JSON object
+     */
+    public static Map<String, List<String>> parseStringArrayObject(CharSequence inputText) {
+        if (inputText == null) return null;
+
+        int from = contentStart(inputText);
+        int to = contentEnd(inputText, from);
+        int start = -1;
+        for (int i = from; i < to; i++) {
+            if (inputText.charAt(i) == '{') {
+                start = i;
+                break;
+            }
+        }
+        if (start < 0) {
+            return null;
+        }
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(new CharSequenceReader(inputText, start, to))) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY) {
+                    List<String> values = new ArrayList<>();
+                    boolean scalars = true;
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token == null) {
+                            return entries;
+                        }
+                        if (token.isStructStart()) {
+                            scalars = false;
+                            parser.skipChildren();
+                        } else if (token == JsonToken.VALUE_NULL) {
+                            scalars = false;
+                        } else {
+                            values.add(parser.getText());
+                        }
+                    }
+                    if (scalars) {
+                        entries.put(key, values);
+                    }
+                } else if (value != null && value.isStructStart()) {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // Truncated or malformed past this point; keep what was read
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the index at which meaningful content starts: after leading whitespace and, if
+     * present, an opening code fence and its language tag.
+     *
+     * @param text the input text
+     * @return the index of the first content character
+     */
+    public static int contentStart(CharSequence text) {
+        int i = skipWhitespace(text, 0);
+        if (startsWithFence(text, i)) {
+            i += FENCE.length();
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the exclusive index at which meaningful content ends: before trailing whitespace
+     * and, if present, a closing code fence.
+     *
+     * @param text the input text
+     * @param from the content start returned by {@link #contentStart(CharSequence)}
+     * @return the exclusive end index of the content
+     */
+    public static int contentEnd(CharSequence text, int from) {
+        int end = text.length();
+        while (end > from && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - FENCE.length() >= from && startsWithFence(text, end - FENCE.length())) {
+            end -= FENCE.length();
+        }
+        return end;
+    }
+
+    /**
+     * Finds the first '[' within the given range.
+     *
+     * @param text the input text
+     * @param from the inclusive start of the range
+     * @param to the exclusive end of the range
+     * @return the index of the first '[', or -1 if there is none
+     */
+    public static int findArrayStart(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the ']' that closes the array opened at {@code start}, skipping brackets that appear
+     * inside JSON string literals (including escaped quotes).
+     *
+     * @param text the input text
+     * @param start the index of the opening '['
+     * @param to the exclusive end of the range to search
+     * @return the index of the matching ']', or -1 if the array is not closed within the range
+     */
+    public static int findArrayEnd(CharSequence text, int start, int to) {
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < to; i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -102,4 +300,80 @@ public class JsonArraySanitizer {
     public static boolean looksLikeJsonArray(String text) {
         return text != null && text.startsWith("[") && text.endsWith("]");
     }
-}
\ No newline at end of file
+
+    private static boolean startsWithFence(CharSequence text, int index) {
+        return index + FENCE.length() <= text.length()
+                && text.charAt(index) == '`' && text.charAt(index + 1) == '`' && text.charAt(index + 2) == '`';
+    }
+
+    private static int skipWhitespace(CharSequence text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Streams the array in {@code text[start, end)} into a list of strings.
+     *
+     * @return the elements, or {@code null} if the range is not a JSON array of non-null scalars
+     */
+    private static List<String> readStringArray(CharSequence text, int start, int end) {
+        try (JsonParser parser = JSON_FACTORY.createParser(new CharSequenceReader(text, start, end))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return null;
+            }
+            List<String> values = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null || token.isStructStart() || token == JsonToken.VALUE_NULL) {
+                    return null;
+                }
+                values.add(parser.getText());
+            }
+            return values;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read-only {@code Reader} over a range of a {@code CharSequence}, so the parser can consume
+     * the located array in place.
+     */
+    private static final class CharSequenceReader extends Reader {
+        private final CharSequence text;
+        private final int end;
+        private int position;
+
+        CharSequenceReader(CharSequence text, int start, int end) {
+            this.text = text;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            if (text instanceof String string) {
+                string.getChars(position, position + count, buffer, offset);
+            } else if (text instanceof StringBuilder builder) {
+                builder.getChars(position, position + count, buffer, offset);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = text.charAt(position + i);
+                }
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
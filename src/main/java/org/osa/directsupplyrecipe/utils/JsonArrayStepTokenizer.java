@@ -0,0 +1,144 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.util.function.Consumer;
+
+/**
+ * Incremental tokenizer that extracts the string elements of a JSON array from a stream of
+ * text chunks, emitting each element as soon as its closing quote arrives.
+ *
+ * Anything before the first {@code '['} (such as a code fence or a short preamble) is skipped,
+ * and anything after the matching {@code ']'} is ignored. Non-string elements are skipped.
+ * Standard JSON escapes, including {@code \\uXXXX}, are decoded. Chunk boundaries may fall
+ * anywhere, including inside an escape sequence. A {@code \\u} escape that is not followed by four hex
+ * digits makes the input {@link #isMalformed() malformed}: the element is dropped and nothing more is
+ * emitted, so the caller can fall back to parsing the full response.
+ *
+ * Instances are stateful and not thread-safe; use one per response stream.
+ */
+public class JsonArrayStepTokenizer {
+
+    private enum State { BEFORE_ARRAY, IN_ARRAY, IN_STRING, IN_ESCAPE, IN_UNICODE, DONE, MALFORMED }
+
+    private final Consumer<String> onStep;
+    private final StringBuilder current = new StringBuilder(128);
+    private State state = State.BEFORE_ARRAY;
+    private int unicodeValue;
+    private int unicodeDigits;
+    private int depth;
+    private int emitted;
+
+    /**
+     * Constructs a tokenizer delivering completed elements to the given consumer.
+     *
+     * @param onStep receives each string element of the top-level array, in order
+     */
+    public JsonArrayStepTokenizer(Consumer<String> onStep) {
+        this.onStep = onStep;
+    }
+
+    /**
+     * Consumes the next chunk of response text.
+     *
+     * @param chunk the next piece of the response; may be empty
+     */
+    public void feed(CharSequence chunk) {
+        for (int i = 0, n = chunk.length(); i < n && state != State.DONE && state != State.MALFORMED; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    /**
+     * Returns whether the closing bracket of the top-level array has been seen.
+     *
+     * @return {@code true} once the array is complete
+     */
+    public boolean isComplete() {
+        return state == State.DONE;
+    }
+
+    /**
+     * Returns whether an invalid escape sequence was seen, after which no element is emitted anymore.
+     *
+     * @return {@code true} once the input is known to be malformed
+     */
+    public boolean isMalformed() {
+        return state == State.MALFORMED;
+    }
+
+    /**
+     * Returns the number of elements emitted so far.
+     *
+     * @return the emitted element count
+     */
+    public int getEmittedCount() {
+        return emitted;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case BEFORE_ARRAY -> {
+                if (c == '[') {
+                    state = State.IN_ARRAY;
+                    depth = 1;
+                }
+            }
+            case IN_ARRAY -> {
+                if (c == '"') {
+                    state = State.IN_STRING;
+                } else if (c == '[' || c == '{') {
+                    depth++;
+                } else if (c == ']' || c == '}') {
+                    if (--depth == 0) {
+                        state = State.DONE;
+                    }
+                }
+            }
+            case IN_STRING -> {
+                if (c == '\\') {
+                    state = State.IN_ESCAPE;
+                } else if (c == '"') {
+                    state = State.IN_ARRAY;
+                    if (depth == 1) {
+                        emitted++;
+                        onStep.accept(current.toString());
+                    }
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            case IN_ESCAPE -> {
+                state = State.IN_STRING;
+                switch (c) {
+                    case 'n' -> current.append('\n');
+                    case 't' -> current.append('\t');
+                    case 'r' -> current.append('\r');
+                    case 'b' -> current.append('\b');
+                    case 'f' -> current.append('\f');
+                    case 'u' -> {
+                        state = State.IN_UNICODE;
+                        unicodeValue = 0;
+                        unicodeDigits = 0;
+                    }
+                    default -> current.append(c);
+                }
+            }
+            case IN_UNICODE -> {
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    state = State.MALFORMED;
+                    current.setLength(0);
+                    return;
+                }
+                unicodeValue = (unicodeValue << 4) | digit;
+                if (++unicodeDigits == 4) {
+                    current.append((char) unicodeValue);
+                    state = State.IN_STRING;
+                }
+            }
+            case DONE, MALFORMED -> {
+                // Trailing text after the array, or after a malformed escape, is ignored
+            }
+        }
+    }
+}
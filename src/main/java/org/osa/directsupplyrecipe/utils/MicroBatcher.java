@@ -0,0 +1,130 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects individually submitted items into batches, so work that has a high fixed cost per call
+ * can be done for many items at once.
+ *
+ * A batch is flushed when it reaches {@code maxSize} items, or {@code window} after its first item
+ * was submitted, whichever comes first; a lone item therefore waits at most {@code window}. Each
+ * flushed batch is passed to the handler, which must eventually complete the future of every
+ * {@link Pending} in it. Flushes triggered by size run on the submitting thread, flushes triggered
+ * by the window on a single timer thread, so the handler should hand slow work off elsewhere. If the
+ * handler throws, every future in the batch that is not yet complete fails with that exception.
+ *
+ * @param <T> the item type
+ * @param <R> the per-item result type
+ */
+public class MicroBatcher<T, R> implements AutoCloseable {
+
+    private final int maxSize;
+    private final Duration window;
+    private final Consumer<List<Pending<T, R>>> handler;
+    private final ScheduledExecutorService timer;
+    private List<Pending<T, R>> batch = new ArrayList<>();
+    private ScheduledFuture<?> windowFlush;
+
+    /**
+     * Constructs a MicroBatcher.
+     *
+     * @param name the name of the window timer thread
+     * @param maxSize the number of items that triggers an immediate flush
+     * @param window the longest time the first item of a batch waits for others
+     * @param handler processes each flushed batch
+     */
+    public MicroBatcher(String name, int maxSize, Duration window, Consumer<List<Pending<T, R>>> handler) {
+        if (maxSize <= 0 || window.isNegative()) {
+            throw new IllegalArgumentException("maxSize must be positive and window must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.window = window;
+        this.handler = handler;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Adds an item to the current batch.
+     *
+     * @param item the item to process
+     * @return a future completed by the handler with the item's result
+     */
+    public CompletableFuture<R> submit(T item) {
+        Pending<T, R> pending = new Pending<>(item, new CompletableFuture<>());
+        List<Pending<T, R>> full = null;
+        synchronized (this) {
+            batch.add(pending);
+            if (batch.size() >= maxSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                List<Pending<T, R>> current = batch;
+                windowFlush = timer.schedule(() -> flushIfCurrent(current), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return pending.result();
+    }
+
+    /**
+     * Stops the window timer; items still waiting for their window are never flushed.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void flushIfCurrent(List<Pending<T, R>> expected) {
+        List<Pending<T, R>> due;
+        synchronized (this) {
+            // The batch may already have been flushed for reaching maxSize
+            if (batch != expected) {
+                return;
+            }
+            due = takeBatch();
+        }
+        dispatch(due);
+    }
+
+    private List<Pending<T, R>> takeBatch() {
+        List<Pending<T, R>> taken = batch;
+        batch = new ArrayList<>();
+        if (windowFlush != null) {
+            windowFlush.cancel(false);
+            windowFlush = null;
+        }
+        return taken;
+    }
+
+    private void dispatch(List<Pending<T, R>> due) {
+        try {
+            handler.accept(due);
+        } catch (RuntimeException | Error e) {
+            due.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * An item waiting in a batch, and the future to complete with its result.
+     *
+     * @param item the submitted item
+     * @param result the future returned to the submitter
+     * @param <T> the item type
+     * @param <R> the result type
+     */
+    public record Pending<T, R>(T item, CompletableFuture<R> result) {
+    }
+}
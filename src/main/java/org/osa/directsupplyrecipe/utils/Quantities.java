@@ -0,0 +1,148 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class for reading and writing the ingredient quantities found in recipe text, such as
+ * {@code "200g"}, {@code "1.5 kg"}, {@code "1,5 l"}, {@code "1,000 ml"}, {@code "1/2 cup"} or {@code "1 1/2 cups"}.
+ * A comma followed by exactly three digits groups thousands; any other comma is a decimal separator.
+ *
+ * Units are encoded as a {@code byte} code (see {@link #unitCode(String)}) so parsed quantities can be stored
+ * in primitive arrays; spelling variants share a code ({@code "cup"} and {@code "cups"}, {@code "lb"} and
+ * {@code "lbs"}). The same number and unit syntax is recognized by {@link IngredientNormalizer}.
+ */
+public class Quantities {
+
+    /**
+     * Regular expression of a number with thousands separators, e.g. {@code "2,500"} or {@code "1,000.5"}.
+     */
+    private static final String GROUPED = "\\d{1,3}(?:,\\d{3})+(?:\\.\\d+)?";
+
+    /**
+     * Regular expression of a quantity: a mixed number such as {@code "1 1/2"}, a number with thousands
+     * separators, or an integer or decimal number, optionally a fraction. A decimal comma is not followed by
+     * exactly three digits, which would make it a thousands separator.
+     */
+    static final String NUMBER = "(?:\\d+\\s+\\d+\\s*/\\s*\\d+|" + GROUPED
+            + "|\\d+(?:\\.\\d+|,(?!\\d{3}(?!\\d))\\d+)?(?:\\s*/\\s*\\d+)?)";
+
+    /**
+     * Regular expression of a unit, longest alternatives first where they share a prefix.
+     */
+    static final String UNIT = "kg|g|mg|ml|l|tsp|tbsp|cups?|oz|lbs?";
+
+    /**
+     * Unit code of a quantity without a unit, e.g. {@code "2 eggs"}.
+     */
+    public static final byte NO_UNIT = 0;
+
+    private static final String[] UNITS = {"", "kg", "g", "mg", "ml", "l", "tsp", "tbsp", "cup", "oz", "lb"};
+
+    private static final Pattern LEADING = Pattern.compile(
+            "^\\s*(" + NUMBER + ")(?:(\\s*)(" + UNIT + ")\\b)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern IN_TEXT = Pattern.compile(
+            "(?<![\\d.,/])(" + NUMBER + ")(\\s*)(?:(" + UNIT + ")\\b|(?<=\\s)(\\p{L}+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern GROUPED_NUMBER = Pattern.compile(GROUPED);
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private Quantities() {
+        // Utility class; prevent instantiation
+    }
+
+    /**
+     * Matches the quantity, and unit if any, at the start of a raw ingredient string. Group 1 is the number,
+     * group 3 the unit, which is absent for counts such as {@code "2 eggs"}.
+     *
+     * @param rawIngredient the ingredient as listed in a recipe, e.g. {@code "200g chicken breast"}
+     * @return a matcher positioned on the leading quantity, or {@code null} if the ingredient does not start with one
+     */
+    public static Matcher matchLeading(String rawIngredient) {
+        Matcher matcher = LEADING.matcher(rawIngredient);
+        return matcher.lookingAt() ? matcher : null;
+    }
+
+    /**
+     * Returns a matcher over every quantity followed by a unit or a word in free text, such as an instruction
+     * step. Group 1 is the number and group 2 the space after it; group 3 is the unit, or, for a number
+     * without a unit, group 4 the word that follows it, e.g. {@code "eggs"} in {@code "Crack 4 eggs"}. Such
+     * numbers are mostly times, temperatures or counts of steps, so callers should only treat them as
+     * quantities when the word names an ingredient.
+     *
+     * @param text the text to scan
+     * @return a matcher to iterate with {@link Matcher#find()}
+     */
+    public static Matcher matchInText(CharSequence text) {
+        return IN_TEXT.matcher(text);
+    }
+
+    /**
+     * Parses a number as matched by {@link #matchLeading(String)} or {@link #matchInText(CharSequence)}.
+     *
+     * @param number the number, e.g. {@code "200"}, {@code "1,5"}, {@code "1,000"}, {@code "1/2"} or {@code "1 1/2"}
+     * @return its value; {@code NaN} for a fraction with a zero denominator
+     */
+    public static double parseAmount(String number) {
+        int slash = number.indexOf('/');
+        if (slash < 0) {
+            return GROUPED_NUMBER.matcher(number).matches() ? Double.parseDouble(number.replace(",", ""))
+                    : Double.parseDouble(number.replace(',', '.'));
+        }
+        String[] wholeAndNumerator = WHITESPACE.split(number.substring(0, slash).trim());
+        double whole = wholeAndNumerator.length > 1 ? Double.parseDouble(wholeAndNumerator[0]) : 0;
+        double numerator = Double.parseDouble(wholeAndNumerator[wholeAndNumerator.length - 1].replace(',', '.'));
+        double denominator = Double.parseDouble(number.substring(slash + 1).trim());
+        return denominator == 0 ? Double.NaN : whole + numerator / denominator;
+    }
+
+    /**
+     * Returns the code of a unit, ignoring case and plural spelling.
+     *
+     * @param unit the unit as written, e.g. {@code "Cups"}; {@code null} for none
+     * @return the unit code, {@link #NO_UNIT} if {@code unit} is {@code null} or unknown
+     */
+    public static byte unitCode(String unit) {
+        if (unit == null) {
+            return NO_UNIT;
+        }
+        String folded = unit.toLowerCase(Locale.ROOT);
+        if (folded.equals("cups") || folded.equals("lbs")) {
+            folded = folded.substring(0, folded.length() - 1);
+        }
+        for (byte code = 1; code < UNITS.length; code++) {
+            if (UNITS[code].equals(folded)) {
+                return code;
+            }
+        }
+        return NO_UNIT;
+    }
+
+    /**
+     * Returns the canonical name of a unit code.
+     *
+     * @param code a code returned by {@link #unitCode(String)}
+     * @return the unit, e.g. {@code "g"}; empty for {@link #NO_UNIT}
+     */
+    public static String unitName(byte code) {
+        return UNITS[code];
+    }
+
+    /**
+     * Formats a scaled amount for display: whole numbers from 100 up, one decimal from 10 up, two below,
+     * without trailing zeros.
+     *
+     * @param amount the amount to format
+     * @return the formatted amount, e.g. {@code "4000"}, {@code "12.5"} or {@code "0.75"}
+     */
+    public static String format(double amount) {
+        int scale = amount >= 100 ? 0 : amount >= 10 ? 1 : 2;
+        BigDecimal rounded = BigDecimal.valueOf(amount).setScale(scale, RoundingMode.HALF_UP);
+        return rounded.signum() == 0 ? "0" : rounded.stripTrailingZeros().toPlainString();
+    }
+}
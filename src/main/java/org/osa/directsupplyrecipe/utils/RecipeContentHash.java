@@ -0,0 +1,97 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Utility class for computing a stable content hash of a {@code Recipe}.
+ *
+ * The hash covers every field that influences generated instructions (title, yield and
+ * ingredients, in order), so two recipes with the same hash are guaranteed to produce the
+ * same prompt. Fields are separated with control characters that cannot appear in normal
+ * recipe text, which keeps e.g. {@code ["ab", "c"]} and {@code ["a", "bc"]} distinct.
+ */
+public class RecipeContentHash {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char RECORD_SEPARATOR = '\u001E';
+    private static final char GROUP_SEPARATOR = '\u001D';
+
+    /**
+     * Private constructor to prevent instantiation of the utility class.
+     */
+    private RecipeContentHash() {
+        // Utility class; prevent instantiation
+    }
+
+    /**
+     * Computes the SHA-256 content hash of the given recipe as a lowercase hex string.
+     *
+     * @param recipe the recipe to hash; {@code null} fields are hashed as empty values
+     * @return a 64-character hex string identifying the recipe content
+     */
+    public static String of(Recipe recipe) {
+        return sha256Hex(appendContent(new StringBuilder(128), recipe).toString());
+    }
+
+    /**
+     * Appends the hashed content of the recipe to the given builder, in the same canonical form
+     * used by {@link #of(Recipe)}. Useful for hashing many recipes with a single digest.
+     *
+     * @param sb the builder to append to
+     * @param recipe the recipe whose content is appended
+     * @return the same builder
+     */
+    public static StringBuilder appendContent(StringBuilder sb, Recipe recipe) {
+        sb.append(recipe.getTitle() == null ? "" : recipe.getTitle()).append(FIELD_SEPARATOR);
+        sb.append(recipe.getYield()).append(FIELD_SEPARATOR);
+        if (recipe.getIngredients() != null) {
+            for (String ingredient : recipe.getIngredients()) {
+                sb.append(ingredient).append(RECORD_SEPARATOR);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Computes a SHA-256 hash over the content of all recipes, in order, as a lowercase hex string.
+     * Any added, removed, reordered or edited recipe changes the result.
+     *
+     * @param recipes the recipes of a catalog
+     * @return a 64-character hex string identifying the catalog content
+     */
+    public static String ofCatalog(List<Recipe> recipes) {
+        MessageDigest digest = sha256();
+        StringBuilder sb = new StringBuilder(256);
+        for (Recipe recipe : recipes) {
+            sb.setLength(0);
+            appendContent(sb, recipe).append(GROUP_SEPARATOR);
+            digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Computes the SHA-256 digest of the given text (UTF-8 encoded) as a lowercase hex string.
+     *
+     * @param text the text to hash
+     * @return a 64-character hex string
+     */
+    public static String sha256Hex(String text) {
+        return HexFormat.of().formatHex(sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every compliant JVM ships SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent executions of the same work, keyed by {@code K}.
+ *
+ * The first caller for a key (the leader) runs the task on its own thread; callers that arrive
+ * while it is running wait for and share the leader's result instead of starting their own run.
+ * A failure is delivered to the leader and every waiter, but the key is released before the
+ * result is published, so the next caller after completion always starts a fresh attempt and a
+ * failed run never poisons later ones.
+ *
+ * @param <K> the key type identifying equivalent work
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the task for the given key, or joins the run already in flight for that key.
+     *
+     * @param key the key identifying equivalent work
+     * @param task the work to run if no run is in flight for {@code key}
+     * @return the result of the (possibly shared) run
+     * @throws RuntimeException the exception thrown by the shared run, rethrown as-is when unchecked
+     */
+    public V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        V result;
+        try {
+            result = task.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(result);
+        return result;
+    }
+
+    /**
+     * Starts the asynchronous task for the given key, or joins the run already in flight for that key.
+     * Neither the caller nor the task's thread waits for the other; the key is released when the
+     * task's future completes, before the result is published to the returned future.
+     *
+     * @param key the key identifying equivalent work
+     * @param task starts the work if no run is in flight for {@code key}, returning its future
+     * @return a future of the result of the (possibly shared) run
+     * @throws RuntimeException the exception thrown by {@code task} itself when this caller started the run;
+     *         callers that joined that run receive it through their future instead
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> task) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> started;
+        try {
+            started = task.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((result, failure) -> {
+            inFlight.remove(key, mine);
+            if (failure != null) {
+                mine.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure);
+            } else {
+                mine.complete(result);
+            }
+        });
+        return mine;
+    }
+
+    /**
+     * Returns the number of keys that currently have a run in flight.
+     *
+     * @return the in-flight key count
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package org.osa.directsupplyrecipe.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Deduplicates concurrent runs of the same streaming work, keyed by {@code K}, as {@link SingleFlight} does for
+ * work with a single result.
+ *
+ * The first caller for a key (the leader) starts the task, which publishes items as they are produced. Callers
+ * that arrive while it is running subscribe to the same run: they first receive the items already published,
+ * then the live ones, so every subscriber sees the complete sequence in order. As with {@link SingleFlight}, the
+ * key is released before completion is published, so the next caller after completion always starts a fresh run.
+ *
+ * Publishing never waits for a subscriber: each one has its own queue, drained on the delivery executor, so a
+ * slow consumer delays neither the producer nor the other subscribers. A subscriber whose queue already holds
+ * {@code maxPending} undelivered items when another is published, or whose consumer throws, is detached, and its
+ * future fails, while the run continues for the others. Each subscriber receives its items one at a time and in
+ * order, so consumers need not be thread-safe.
+ *
+ * @param <K> the key type identifying equivalent work
+ * @param <T> the item type
+ */
+public class SingleFlightStream<K, T> {
+
+    private final ConcurrentMap<K, Flight<T>> inFlight = new ConcurrentHashMap<>();
+    private final Executor deliveryExecutor;
+    private final int maxPending;
+
+    /**
+     * Constructs a SingleFlightStream.
+     *
+     * @param deliveryExecutor runs the delivery of items to subscribers; a slow consumer occupies one of its
+     *                         threads while it receives an item
+     * @param maxPending the number of undelivered items a subscriber may fall behind by before it is detached
+     */
+    public SingleFlightStream(Executor deliveryExecutor, int maxPending) {
+        if (maxPending <= 0) {
+            throw new IllegalArgumentException("maxPending must be positive");
+        }
+        this.deliveryExecutor = deliveryExecutor;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Starts the streaming task for the given key, or subscribes to the run already in flight for that key.
+     *
+     * @param key the key identifying equivalent work
+     * @param subscriber receives every item of the run, in order
+     * @param task starts the work if no run is in flight for {@code key}: it is given the consumer to publish
+     *             items to, and returns a future completed when the run ends
+     * @return a future completed once every item was delivered to {@code subscriber} and the run ended, or
+     *         exceptionally if the run failed, {@code subscriber} threw or it fell too far behind
+     * @throws RuntimeException the exception thrown by {@code task} itself when this caller started the run;
+     *         callers that subscribed to that run receive it through their future instead
+     */
+    public CompletableFuture<Void> execute(K key, Consumer<? super T> subscriber,
+                                           Function<Consumer<T>, CompletableFuture<?>> task) {
+        Flight<T> mine = new Flight<>();
+        Flight<T> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing.subscribe(new Subscriber<>(subscriber, deliveryExecutor, maxPending));
+        }
+
+        CompletableFuture<Void> subscription = mine.subscribe(new Subscriber<>(subscriber, deliveryExecutor,
+                maxPending));
+        CompletableFuture<?> started;
+        try {
+            started = task.apply(mine::publish);
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, mine);
+            mine.finish(e);
+            throw e;
+        }
+        started.whenComplete((result, failure) -> {
+            inFlight.remove(key, mine);
+            mine.finish(failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure);
+        });
+        return subscription;
+    }
+
+    /**
+     * Returns the number of keys that currently have a run in flight.
+     *
+     * @return the in-flight key count
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * One run: the items published so far and the subscribers still receiving them. The lock only guards
+     * queueing, never a consumer call.
+     */
+    private static final class Flight<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private final List<Subscriber<T>> subscribers = new ArrayList<>();
+        private boolean finished;
+        private Throwable failure;
+
+        synchronized CompletableFuture<Void> subscribe(Subscriber<T> subscriber) {
+            subscriber.replay(items);
+            if (!finished) {
+                subscribers.add(subscriber);
+            } else {
+                subscriber.finish(failure);
+            }
+            return subscriber.done();
+        }
+
+        synchronized void publish(T item) {
+            items.add(item);
+            subscribers.removeIf(subscriber -> !subscriber.offer(item));
+        }
+
+        void finish(Throwable failure) {
+            List<Subscriber<T>> remaining;
+            synchronized (this) {
+                this.finished = true;
+                this.failure = failure;
+                remaining = new ArrayList<>(subscribers);
+                subscribers.clear();
+            }
+            for (Subscriber<T> subscriber : remaining) {
+                subscriber.finish(failure);
+            }
+        }
+    }
+
+    /**
+     * A consumer of a run, its queue of undelivered items and the future completed when it has received the
+     * whole run. At most one drain task per subscriber is queued or running on the delivery executor.
+     */
+    private static final class Subscriber<T> {
+
+        private final Consumer<? super T> consumer;
+        private final Executor executor;
+        private final int maxPending;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final ArrayDeque<T> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean finished;
+        private Throwable failure;
+
+        Subscriber(Consumer<? super T> consumer, Executor executor, int maxPending) {
+            this.consumer = consumer;
+            this.executor = executor;
+            this.maxPending = maxPending;
+        }
+
+        CompletableFuture<Void> done() {
+            return done;
+        }
+
+        /**
+         * Queues the items published before this subscriber arrived, whatever their number.
+         */
+        void replay(List<T> items) {
+            if (items.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                pending.addAll(items);
+            }
+            schedule();
+        }
+
+        /**
+         * Queues a live item.
+         *
+         * @return whether the subscriber is still attached
+         */
+        boolean offer(T item) {
+            boolean overflow;
+            synchronized (this) {
+                if (done.isDone()) {
+                    return false;
+                }
+                overflow = pending.size() >= maxPending;
+                if (overflow) {
+                    pending.clear();
+                } else {
+                    pending.add(item);
+                }
+            }
+            if (overflow) {
+                done.completeExceptionally(new IllegalStateException(
+                        "Subscriber fell more than " + maxPending + " items behind"));
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        /**
+         * Queues the end of the run, delivered after every queued item.
+         */
+        void finish(Throwable failure) {
+            synchronized (this) {
+                this.finished = true;
+                this.failure = failure;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (draining || done.isDone()) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                T item;
+                Throwable end;
+                synchronized (this) {
+                    item = pending.poll();
+                    if (item == null) {
+                        draining = false;
+                        if (!finished) {
+                            return;
+                        }
+                    }
+                    end = failure;
+                }
+                if (item == null) {
+                    // Completion callbacks run outside the lock, so they cannot stall the producer
+                    if (end != null) {
+                        done.completeExceptionally(end);
+                    } else {
+                        done.complete(null);
+                    }
+                    return;
+                }
+                try {
+                    consumer.accept(item);
+                } catch (RuntimeException e) {
+                    // Left marked as draining, so nothing is delivered to it any more
+                    synchronized (this) {
+                        pending.clear();
+                    }
+                    done.completeExceptionally(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.osa.directsupplyrecipe.utils;
+
+/**
+ * A blocking token bucket rate limiter.
+ *
+ * Tokens are added continuously at {@code ratePerSecond}, up to {@code capacity}; each
+ * {@link #acquire()} takes one token, waiting until one is available. The bucket starts full, so a
+ * burst of up to {@code capacity} acquisitions passes immediately and the long-run rate never exceeds
+ * {@code ratePerSecond}. Waiters are served in no particular order.
+ */
+public class TokenBucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+    private final NanoClock clock;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Constructs a full TokenBucket backed by {@link System#nanoTime()}.
+     *
+     * @param ratePerSecond the number of tokens added per second
+     * @param capacity the maximum number of tokens held, i.e. the largest burst
+     */
+    public TokenBucket(double ratePerSecond, int capacity) {
+        this(ratePerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double ratePerSecond, int capacity, NanoClock clock) {
+        if (ratePerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("rate and capacity must be positive");
+        }
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.refilledAt = clock.nanoTime();
+    }
+
+    /**
+     * Takes a token, waiting for one if the bucket is empty.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquire()) > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is due
+     */
+    synchronized long tryAcquire() {
+        long now = clock.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * ratePerNano);
+        refilledAt = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerNano));
+    }
+
+    /**
+     * Source of monotonic time, replaceable in tests.
+     */
+    interface NanoClock {
+        long nanoTime();
+    }
+}
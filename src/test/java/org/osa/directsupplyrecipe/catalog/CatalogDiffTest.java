@@ -0,0 +1,50 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogDiffTest {
+
+    @Test
+    void classifiesRecipesByContentAndTitle() {
+        Recipe curry = recipe("Indian Curry", 4);
+        Recipe oats = recipe("Overnight Oats", 2);
+        Recipe soup = recipe("Tomato Soup", 2);
+        RecipeCatalog previous = RecipeCatalog.of(List.of(curry, oats, soup));
+        RecipeCatalog next = RecipeCatalog.of(List.of(recipe("Garlic Bread", 2), recipe("overnight oats", 4),
+                recipe("Indian Curry", 4)));
+
+        CatalogDiff diff = CatalogDiff.between(previous, next);
+
+        assertThat(diff.added()).isEqualTo(1);
+        assertThat(diff.changed()).isEqualTo(1);
+        assertThat(diff.removed()).isEqualTo(1);
+        assertThat(diff.unchanged()).isEqualTo(1);
+        assertThat(diff.stale()).containsExactlyInAnyOrder(oats, soup);
+        assertThat(diff.isEmpty()).isFalse();
+    }
+
+    @Test
+    void reorderingIsNotAChange() {
+        RecipeCatalog previous = RecipeCatalog.of(List.of(recipe("Indian Curry", 4), recipe("Tomato Soup", 2)));
+        RecipeCatalog next = RecipeCatalog.of(List.of(recipe("Tomato Soup", 2), recipe("Indian Curry", 4)));
+
+        CatalogDiff diff = CatalogDiff.between(previous, next);
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(diff.unchanged()).isEqualTo(2);
+        assertThat(diff.stale()).isEmpty();
+    }
+
+    private static Recipe recipe(String title, int yield) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(List.of("1 onion"));
+        return recipe;
+    }
+}
@@ -0,0 +1,164 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares catalog startup from {@code recipes.json} against a memory-mapped {@link RecipeSnapshot}.
+ *
+ * For every catalog size, a synthetic catalog is written in both formats, then each format is loaded
+ * in a fresh JVM (so nothing is warm or already paged in by the JIT) a few times. The report shows
+ * the median time from the start of loading until the indexed {@link RecipeCatalog} is ready, and the
+ * heap still retained by the catalog after a full GC.
+ *
+ * Run with {@code gradle catalogStartupBenchmark}, optionally with
+ * {@code -Psizes=10000,100000,1000000 -Pruns=3}.
+ */
+public final class CatalogStartupBenchmark {
+
+    private static final String[] DISHES = {"Stir-Fry", "Omelette", "Oats", "Curry", "Salad", "Soup", "Stew", "Tacos",
+            "Risotto", "Pasta", "Casserole", "Frittata", "Bowl", "Wrap", "Bake", "Skillet"};
+    private static final String[] UNITS = {"g", "ml", "tsp", "tbsp", "cup"};
+    private static final int INGREDIENT_NAMES = 2000;
+
+    private CatalogStartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("measure")) {
+            measure(args[1], Path.of(args[2]));
+            return;
+        }
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String childHeap = args.length > 2 ? args[2] : "-Xmx4g";
+
+        Path dir = Files.createTempDirectory("catalog-benchmark");
+        System.out.printf("%-10s %-9s %12s %14s %14s%n", "recipes", "format", "file (MB)", "ready (ms)", "retained (MB)");
+        for (int size : sizes) {
+            List<Recipe> recipes = syntheticCatalog(size);
+            Path json = dir.resolve(size + ".json");
+            Path snapshot = dir.resolve(size + ".snapshot");
+            new ObjectMapper().writeValue(json.toFile(), recipes);
+            RecipeSnapshot.write(recipes, snapshot);
+
+            for (String format : List.of("json", "snapshot")) {
+                Path file = format.equals("json") ? json : snapshot;
+                long[] readyMillis = new long[runs];
+                long[] retainedBytes = new long[runs];
+                for (int run = 0; run < runs; run++) {
+                    long[] result = fork(childHeap, format, file);
+                    readyMillis[run] = result[0];
+                    retainedBytes[run] = result[1];
+                }
+                System.out.printf("%-10d %-9s %12.1f %14d %14.1f%n", size, format, Files.size(file) / 1e6,
+                        median(readyMillis), median(retainedBytes) / 1e6);
+            }
+            Files.delete(json);
+            Files.delete(snapshot);
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Loads one catalog in this JVM and prints the time to ready and the retained heap.
+     */
+    private static void measure(String format, Path file) throws IOException {
+        long baseline = usedHeapAfterGc();
+        long start = System.nanoTime();
+        RecipeCatalog catalog;
+        if (format.equals("json")) {
+            try (InputStream in = Files.newInputStream(file)) {
+                catalog = RecipeCatalog.of(new ObjectMapper().<List<Recipe>>readValue(in, new TypeReference<>() {}));
+            }
+        } else {
+            catalog = RecipeCatalog.of(RecipeSnapshot.open(file));
+        }
+        long readyMillis = (System.nanoTime() - start) / 1_000_000;
+        long retained = usedHeapAfterGc() - baseline;
+        if (catalog.findByTitle(catalog.getRecipes().get(catalog.size() / 2).getTitle()) == null) {
+            throw new IllegalStateException("Catalog lookup failed");
+        }
+        Reference.reachabilityFence(catalog);
+        System.out.println(readyMillis + " " + retained);
+    }
+
+    private static long[] fork(String heap, String format, Path file) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                heap, "-cp", System.getProperty("java.class.path"), CatalogStartupBenchmark.class.getName(),
+                "measure", format, file.toString())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String line;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = out.readLine();
+        }
+        if (process.waitFor() != 0 || line == null) {
+            throw new IllegalStateException("Measurement of " + file + " failed");
+        }
+        return Arrays.stream(line.trim().split(" ")).mapToLong(Long::parseLong).toArray();
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * A deterministic catalog of unique titles over a shared vocabulary of ingredients, generated on
+     * access so even a million recipes can be written without holding them in memory.
+     */
+    private static List<Recipe> syntheticCatalog(int size) {
+        List<String> ingredientNames = new ArrayList<>(INGREDIENT_NAMES);
+        for (int i = 0; i < INGREDIENT_NAMES; i++) {
+            ingredientNames.add("ingredient " + Integer.toString(i, 36) + (i % 3 == 0 ? " leaves" : ""));
+        }
+        return new AbstractList<>() {
+            @Override
+            public Recipe get(int index) {
+                Random random = new Random(index);
+                Recipe recipe = new Recipe();
+                recipe.setTitle("Recipe " + index + " " + DISHES[random.nextInt(DISHES.length)]);
+                recipe.setYield(1 + random.nextInt(8));
+                List<String> ingredients = new ArrayList<>();
+                for (int i = 4 + random.nextInt(8); i > 0; i--) {
+                    // Skewed towards common ingredients, like real recipes
+                    int name = (int) (INGREDIENT_NAMES * Math.pow(random.nextDouble(), 3));
+                    ingredients.add((5 * (1 + random.nextInt(40))) + UNITS[random.nextInt(UNITS.length)] + " "
+                            + ingredientNames.get(name));
+                }
+                recipe.setIngredients(ingredients);
+                return recipe;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientIndexTest {
+
+    private final List<Recipe> recipes = List.of(
+            recipe("Chicken Stir-Fry", "30g olive oil", "200g chicken breast", "500g broccoli florets", "10g garlic"),
+            recipe("Veggie Omelette", "100g large eggs", "40g diced onion", "3g Salt and pepper (to taste)"),
+            recipe("Overnight Oats", "160g rolled oats", "1000g almond milk", "60g honey"),
+            recipe("Honey Garlic Chicken", "400g chicken thighs", "60g honey", "15g garlic"));
+
+    @Test
+    void matchesNormalizedNamesAndWords() {
+        RecipeCatalog catalog = RecipeCatalog.of(recipes);
+
+        assertThat(titles(catalog.findByIngredients(List.of("chicken", "garlic"), List.of())))
+                .containsExactly("Chicken Stir-Fry", "Honey Garlic Chicken");
+        assertThat(titles(catalog.findByIngredients(List.of("chicken", "garlic"), List.of("honey"))))
+                .containsExactly("Chicken Stir-Fry");
+        assertThat(titles(catalog.findByIngredients(List.of("Chicken Breast"), List.of())))
+                .containsExactly("Chicken Stir-Fry");
+        assertThat(titles(catalog.findByIngredients(List.of("egg", "salt"), List.of())))
+                .containsExactly("Veggie Omelette");
+        assertThat(titles(catalog.findByIngredients(List.of("oats"), List.of())))
+                .containsExactly("Overnight Oats");
+    }
+
+    @Test
+    void matchesSingularQueriesAgainstIrregularPlurals() {
+        RecipeCatalog catalog = RecipeCatalog.of(List.of(
+                recipe("Summer Stew", "800g tomatoes", "300g potatoes", "100g cherries", "2 peaches", "4 radishes"),
+                recipe("Apple Pie", "2 apples", "2 pie crusts")));
+
+        for (String query : List.of("tomato", "tomatoes", "potato", "cherry", "peach", "radish")) {
+            assertThat(titles(catalog.findByIngredients(List.of(query), List.of()))).as(query)
+                    .containsExactly("Summer Stew");
+        }
+        assertThat(titles(catalog.findByIngredients(List.of("apple", "pie"), List.of())))
+                .containsExactly("Apple Pie");
+    }
+
+    @Test
+    void excludesOnlyAndUnknownTerms() {
+        RecipeCatalog catalog = RecipeCatalog.of(recipes);
+
+        assertThat(titles(catalog.findByIngredients(List.of(), List.of("honey", "saffron"))))
+                .containsExactly("Chicken Stir-Fry", "Veggie Omelette");
+        assertThat(catalog.findByIngredients(List.of("saffron"), List.of())).isEmpty();
+    }
+
+    @Test
+    void denseAndSparsePostingsAgree() {
+        List<Recipe> large = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            List<String> ingredients = new ArrayList<>(List.of("5g salt"));
+            if (i % 2 == 0) ingredients.add("100g chicken breast");
+            if (i % 3 == 0) ingredients.add("10g garlic");
+            if (i % 1000 == 0) ingredients.add("1g saffron");
+            large.add(recipe("Recipe " + i, ingredients.toArray(String[]::new)));
+        }
+        IngredientIndex index = IngredientIndex.build(large);
+
+        BitSet chickenGarlic = index.query(List.of("chicken", "garlic"), List.of());
+        assertThat(chickenGarlic.cardinality()).isEqualTo(1667);
+        assertThat(chickenGarlic.stream().allMatch(id -> id % 6 == 0)).isTrue();
+
+        BitSet saffronNoGarlic = index.query(List.of("saffron", "salt"), List.of("garlic"));
+        assertThat(saffronNoGarlic.stream().boxed().toList()).containsExactly(1000, 2000, 4000, 5000, 7000, 8000);
+
+        assertThat(index.query(List.of(), List.of("salt")).isEmpty()).isTrue();
+    }
+
+    private static List<String> titles(List<Recipe> recipes) {
+        return recipes.stream().map(Recipe::getTitle).toList();
+    }
+
+    private static Recipe recipe(String title, String... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(2);
+        recipe.setIngredients(List.of(ingredients));
+        return recipe;
+    }
+}
@@ -0,0 +1,122 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngredientQuantitiesTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<Recipe> recipes = List.of(
+            recipe("Pancakes", 4, "1/2 cup of milk", "1,5 kg flour", "2 eggs", "Salt (to taste)"),
+            recipe("Chicken Stir-Fry", 2, "200g chicken breast", "60g soy sauce", "60g honey"),
+            recipe("Shakshuka", 2, "1 1/2 cups tomato sauce", "4 eggs", "2 cloves garlic"),
+            recipe("Country Loaf", 2, "1,000g flour", "2,500 ml water", "1,5 kg rye flour"));
+
+    @Test
+    void parsesQuantityUnitAndName() {
+        IngredientQuantities quantities = IngredientQuantities.build(recipes);
+
+        assertThat(quantities.ingredientCount(0)).isEqualTo(4);
+        assertThat(quantities.amount(0, 0)).isEqualTo(0.5);
+        assertThat(quantities.unit(0, 0)).isEqualTo("cup");
+        assertThat(quantities.name(0, 0)).isEqualTo("milk");
+        assertThat(quantities.amount(0, 1)).isEqualTo(1.5);
+        assertThat(quantities.unit(0, 1)).isEqualTo("kg");
+        assertThat(quantities.amount(0, 2)).isEqualTo(2);
+        assertThat(quantities.unit(0, 2)).isEmpty();
+        assertThat(quantities.name(0, 2)).isEqualTo("eggs");
+        assertThat(quantities.amount(0, 3)).isNaN();
+        assertThat(quantities.amount(1, 0)).isEqualTo(200);
+        assertThat(quantities.unit(1, 0)).isEqualTo("g");
+        assertThat(quantities.name(1, 0)).isEqualTo("chicken breast");
+    }
+
+    @Test
+    void scalesIngredientsAndTheQuantitiesStepsMention() {
+        ScaledRecipe pancakes = RecipeCatalog.of(recipes).scale("pancakes", 6);
+
+        assertThat(pancakes.getRecipe().getYield()).isEqualTo(6);
+        assertThat(pancakes.getRecipe().getIngredients())
+                .containsExactly("0.75 cup of milk", "2.25 kg flour", "3 eggs", "Salt (to taste)");
+        assertThat(pancakes.getBase().getYield()).isEqualTo(4);
+
+        ScaledRecipe stirFry = RecipeCatalog.of(recipes).scale("Chicken Stir-Fry", 5);
+        assertThat(stirFry.scaleSteps(List.of(
+                "Slice 200 g chicken breast into 2 cm strips.",
+                "Whisk 60g soy sauce with 60g honey and sear at 200C for 5 minutes.",
+                "Add 10g sesame seeds.")))
+                .containsExactly(
+                        "Slice 500 g chicken breast into 2 cm strips.",
+                        "Whisk 150g soy sauce with 150g honey and sear at 200C for 5 minutes.",
+                        "Add 10g sesame seeds.");
+    }
+
+    @Test
+    void scalesMixedNumbersAndCountsInIngredientsAndSteps() {
+        IngredientQuantities quantities = IngredientQuantities.build(recipes);
+        assertThat(quantities.amount(2, 0)).isEqualTo(1.5);
+        assertThat(quantities.unit(2, 0)).isEqualTo("cup");
+        assertThat(quantities.name(2, 0)).isEqualTo("tomato sauce");
+
+        ScaledRecipe shakshuka = RecipeCatalog.of(recipes).scale("Shakshuka", 3);
+        assertThat(shakshuka.getRecipe().getIngredients())
+                .containsExactly("2.25 cups tomato sauce", "6 eggs", "3 cloves garlic");
+        assertThat(shakshuka.scaleSteps(List.of(
+                "Simmer 1 1/2 cups tomato sauce with 2 cloves garlic for 10 minutes.",
+                "Crack 4 eggs into 4 wells and cook for 2 minutes.")))
+                .containsExactly(
+                        "Simmer 2.25 cups tomato sauce with 3 cloves garlic for 10 minutes.",
+                        "Crack 6 eggs into 4 wells and cook for 2 minutes.");
+    }
+
+    @Test
+    void readsACommaBeforeThreeDigitsAsAThousandsSeparator() {
+        IngredientQuantities quantities = IngredientQuantities.build(recipes);
+        assertThat(quantities.amount(3, 0)).isEqualTo(1000);
+        assertThat(quantities.name(3, 0)).isEqualTo("flour");
+        assertThat(quantities.amount(3, 1)).isEqualTo(2500);
+        assertThat(quantities.amount(3, 2)).isEqualTo(1.5);
+
+        ScaledRecipe loaf = RecipeCatalog.of(recipes).scale("Country Loaf", 3);
+        assertThat(loaf.getRecipe().getIngredients())
+                .containsExactly("1500g flour", "3750 ml water", "2.25 kg rye flour");
+        assertThat(loaf.scaleStep("Mix 1,000g flour with 2,500 ml water, then fold in 1,5 kg rye flour."))
+                .isEqualTo("Mix 1500g flour with 3750 ml water, then fold in 2.25 kg rye flour.");
+    }
+
+    @Test
+    void snapshotCatalogScalesLikeInMemoryCatalog() throws Exception {
+        Path file = dir.resolve("recipes.snapshot");
+        RecipeSnapshot.write(recipes, file);
+
+        assertThat(RecipeCatalog.of(RecipeSnapshot.open(file)).scale("Pancakes", 8).getRecipe())
+                .isEqualTo(RecipeCatalog.of(recipes).scale("Pancakes", 8).getRecipe());
+    }
+
+    @Test
+    void rejectsYieldsThatCannotBeScaled() {
+        RecipeCatalog catalog = RecipeCatalog.of(List.of(recipe("Stock", 0, "1 l water")));
+
+        assertThat(catalog.scale("Soup", 4)).isNull();
+        assertThatThrownBy(() -> catalog.scale("Stock", 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RecipeCatalog.of(recipes).scale("Pancakes", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Recipe recipe(String title, int yield, String... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(List.of(ingredients));
+        return recipe;
+    }
+}
@@ -0,0 +1,71 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeCatalogTest {
+
+    @Test
+    void findsTitlesIgnoringCaseAndFirstDuplicateWins() {
+        Recipe first = recipe("Chicken Stir-Fry", 2);
+        RecipeCatalog catalog = RecipeCatalog.of(List.of(first, recipe("chicken stir-fry", 4), recipe("Overnight Oats", 4)));
+
+        assertThat(catalog.findByTitle("CHICKEN STIR-FRY")).isSameAs(first);
+        assertThat(catalog.findByTitle("overnight oats").getYield()).isEqualTo(4);
+        assertThat(catalog.findByTitle("Beef Wellington")).isNull();
+        assertThat(catalog.findByTitle(null)).isNull();
+        assertThat(catalog.size()).isEqualTo(3);
+    }
+
+    @Test
+    void foldingIgnoresDefaultLocale() {
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            RecipeCatalog catalog = RecipeCatalog.of(List.of(recipe("Indian Curry", 4)));
+            assertThat(catalog.findByTitle("INDIAN CURRY")).isNotNull();
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    void prefixSearchIsOrderedAndBounded() {
+        RecipeCatalog catalog = RecipeCatalog.of(List.of(recipe("Chicken Stir-Fry", 2), recipe("Overnight Oats", 4),
+                recipe("Chicken Curry", 4), recipe("Chickpea Salad", 2), recipe("Veggie Omelette", 1)));
+
+        assertThat(catalog.findByTitlePrefix("chick", 10)).extracting(Recipe::getTitle)
+                .containsExactly("Chicken Curry", "Chicken Stir-Fry", "Chickpea Salad");
+        assertThat(catalog.findByTitlePrefix("CHICKEN", 1)).extracting(Recipe::getTitle)
+                .containsExactly("Chicken Curry");
+        assertThat(catalog.findByTitlePrefix("zzz", 10)).isEmpty();
+        assertThat(catalog.findByTitlePrefix(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void indexesLargeCatalogs() {
+        List<Recipe> recipes = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            recipes.add(recipe(String.format("Recipe %06d", i), 1));
+        }
+        RecipeCatalog catalog = RecipeCatalog.of(recipes);
+
+        assertThat(catalog.findByTitle("recipe 123456")).isSameAs(recipes.get(123456));
+        assertThat(catalog.findByTitlePrefix("Recipe 19999", 50)).hasSize(10);
+        assertThat(catalog.findByTitlePrefix("Recipe 1", 50)).hasSize(50);
+    }
+
+    private static Recipe recipe(String title, int yield) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(List.of());
+        return recipe;
+    }
+}
@@ -0,0 +1,79 @@
+package org.osa.directsupplyrecipe.catalog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecipeSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<Recipe> recipes = List.of(
+            recipe("Chicken Stir-Fry", 2, "30g olive oil", "200g chicken breast", "10g garlic"),
+            recipe("Crème Brûlée", 4, "500ml cream", "6 eggs", "100g sugar"),
+            recipe("Garlic Bread", 2, "1 baguette", "10g garlic", "30g olive oil"),
+            recipe(null, 1, (String[]) null));
+
+    @Test
+    void roundTripsRecipesAndInternsStrings() throws IOException {
+        Path path = dir.resolve("recipes.snapshot");
+        RecipeSnapshot.write(recipes, path);
+        RecipeSnapshot snapshot = RecipeSnapshot.open(path);
+
+        assertThat(snapshot.size()).isEqualTo(4);
+        assertThat(snapshot.getRecipes()).isEqualTo(recipes);
+        assertThat(snapshot.getRecipes().get(3).getIngredients()).isNull();
+        // Shared ingredients are stored once in the string table
+        assertThat(Files.readString(path, StandardCharsets.ISO_8859_1).split("30g olive oil", -1))
+                .hasSize(2);
+    }
+
+    @Test
+    void catalogOverSnapshotMatchesCatalogOverJsonRecipes() throws IOException {
+        Path path = dir.resolve("recipes.snapshot");
+        RecipeSnapshot.write(recipes, path);
+        RecipeCatalog mapped = RecipeCatalog.of(RecipeSnapshot.open(path));
+        RecipeCatalog loaded = RecipeCatalog.of(recipes);
+
+        assertThat(mapped.getVersion()).isEqualTo(loaded.getVersion());
+        assertThat(mapped.findByTitle("crème brûlée")).isEqualTo(loaded.findByTitle("crème brûlée"));
+        assertThat(mapped.findByTitlePrefix("c", 10)).isEqualTo(loaded.findByTitlePrefix("c", 10));
+        assertThat(mapped.findByIngredients(List.of("garlic"), List.of("chicken")))
+                .isEqualTo(loaded.findByIngredients(List.of("garlic"), List.of("chicken")))
+                .extracting(Recipe::getTitle).containsExactly("Garlic Bread");
+        assertThat(mapped.getIngredientIndex().termCount()).isEqualTo(loaded.getIngredientIndex().termCount());
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedFiles() throws IOException {
+        Path foreign = dir.resolve("recipes.json");
+        Files.writeString(foreign, "[{\"title\": \"Overnight Oats\"}]");
+        assertThatThrownBy(() -> RecipeSnapshot.open(foreign)).isInstanceOf(IOException.class);
+
+        Path path = dir.resolve("recipes.snapshot");
+        RecipeSnapshot.write(recipes, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Path truncated = dir.resolve("truncated.snapshot");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThatThrownBy(() -> RecipeSnapshot.open(truncated)).isInstanceOf(IOException.class);
+    }
+
+    private static Recipe recipe(String title, int yield, String... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(ingredients == null ? null : List.of(ingredients));
+        return recipe;
+    }
+}
@@ -0,0 +1,108 @@
+package org.osa.directsupplyrecipe.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"instruction.generator=stub", "instruction.stub.latency=0ms"})
+@AutoConfigureMockMvc
+class RecipeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void listsAllRecipesWithStrongEtag() throws Exception {
+        streamed(get("/recipe"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(containsString("W/"))))
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].title").value("Chicken Stir-Fry"))
+                .andExpect(jsonPath("$[0].yield").value(2))
+                .andExpect(jsonPath("$[0].ingredients", hasSize(7)));
+    }
+
+    @Test
+    void returnsNotModifiedForCurrentEtag() throws Exception {
+        String etag = mockMvc.perform(get("/recipe")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/recipe").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(request().asyncNotStarted());
+    }
+
+    @Test
+    void paginatesAndProjectsFields() throws Exception {
+        streamed(get("/recipe").param("fields", "title").param("limit", "2"))
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(header().string(HttpHeaders.LINK, containsString("offset=2")))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].title").value("Veggie Omelette"))
+                .andExpect(jsonPath("$[1].yield").doesNotExist())
+                .andExpect(jsonPath("$[1].ingredients").doesNotExist());
+
+        streamed(get("/recipe").param("offset", "2").param("limit", "2"))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Overnight Oats"));
+    }
+
+    @Test
+    void filtersByIngredient() throws Exception {
+        streamed(get("/recipe").param("includes", "olive oil").param("excludes", "egg"))
+                .andExpect(header().string("X-Total-Count", "1"))
+                .andExpect(jsonPath("$[0].title").value("Chicken Stir-Fry"));
+    }
+
+    @Test
+    void rejectsInvalidPagingAndFields() throws Exception {
+        mockMvc.perform(get("/recipe").param("fields", "calories")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/recipe").param("limit", "0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void generatesInstructionsAsynchronously() throws Exception {
+        streamed(get("/recipe/{name}/instructions", "Overnight Oats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("Gather all ingredients for Overnight Oats."));
+    }
+
+    @Test
+    void scalesRecipeAndInstructionsToRequestedYield() throws Exception {
+        mockMvc.perform(get("/recipe/{name}", "Overnight Oats").param("yield", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.yield").value(10))
+                .andExpect(jsonPath("$.ingredients[0]").value("400g rolled oats"))
+                .andExpect(jsonPath("$.ingredients[1]").value("2500g almond milk"));
+
+        streamed(get("/recipe/{name}/instructions", "Overnight Oats").param("yield", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1]").value("Prepare the 400g rolled oats."));
+
+        mockMvc.perform(get("/recipe/{name}", "Overnight Oats").param("yield", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions streamed(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
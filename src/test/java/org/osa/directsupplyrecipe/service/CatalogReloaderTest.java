@@ -0,0 +1,116 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osa.directsupplyrecipe.config.RecipeConfig;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class CatalogReloaderTest {
+
+    private static final String MODEL = RecipeServiceFixture.MODEL;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadKeepsInstructionsOfUnchangedRecipesOnly() throws IOException {
+        Path file = dir.resolve("recipes.json");
+        write(file, recipe("Garlic Bread", 2), recipe("Overnight Oats", 2));
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), "", 1000, MAPPER);
+        RecipeConfig config = newConfig(file);
+        RecipeService service = newService(config, cache);
+        Recipe bread = service.getRecipe("Garlic Bread");
+        Recipe oats = service.getRecipe("Overnight Oats");
+        cache.put(cache.keyFor(bread, MODEL), List.of("Toast the bread."));
+        cache.put(cache.keyFor(oats, MODEL), List.of("Soak the oats."));
+        String version = service.getCatalogVersion();
+
+        write(file, recipe("Garlic Bread", 2), recipe("Overnight Oats", 4), recipe("Tomato Soup", 2));
+        CatalogReloadResult result = newReloader(service, config, false).reload();
+
+        assertThat(result.previousVersion()).isEqualTo(version);
+        assertThat(result.version()).isEqualTo(service.getCatalogVersion()).isNotEqualTo(version);
+        assertThat(result.recipes()).isEqualTo(3);
+        assertThat(List.of(result.added(), result.changed(), result.removed())).containsExactly(1, 1, 0);
+        assertThat(service.getRecipe("overnight oats").getYield()).isEqualTo(4);
+        assertThat(cache.contains(cache.keyFor(bread, MODEL))).isTrue();
+        assertThat(cache.contains(cache.keyFor(oats, MODEL))).isFalse();
+    }
+
+    @Test
+    void keepsServingTheCurrentCatalogWhenTheSourceIsBroken() throws IOException {
+        Path file = dir.resolve("recipes.json");
+        write(file, recipe("Garlic Bread", 2));
+        RecipeConfig config = newConfig(file);
+        RecipeService service = newService(config, new InstructionCache(100, Duration.ofHours(1), "", 1000, MAPPER));
+        String version = service.getCatalogVersion();
+
+        Files.writeString(file, "[{\"title\": ");
+
+        assertThatThrownBy(() -> newReloader(service, config, false).reload()).isInstanceOf(IOException.class);
+        assertThat(service.getCatalogVersion()).isEqualTo(version);
+        assertThat(service.getRecipe("Garlic Bread")).isNotNull();
+    }
+
+    @Test
+    void reloadsWhenTheWatchedFileIsReplaced() throws IOException {
+        Path file = dir.resolve("recipes.json");
+        write(file, recipe("Garlic Bread", 2));
+        RecipeConfig config = newConfig(file);
+        RecipeService service = newService(config, new InstructionCache(100, Duration.ofHours(1), "", 1000, MAPPER));
+        CatalogReloader reloader = newReloader(service, config, true);
+        reloader.startWatching();
+        try {
+            Path staged = dir.resolve("recipes.json.tmp");
+            write(staged, recipe("Garlic Bread", 2), recipe("Tomato Soup", 2));
+            Files.move(staged, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            await().atMost(Duration.ofSeconds(20)).until(() -> service.getRecipe("Tomato Soup") != null);
+            assertThat(service.getRecipes()).hasSize(2);
+        } finally {
+            reloader.close();
+        }
+    }
+
+    private static RecipeConfig newConfig(Path file) {
+        return new RecipeConfig(new DefaultResourceLoader(), MAPPER, "", file.toString());
+    }
+
+    private static RecipeService newService(RecipeConfig config, InstructionCache cache) throws IOException {
+        return RecipeServiceFixture.of(config.loadRecipeCatalog())
+                .cache(cache)
+                .limiter(new GenerationLimiter(1, 1, Duration.ofSeconds(1)))
+                .build();
+    }
+
+    private static CatalogReloader newReloader(RecipeService service, RecipeConfig config, boolean watch) {
+        return new CatalogReloader(service, config, new InstructionPrewarmer(service, 1, 1, 1, false), watch,
+                Duration.ofMillis(100), false);
+    }
+
+    private static void write(Path file, Recipe... recipes) throws IOException {
+        MAPPER.writeValue(file.toFile(), List.of(recipes));
+    }
+
+    private static Recipe recipe(String title, int yield) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(List.of("1 onion"));
+        return recipe;
+    }
+}
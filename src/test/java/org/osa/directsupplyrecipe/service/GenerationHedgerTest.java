@@ -0,0 +1,159 @@
+package org.osa.directsupplyrecipe.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class GenerationHedgerTest {
+
+    @Test
+    void hedgesASlowCallAndCancelsTheLoser() throws Exception {
+        GenerationHedger hedger = new GenerationHedger(true, Duration.ofMillis(50), 0.95, 1, 4);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch loserInterrupted = new CountDownLatch(1);
+        try {
+            long start = System.nanoTime();
+            String result = hedger.call(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    try {
+                        Thread.sleep(10_000);
+                    } catch (InterruptedException e) {
+                        loserInterrupted.countDown();
+                    }
+                    return "slow";
+                }
+                return "hedged";
+            });
+
+            assertThat(result).isEqualTo("hedged");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(loserInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hedger.stats()).extracting(GenerationHedger.Stats::calls, GenerationHedger.Stats::hedges,
+                    GenerationHedger.Stats::wins).containsExactly(1L, 1L, 1L);
+        } finally {
+            hedger.close();
+        }
+    }
+
+    @Test
+    void budgetBoundsTheExtraCalls() {
+        GenerationHedger hedger = new GenerationHedger(true, Duration.ofMillis(1), 0.95, 0.05, 4);
+        try {
+            for (int i = 0; i < 60; i++) {
+                hedger.call(() -> {
+                    sleep(10);
+                    return "steps";
+                });
+            }
+
+            GenerationHedger.Stats stats = hedger.stats();
+            assertThat(stats.hedges()).isBetween(1L, 3L);
+            // Once the delay adapts to the 10ms latency, a primary may finish right at it and need no hedge
+            assertThat(stats.hedges() + stats.skipped()).isBetween(50L, 60L);
+            assertThat(stats.hedgeRate()).isLessThanOrEqualTo(0.05);
+        } finally {
+            hedger.close();
+        }
+    }
+
+    @Test
+    void derivesTheDelayFromObservedLatenciesAndDoesNotHedgeFailures() {
+        GenerationHedger hedger = new GenerationHedger(true, Duration.ZERO, 0.95, 1, 4);
+        try {
+            assertThat(hedger.getDelay()).isNull();
+            for (int i = 0; i < GenerationHedger.MIN_SAMPLES; i++) {
+                int call = i;
+                hedger.call(() -> {
+                    sleep(call == 0 ? 200 : 5);
+                    return "steps";
+                });
+            }
+
+            assertThat(hedger.getDelay()).isBetween(Duration.ofMillis(5), Duration.ofMillis(200));
+            assertThat(hedger.stats().hedges()).isZero();
+            assertThatThrownBy(() -> hedger.call(() -> {
+                throw new IllegalStateException("upstream down");
+            })).isInstanceOf(IllegalStateException.class);
+            assertThat(hedger.stats().hedges()).isZero();
+        } finally {
+            hedger.close();
+        }
+    }
+
+    @Test
+    void capsExtraAttemptsWhileALoserIgnoresItsInterrupt() throws Exception {
+        GenerationHedger hedger = new GenerationHedger(true, Duration.ofMillis(50), 0.95, 1, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch upstreamAnswers = new CountDownLatch(1);
+        // Odd attempts are primaries stuck in a read that ignores interrupts, like the SDK's blocking call
+        Supplier<String> upstream = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                if (attempts.incrementAndGet() % 2 == 0) {
+                    return "hedged";
+                }
+                awaitUninterruptibly(upstreamAnswers);
+                return "slow";
+            } finally {
+                running.decrementAndGet();
+            }
+        };
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(hedger.call(upstream)).isEqualTo("hedged");
+
+            // The cancelled primary still holds its connection, so the next slow call gets no hedge
+            Future<String> second = caller.submit(() -> hedger.call(upstream));
+            await().atMost(Duration.ofSeconds(5)).until(() -> hedger.stats().skipped() == 1);
+            assertThat(second).isNotDone();
+            upstreamAnswers.countDown();
+
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("slow");
+            assertThat(attempts).hasValue(3);
+            assertThat(maxRunning).hasValue(2);
+            assertThat(hedger.stats()).extracting(GenerationHedger.Stats::hedges, GenerationHedger.Stats::skipped)
+                    .containsExactly(1L, 1L);
+            assertThat(hedger.getMaxExtraAttempts()).isEqualTo(1);
+        } finally {
+            upstreamAnswers.countDown();
+            caller.shutdownNow();
+            hedger.close();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
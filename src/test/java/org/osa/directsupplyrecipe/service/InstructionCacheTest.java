@@ -0,0 +1,194 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InstructionCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MutableClock clock = new MutableClock();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keyChangesWithRecipeContentAndModel() {
+        InstructionCache cache = new InstructionCache(10, Duration.ofHours(1), "", 1000, objectMapper, clock);
+        Recipe recipe = recipe("Overnight Oats", 4, "160g rolled oats");
+        Recipe edited = recipe("Overnight Oats", 4, "200g rolled oats");
+
+        assertThat(cache.keyFor(recipe, "m1")).isEqualTo(cache.keyFor(recipe("Overnight Oats", 4, "160g rolled oats"), "m1"));
+        assertThat(cache.keyFor(recipe, "m1")).isNotEqualTo(cache.keyFor(edited, "m1"));
+        assertThat(cache.keyFor(recipe, "m1")).isNotEqualTo(cache.keyFor(recipe, "m2"));
+    }
+
+    @Test
+    void countsHitsMissesAndSizeEvictions() {
+        InstructionCache cache = new InstructionCache(2, Duration.ofHours(1), "", 1000, objectMapper, clock);
+        cache.put("a", List.of("step a"));
+        cache.put("b", List.of("step b"));
+        assertThat(cache.get("a")).contains(List.of("step a"));
+        cache.put("c", List.of("step c"));
+
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("c")).isPresent();
+
+        InstructionCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(3);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.evictions()).isEqualTo(1);
+        assertThat(stats.memorySize()).isEqualTo(2);
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        InstructionCache cache = new InstructionCache(10, Duration.ofMinutes(5), "", 1000, objectMapper, clock);
+        cache.put("a", List.of("step a"));
+        clock.advance(Duration.ofMinutes(4));
+        assertThat(cache.get("a")).isPresent();
+        clock.advance(Duration.ofMinutes(1));
+        assertThat(cache.get("a")).isEmpty();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void diskTierSurvivesRestartAndServesMemoryEvictions() {
+        String path = tempDir.resolve("cache/instructions.jsonl").toString();
+        InstructionCache first = new InstructionCache(1, Duration.ofHours(1), path, 1000, objectMapper, clock);
+        first.put("a", List.of("step a1", "step a2"));
+        first.put("b", List.of("step b"));
+        // "a" was evicted from memory but is still on disk
+        assertThat(first.get("a")).contains(List.of("step a1", "step a2"));
+        assertThat(first.stats().diskHits()).isEqualTo(1);
+        first.invalidate("b");
+        first.close();
+
+        InstructionCache second = new InstructionCache(10, Duration.ofHours(1), path, 1000, objectMapper, clock);
+        assertThat(second.get("a")).contains(List.of("step a1", "step a2"));
+        assertThat(second.get("b")).isEmpty();
+        second.close();
+    }
+
+    @Test
+    void ignoresTornTailAndCompactsDeadRecords() throws Exception {
+        Path path = tempDir.resolve("instructions.jsonl");
+        InstructionCache first = new InstructionCache(10, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        for (int i = 0; i < 5; i++) {
+            first.put("a", List.of("version " + i));
+        }
+        first.close();
+        Files.writeString(path, Files.readString(path) + "{\"key\":\"b\",\"crea");
+
+        InstructionCache second = new InstructionCache(10, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        assertThat(second.get("a")).contains(List.of("version 4"));
+        assertThat(second.stats().diskSize()).isEqualTo(1);
+        second.close();
+        assertThat(Files.readAllLines(path)).hasSize(1);
+    }
+
+    @Test
+    void skipsACorruptRecordInTheMiddleAndKeepsTheOnesAfterIt() throws Exception {
+        Path path = tempDir.resolve("instructions.jsonl");
+        InstructionCache first = new InstructionCache(10, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        first.put("a", List.of("step a"));
+        first.close();
+        Files.writeString(path, Files.readString(path) + "{\"key\":\"garbled\n");
+        InstructionCache second = new InstructionCache(10, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        second.put("b", List.of("step b"));
+        second.close();
+
+        InstructionCache third = new InstructionCache(10, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        assertThat(third.get("a")).contains(List.of("step a"));
+        assertThat(third.get("b")).contains(List.of("step b"));
+        assertThat(Files.readAllLines(path)).hasSize(3);
+
+        // The corrupt line counts as dead, so it goes with the next compaction
+        third.invalidate("a");
+        assertThat(Files.readAllLines(path)).hasSize(1);
+        assertThat(third.get("b")).contains(List.of("step b"));
+        third.close();
+    }
+
+    @Test
+    void compactsDeadRecordsWhileRunning() throws Exception {
+        Path path = tempDir.resolve("instructions.jsonl");
+        InstructionCache cache = new InstructionCache(1, Duration.ofHours(1), path.toString(), 1000, objectMapper, clock);
+        cache.put("a", List.of("step a"));
+        for (int i = 0; i < 100; i++) {
+            cache.put("b", List.of("version " + i));
+        }
+
+        // Dead records never outnumber live ones by more than the append that triggers a compaction
+        assertThat(Files.readAllLines(path)).hasSizeLessThanOrEqualTo(4);
+        assertThat(cache.get("a")).contains(List.of("step a"));
+        cache.put("c", List.of("step c"));
+        assertThat(cache.get("b")).contains(List.of("version 99"));
+        assertThat(cache.stats().diskSize()).isEqualTo(3);
+        cache.close();
+    }
+
+    @Test
+    void boundsAndExpiresTheDiskIndex() {
+        String path = tempDir.resolve("instructions.jsonl").toString();
+        InstructionCache cache = new InstructionCache(1, Duration.ofHours(1), path, 2, objectMapper, clock);
+        cache.put("a", List.of("step a"));
+        cache.put("b", List.of("step b"));
+        cache.put("c", List.of("step c"));
+
+        // The oldest record fell out of both tiers
+        assertThat(cache.stats().diskSize()).isEqualTo(2);
+        assertThat(cache.contains("a")).isFalse();
+        assertThat(cache.get("b")).contains(List.of("step b"));
+
+        clock.advance(Duration.ofMinutes(90));
+        cache.put("d", List.of("step d"));
+        assertThat(cache.stats().diskSize()).isEqualTo(1);
+        assertThat(cache.stats().evictions()).isGreaterThanOrEqualTo(3);
+        cache.close();
+    }
+
+    private static Recipe recipe(String title, int yield, String... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(yield);
+        recipe.setIngredients(List.of(ingredients));
+        return recipe;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.osa.directsupplyrecipe.model.Recipe;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class InstructionPrewarmerTest {
+
+    private static final int RECIPES = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void warmsEveryRecipeAndResumesFromThePersistedCache() {
+        Path cacheFile = dir.resolve("instructions.jsonl");
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMillis(5), 0, 32);
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), cacheFile.toString(), 1000, new ObjectMapper());
+        RecipeService service = newService(generator, cache);
+        // A previous, interrupted run already warmed the first recipe
+        service.getRecipeInstructions("Recipe 0");
+        cache.close();
+
+        // After a restart only the disk tier remembers it
+        InstructionCache restarted = new InstructionCache(100, Duration.ofHours(1), cacheFile.toString(), 1000, new ObjectMapper());
+        InstructionPrewarmer prewarmer = new InstructionPrewarmer(newService(generator, restarted), 4, 1000, 10, true);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        prewarmer.bindTo(registry);
+        try {
+            prewarmer.prewarmOnStartup();
+            assertThat(prewarmer.start()).isFalse();
+
+            await().atMost(Duration.ofSeconds(10))
+                    .until(() -> prewarmer.status().state() == PrewarmStatus.State.COMPLETED);
+            PrewarmStatus status = prewarmer.status();
+            assertThat(status.total()).isEqualTo(RECIPES);
+            assertThat(status.alreadyWarm()).isEqualTo(1);
+            assertThat(status.generated()).isEqualTo(RECIPES - 1);
+            assertThat(status.failed()).isZero();
+            assertThat(generator.getCallCount()).isEqualTo(RECIPES);
+            assertThat(prewarmer.health().getStatus()).isEqualTo(Status.UP);
+            assertThat(registry.get("recipe.instructions.prewarm.progress").gauge().value()).isEqualTo(1);
+
+            // A second run finds everything warm and makes no model calls
+            assertThat(prewarmer.start()).isTrue();
+            await().atMost(Duration.ofSeconds(10))
+                    .until(() -> prewarmer.status().state() == PrewarmStatus.State.COMPLETED);
+            assertThat(prewarmer.status().alreadyWarm()).isEqualTo(RECIPES);
+            assertThat(generator.getCallCount()).isEqualTo(RECIPES);
+        } finally {
+            prewarmer.close();
+            restarted.close();
+        }
+    }
+
+    @Test
+    void gatesReadinessUntilTheStartupRunEnds() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMillis(200), 0, 32);
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), "", 1000, new ObjectMapper());
+        InstructionPrewarmer prewarmer = new InstructionPrewarmer(newService(generator, cache), 1, 1, 1, true);
+
+        prewarmer.prewarmOnStartup();
+        assertThat(prewarmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(prewarmer.cancel()).isTrue();
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> prewarmer.status().state() == PrewarmStatus.State.CANCELLED);
+        assertThat(prewarmer.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(prewarmer.status().generated()).isLessThan(RECIPES);
+    }
+
+    @Test
+    void batchesMissesAtTheDefaultSettings() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMillis(5), 0, 32);
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), "", 1000, new ObjectMapper());
+        // The shipped defaults: batches of 8 within 20ms, 4 workers paced at 2/s with bursts of 4
+        RecipeService service = RecipeServiceFixture.of(recipes())
+                .cache(cache)
+                .generator(generator)
+                .batch(8, Duration.ofMillis(20))
+                .build();
+        InstructionPrewarmer prewarmer = new InstructionPrewarmer(service, 4, 2, 4, false);
+        try {
+            assertThat(prewarmer.start()).isTrue();
+            await().atMost(Duration.ofSeconds(10))
+                    .until(() -> prewarmer.status().state() == PrewarmStatus.State.COMPLETED);
+
+            assertThat(prewarmer.status().generated()).isEqualTo(RECIPES);
+            // 20 recipes in groups of at most 8 per worker, rather than one call per recipe
+            assertThat(generator.getCallCount()).isBetween((long) RECIPES / 8, 5L);
+        } finally {
+            prewarmer.close();
+            service.close();
+        }
+    }
+
+    @Test
+    void pacesModelCallsRatherThanRecipes() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), "", 1000, new ObjectMapper());
+        RecipeService service = RecipeServiceFixture.of(recipes())
+                .cache(cache)
+                .generator(generator)
+                .batch(8, Duration.ofMillis(20))
+                .build();
+        // One call per second: 3 batches take about 2s, where pacing each recipe would take 19s
+        InstructionPrewarmer prewarmer = new InstructionPrewarmer(service, 1, 1, 1, false);
+        try {
+            assertThat(prewarmer.start()).isTrue();
+            await().atMost(Duration.ofSeconds(6))
+                    .until(() -> prewarmer.status().state() == PrewarmStatus.State.COMPLETED);
+
+            assertThat(prewarmer.status().generated()).isEqualTo(RECIPES);
+            assertThat(generator.getCallCount()).isEqualTo(3);
+        } finally {
+            prewarmer.close();
+            service.close();
+        }
+    }
+
+    @Test
+    void closeStopsWorkersWaitingOnGenerationsTheClosedLimiterDropped() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMinutes(1), 0, 32);
+        InstructionCache cache = new InstructionCache(100, Duration.ofHours(1), "", 1000, new ObjectMapper());
+        GenerationLimiter limiter = new GenerationLimiter(1, 8, Duration.ofMillis(50));
+        RecipeService service = RecipeServiceFixture.of(recipes())
+                .cache(cache)
+                .generator(generator)
+                .limiter(limiter)
+                .build();
+        InstructionPrewarmer prewarmer = new InstructionPrewarmer(service, 3, 1000, 10, false);
+
+        assertThat(prewarmer.start()).isTrue();
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> limiter.getActiveCount() == 1 && limiter.getQueuedCount() == 2);
+        CompletableFuture<String> queued = limiter.submit(() -> "never runs");
+
+        // Shutdown order must not matter: the limiter fails what it drops, and close() interrupts the workers
+        limiter.close();
+        assertThat(queued).isCompletedExceptionally();
+        prewarmer.close();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> prewarmThreads().isEmpty());
+        assertThat(prewarmer.status().state()).isEqualTo(PrewarmStatus.State.CANCELLED);
+    }
+
+    private static List<Thread> prewarmThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("instruction-prewarm-") && thread.isAlive())
+                .toList();
+    }
+
+    private static RecipeService newService(InstructionGenerator generator, InstructionCache cache) {
+        return RecipeServiceFixture.of(recipes())
+                .cache(cache)
+                .generator(generator)
+                .limiter(new GenerationLimiter(4, 16, Duration.ofMillis(50)))
+                .build();
+    }
+
+    private static List<Recipe> recipes() {
+        List<Recipe> recipes = new ArrayList<>();
+        for (int i = 0; i < RECIPES; i++) {
+            Recipe recipe = new Recipe();
+            recipe.setTitle("Recipe " + i);
+            recipe.setYield(2);
+            recipe.setIngredients(List.of(i + "g rolled oats", "150ml almond milk"));
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+}
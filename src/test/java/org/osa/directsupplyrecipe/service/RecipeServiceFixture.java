@@ -0,0 +1,99 @@
+package org.osa.directsupplyrecipe.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.osa.directsupplyrecipe.catalog.RecipeCatalog;
+import org.osa.directsupplyrecipe.config.InstructionProperties;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Builds {@link RecipeService} instances for tests and benchmarks, so the service's collaborators and settings
+ * are wired in one place. Unless overridden, a service uses an in-memory cache, an instant
+ * {@link StubInstructionGenerator}, an 8-slot limiter, no hedging, no batching and a single generation attempt.
+ */
+final class RecipeServiceFixture {
+
+    static final String MODEL = "test-model";
+
+    private final RecipeCatalog catalog;
+    private InstructionCache cache;
+    private InstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+    private GenerationLimiter limiter;
+    private GenerationHedger hedger = new GenerationHedger(false, Duration.ZERO, 0.95, 0.05, 4);
+    private MeterRegistry registry = new SimpleMeterRegistry();
+    private int batchMaxSize = 1;
+    private Duration batchWindow = Duration.ofSeconds(1);
+    private int maxAttempts = 1;
+    private Duration retryBackoff = Duration.ofMillis(1);
+    private Duration deadline = Duration.ofMinutes(1);
+
+    private RecipeServiceFixture(RecipeCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    static RecipeServiceFixture of(RecipeCatalog catalog) {
+        return new RecipeServiceFixture(catalog);
+    }
+
+    static RecipeServiceFixture of(List<Recipe> recipes) {
+        return of(RecipeCatalog.of(recipes));
+    }
+
+    RecipeServiceFixture cache(InstructionCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    RecipeServiceFixture generator(InstructionGenerator generator) {
+        this.generator = generator;
+        return this;
+    }
+
+    RecipeServiceFixture limiter(GenerationLimiter limiter) {
+        this.limiter = limiter;
+        return this;
+    }
+
+    RecipeServiceFixture hedger(GenerationHedger hedger) {
+        this.hedger = hedger;
+        return this;
+    }
+
+    RecipeServiceFixture registry(MeterRegistry registry) {
+        this.registry = registry;
+        return this;
+    }
+
+    RecipeServiceFixture batch(int maxSize, Duration window) {
+        this.batchMaxSize = maxSize;
+        this.batchWindow = window;
+        return this;
+    }
+
+    RecipeServiceFixture attempts(int maxAttempts, Duration retryBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        return this;
+    }
+
+    RecipeServiceFixture deadline(Duration deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    RecipeService build() {
+        InstructionProperties properties = new InstructionProperties(
+                new InstructionProperties.Log(0),
+                new InstructionProperties.Batch(batchMaxSize, batchWindow),
+                new InstructionProperties.Generation(maxAttempts, retryBackoff, deadline));
+        return new RecipeService(catalog, MODEL, new InstructionPromptBuilder(),
+                cache != null ? cache : new InstructionCache(100, Duration.ofHours(1), "", 1000, new ObjectMapper()),
+                generator,
+                limiter != null ? limiter : new GenerationLimiter(8, 32, Duration.ofSeconds(5)),
+                hedger, new InstructionMetrics(registry), new InstructionValidator(1, 50, 500), properties);
+    }
+}
@@ -0,0 +1,410 @@
+package org.osa.directsupplyrecipe.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.osa.directsupplyrecipe.model.Recipe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class RecipeServiceTest {
+
+    private static final String MODEL = RecipeServiceFixture.MODEL;
+
+    @Test
+    void generatesOnceAndServesRepeatRequestsFromCache() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        RecipeService service = newService(generator);
+
+        List<String> first = service.getRecipeInstructions("chicken stir-fry");
+        List<String> second = service.getRecipeInstructions("Chicken Stir-Fry");
+
+        assertThat(first).startsWith("Gather all ingredients for Chicken Stir-Fry.")
+                .contains("Prepare the 200g chicken breast.");
+        assertThat(second).isEqualTo(first);
+        assertThat(generator.getCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentRequestsForOneRecipeMakeOneUpstreamCall() throws Exception {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMillis(500), 0, 32);
+        RecipeService service = newService(generator);
+
+        int callers = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.getRecipeInstructions("Chicken Stir-Fry");
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).hasSize(9);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(generator.getCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    void streamsStepsThenReplaysThemFromCache() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 7);
+        RecipeService service = newService(generator);
+
+        List<String> streamed = new ArrayList<>();
+        service.streamRecipeInstructions("Chicken Stir-Fry", streamed::add).join();
+        List<String> replayed = new ArrayList<>();
+        assertThat(service.streamRecipeInstructions("Chicken Stir-Fry", replayed::add)).isDone();
+
+        assertThat(streamed).hasSize(9).isEqualTo(replayed);
+        assertThat(service.getRecipeInstructions("Chicken Stir-Fry")).isEqualTo(streamed);
+        assertThat(generator.getCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsGenerationsBeyondConcurrencyAndQueueLimits() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ofMillis(500), 0, 32);
+        GenerationLimiter limiter = new GenerationLimiter(1, 0, Duration.ofSeconds(7));
+        RecipeService service = newService(generator, limiter);
+        try {
+            CompletableFuture<Void> running = service.streamRecipeInstructions("Chicken Stir-Fry", step -> {});
+
+            assertThatThrownBy(() -> service.getRecipeInstructionsAsync("Chicken Stir-Fry"))
+                    .isInstanceOfSatisfying(GenerationRejectedException.class,
+                            e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(7)));
+            assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+            running.join();
+            // Cached instructions never need a generation slot
+            assertThat(service.getRecipeInstructionsAsync("Chicken Stir-Fry")).isCompleted();
+        } finally {
+            limiter.close();
+        }
+    }
+
+    @Test
+    void recordsStageTimingsAndParseFallbacks() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        InstructionGenerator refusing = (model, prompt) -> "Sorry, I can't help with that.";
+        RecipeService service = newService(refusing, new GenerationLimiter(1, 1, Duration.ofSeconds(5)), registry);
+
+        assertThatThrownBy(() -> service.getRecipeInstructions("Chicken Stir-Fry"))
+                .isInstanceOf(InvalidInstructionsException.class);
+        assertThatThrownBy(() -> service.streamRecipeInstructions("Chicken Stir-Fry", step -> {}).join())
+                .hasCauseInstanceOf(InvalidInstructionsException.class);
+
+        assertThat(registry.get("recipe.instructions.prompt.build").timer().count()).isEqualTo(2);
+        assertThat(registry.get("recipe.instructions.generate").tags("mode", "blocking", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("recipe.instructions.generate").tags("mode", "stream").timer().count()).isEqualTo(1);
+        assertThat(registry.get("recipe.instructions.parse").timer().count()).isEqualTo(2);
+        assertThat(registry.get("recipe.instructions.parse.fallback").counter().count()).isEqualTo(2);
+        assertThat(registry.get("recipe.instructions.response.size").summary().totalAmount()).isEqualTo(60);
+        assertThat(registry.get("recipe.instructions.invalid").tags("reason", "unparseable").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void countsResponsesWithoutTextAsEmptyRatherThanErrors() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        InstructionGenerator blocked = (model, prompt) -> null;
+        RecipeService service = newService(blocked, new GenerationLimiter(1, 1, Duration.ofSeconds(5)), registry);
+
+        assertThatThrownBy(() -> service.getRecipeInstructions("Chicken Stir-Fry"))
+                .isInstanceOf(InvalidInstructionsException.class);
+
+        assertThat(registry.get("recipe.instructions.generate").tags("outcome", "empty").timer().count()).isEqualTo(1);
+        assertThat(registry.find("recipe.instructions.generate").tags("outcome", "error").timer()).isNull();
+    }
+
+    @Test
+    void retriesInvalidOutputAndCachesOnlyTheValidResult() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StubInstructionGenerator stub = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        AtomicInteger calls = new AtomicInteger();
+        InstructionGenerator flaky = (model, prompt) -> switch (calls.incrementAndGet()) {
+            case 1 -> "Sorry, I can't help with that.";
+            case 2 -> "[\"Cook it.\", \" \"]";
+            default -> stub.generate(model, prompt);
+        };
+        RecipeService service = newService(flaky, new GenerationLimiter(1, 1, Duration.ofSeconds(5)), registry, 1, 3);
+
+        assertThat(service.getRecipeInstructions("Garlic Bread")).startsWith("Gather all ingredients for Garlic Bread.");
+        assertThat(service.getRecipeInstructions("Garlic Bread")).hasSize(5);
+        assertThat(calls).hasValue(3);
+        assertThat(registry.get("recipe.instructions.invalid").tags("reason", "unparseable").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("recipe.instructions.invalid").tags("reason", "blank_step").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("recipe.instructions.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsWithoutCachingAnything() {
+        AtomicInteger calls = new AtomicInteger();
+        InstructionGenerator empty = (model, prompt) -> {
+            calls.incrementAndGet();
+            return "[]";
+        };
+        RecipeService service = newService(empty, new GenerationLimiter(1, 1, Duration.ofSeconds(5)),
+                new SimpleMeterRegistry(), 1, 2);
+
+        assertThatThrownBy(() -> service.getRecipeInstructions("Garlic Bread"))
+                .isInstanceOf(InvalidInstructionsException.class)
+                .extracting(e -> ((InvalidInstructionsException) e).getViolation())
+                .isEqualTo(InstructionValidator.Violation.TOO_FEW_STEPS);
+        assertThatThrownBy(() -> service.getRecipeInstructions("Garlic Bread"))
+                .isInstanceOf(InvalidInstructionsException.class);
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void releasesTheGenerationSlotWhileBackingOff() throws Exception {
+        StubInstructionGenerator stub = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        AtomicInteger breadCalls = new AtomicInteger();
+        InstructionGenerator flakyBread = (model, prompt) -> prompt.contains("Garlic Bread")
+                && breadCalls.incrementAndGet() == 1 ? "[]" : stub.generate(model, prompt);
+        GenerationLimiter limiter = new GenerationLimiter(1, 4, Duration.ofSeconds(5));
+        RecipeService service = fixture().generator(flakyBread).limiter(limiter)
+                .attempts(2, Duration.ofSeconds(2)).build();
+        try {
+            CompletableFuture<List<String>> bread = service.getRecipeInstructionsAsync("Garlic Bread");
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(breadCalls).hasValue(1));
+
+            // The only slot is free during the backoff, so another recipe is generated before the retry
+            assertThat(service.getRecipeInstructionsAsync("Overnight Oats").get(1, TimeUnit.SECONDS)).isNotEmpty();
+            assertThat(bread).isNotDone();
+            assertThat(bread.get(5, TimeUnit.SECONDS)).isNotEmpty();
+            assertThat(breadCalls).hasValue(2);
+        } finally {
+            limiter.close();
+        }
+    }
+
+    @Test
+    void doesNotStartAnAttemptExpectedToEndAfterTheDeadline() {
+        AtomicInteger calls = new AtomicInteger();
+        InstructionGenerator slowAndEmpty = (model, prompt) -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "[]";
+        };
+        RecipeService service = fixture().generator(slowAndEmpty).attempts(5, Duration.ofMillis(1))
+                .deadline(Duration.ofMillis(300)).build();
+
+        assertThatThrownBy(() -> service.getRecipeInstructions("Garlic Bread"))
+                .isInstanceOf(InvalidInstructionsException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void batchesConcurrentPrewarmMissesIntoOneCallAndRetriesOmittedRecipes() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StubInstructionGenerator stub = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        InstructionGenerator omitsThirdRecipe = (model, prompt) -> {
+            prompts.add(prompt);
+            return stub.generate(model, prompt).replaceFirst(",\"3\":\\[[^\\]]*\\]", "");
+        };
+        RecipeService service = newService(omitsThirdRecipe, new GenerationLimiter(8, 32, Duration.ofSeconds(5)),
+                registry, 3);
+        try {
+            List<CompletableFuture<List<String>>> results = List.of(
+                    service.prewarmInstructionsAsync(service.getRecipe("Chicken Stir-Fry")),
+                    service.prewarmInstructionsAsync(service.getRecipe("Garlic Bread")),
+                    service.prewarmInstructionsAsync(service.getRecipe("Overnight Oats")));
+
+            assertThat(results).extracting(CompletableFuture::join).extracting(steps -> steps.get(0))
+                    .containsExactly("Gather all ingredients for Chicken Stir-Fry.",
+                            "Gather all ingredients for Garlic Bread.", "Gather all ingredients for Overnight Oats.");
+            assertThat(prompts).hasSize(2);
+            assertThat(prompts.get(0)).contains(InstructionPromptBuilder.BATCH_KEY_PREFIX + "3");
+            assertThat(prompts.get(1)).doesNotContain(InstructionPromptBuilder.BATCH_KEY_PREFIX)
+                    .contains("Recipe title: Overnight Oats");
+            assertThat(registry.get("recipe.instructions.batch.size").summary().totalAmount()).isEqualTo(3);
+            assertThat(registry.get("recipe.instructions.batch.retries").counter().count()).isEqualTo(1);
+
+            // Every recipe was cached, whether it came from the batch or the retry
+            assertThat(service.getRecipeInstructionsAsync("Overnight Oats")).isCompleted();
+            assertThat(service.getRecipeInstructionsAsync("Garlic Bread")).isCompleted();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void neverBatchesInteractiveMisses() {
+        StubInstructionGenerator stub = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        List<String> prompts = new CopyOnWriteArrayList<>();
+        InstructionGenerator recording = (model, prompt) -> {
+            prompts.add(prompt);
+            return stub.generate(model, prompt);
+        };
+        RecipeService service = newService(recording, new GenerationLimiter(8, 32, Duration.ofSeconds(5)),
+                new SimpleMeterRegistry(), 3);
+        try {
+            CompletableFuture.allOf(
+                    service.getRecipeInstructionsAsync("Chicken Stir-Fry"),
+                    service.getRecipeInstructionsAsync("Garlic Bread"),
+                    service.getRecipeInstructionsAsync("Overnight Oats")).join();
+
+            assertThat(prompts).hasSize(3)
+                    .noneMatch(prompt -> prompt.contains(InstructionPromptBuilder.BATCH_KEY_PREFIX));
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void concurrentStreamsShareOneGenerationAndLateOnesReplayEarlierSteps() throws Exception {
+        StubInstructionGenerator stub = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        InstructionGenerator pausing = new InstructionGenerator() {
+            @Override
+            public String generate(String model, String prompt) {
+                return stub.generate(model, prompt);
+            }
+
+            @Override
+            public void generateStream(String model, String prompt, Consumer<String> onChunk) {
+                calls.incrementAndGet();
+                String response = stub.generate(model, prompt);
+                int secondStep = response.indexOf("\",\"") + 2;
+                onChunk.accept(response.substring(0, secondStep));
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                onChunk.accept(response.substring(secondStep));
+            }
+        };
+        GenerationLimiter limiter = new GenerationLimiter(8, 32, Duration.ofSeconds(5));
+        RecipeService service = newService(pausing, limiter);
+        try {
+            List<String> first = new CopyOnWriteArrayList<>();
+            CompletableFuture<Void> leader = service.streamRecipeInstructions("Garlic Bread", first::add);
+            await().atMost(Duration.ofSeconds(5)).until(() -> !first.isEmpty());
+
+            int joiners = 20;
+            List<List<String>> joined = new ArrayList<>();
+            List<CompletableFuture<Void>> streams = new ArrayList<>(List.of(leader));
+            ExecutorService executor = Executors.newFixedThreadPool(joiners);
+            try {
+                List<Future<CompletableFuture<Void>>> started = new ArrayList<>();
+                for (int i = 0; i < joiners; i++) {
+                    List<String> steps = new CopyOnWriteArrayList<>();
+                    joined.add(steps);
+                    started.add(executor.submit(() -> service.streamRecipeInstructions("Garlic Bread", steps::add)));
+                }
+                for (Future<CompletableFuture<Void>> stream : started) {
+                    streams.add(stream.get(5, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdown();
+            }
+            release.countDown();
+
+            CompletableFuture.allOf(streams.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            assertThat(first).hasSize(5).startsWith("Gather all ingredients for Garlic Bread.");
+            assertThat(joined).allSatisfy(steps -> assertThat(steps).isEqualTo(first));
+            assertThat(calls).hasValue(1);
+        } finally {
+            limiter.close();
+        }
+    }
+
+    @Test
+    void scalesCachedInstructionsToAnyYieldWithoutGeneratingAgain() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 7);
+        RecipeService service = newService(generator);
+
+        List<String> forty = service.getRecipeInstructionsAsync("Chicken Stir-Fry", 40).join();
+        List<String> streamed = new ArrayList<>();
+        service.streamRecipeInstructions("Chicken Stir-Fry", 1, streamed::add).join();
+
+        assertThat(forty).contains("Prepare the 4000g chicken breast.", "Prepare the 100g ginger.");
+        assertThat(streamed).contains("Prepare the 100g chicken breast.", "Prepare the 2.5g ginger.");
+        assertThat(service.getRecipeInstructions("Chicken Stir-Fry")).contains("Prepare the 200g chicken breast.");
+        assertThat(service.getRecipe("Chicken Stir-Fry", 40).getIngredients()).startsWith("600g olive oil");
+        assertThat(generator.getCallCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownRecipeReturnsEmptyListWithoutGenerating() {
+        StubInstructionGenerator generator = new StubInstructionGenerator(Duration.ZERO, 0, 32);
+        assertThat(newService(generator).getRecipeInstructions("Beef Wellington")).isEmpty();
+        assertThat(generator.getCallCount()).isZero();
+    }
+
+    private static RecipeService newService(InstructionGenerator generator) {
+        return newService(generator, new GenerationLimiter(8, 32, Duration.ofSeconds(5)));
+    }
+
+    private static RecipeService newService(InstructionGenerator generator, GenerationLimiter limiter) {
+        return newService(generator, limiter, new SimpleMeterRegistry());
+    }
+
+    private static RecipeService newService(InstructionGenerator generator, GenerationLimiter limiter,
+                                            MeterRegistry registry) {
+        // Unbatched, so saturation is reported synchronously
+        return newService(generator, limiter, registry, 1);
+    }
+
+    private static RecipeService newService(InstructionGenerator generator, GenerationLimiter limiter,
+                                            MeterRegistry registry, int batchMaxSize) {
+        return newService(generator, limiter, registry, batchMaxSize, 1);
+    }
+
+    private static RecipeService newService(InstructionGenerator generator, GenerationLimiter limiter,
+                                            MeterRegistry registry, int batchMaxSize, int maxAttempts) {
+        return fixture()
+                .generator(generator)
+                .limiter(limiter)
+                .registry(registry)
+                .batch(batchMaxSize, Duration.ofSeconds(1))
+                .attempts(maxAttempts, Duration.ofMillis(1))
+                .build();
+    }
+
+    private static RecipeServiceFixture fixture() {
+        return RecipeServiceFixture.of(List.of(
+                recipe("Chicken Stir-Fry", "30g olive oil", "200g chicken breast", "500g broccoli florets",
+                        "250g red bell pepper", "60g soy sauce", "10g garlic", "5g ginger"),
+                recipe("Garlic Bread", "1 baguette", "10g garlic", "30g butter"),
+                recipe("Overnight Oats", "50g rolled oats", "150ml almond milk")));
+    }
+
+    private static Recipe recipe(String title, String... ingredients) {
+        Recipe recipe = new Recipe();
+        recipe.setTitle(title);
+        recipe.setYield(2);
+        recipe.setIngredients(List.of(ingredients));
+        return recipe;
+    }
+}
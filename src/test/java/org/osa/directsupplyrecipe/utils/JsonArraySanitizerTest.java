@@ -0,0 +1,113 @@
+package org.osa.directsupplyrecipe.utils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonArraySanitizerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void parserIsEquivalentToLegacyPipelineOnRecordedResponses() throws IOException {
+        List<String> corpus = loadCorpus();
+        assertThat(corpus).isNotEmpty();
+
+        for (String response : corpus) {
+            List<String> parsed = JsonArraySanitizer.parseStringArray(response);
+            List<String> legacy = legacyParse(response);
+            // The legacy pipeline bound null elements as null steps; the parser rejects such arrays
+            assertThat(parsed == null ? Collections.<String>emptyList() : parsed)
+                    .as("response: %s", response)
+                    .isEqualTo(legacy.contains(null) ? Collections.emptyList() : legacy);
+        }
+    }
+
+    @Test
+    void sanitizedArrayParsesToSameStepsAsLegacyPipeline() throws IOException {
+        for (String response : loadCorpus()) {
+            String sanitized = JsonArraySanitizer.sanitizeToJsonArray(response);
+            assertThat(objectMapper.readValue(sanitized, new TypeReference<List<String>>() {}))
+                    .as("response: %s", response)
+                    .isEqualTo(legacyParse(response));
+        }
+    }
+
+    @Test
+    void sanitizedArrayExcludesTrailingProseWithBrackets() {
+        String response = "```json\n[\"Stir gently.\", \"Serve [warm].\"]\n```\nNote: adjust the seasoning [to taste].";
+        assertThat(JsonArraySanitizer.sanitizeToJsonArray(response))
+                .isEqualTo("[\"Stir gently.\", \"Serve [warm].\"]");
+    }
+
+    @Test
+    void ignoresBracketsInStringsWhenMatchingTheArray() {
+        String response = "[\"Add \\\"]\\\" to the list\", \"Done ]\"] trailing ]";
+        assertThat(JsonArraySanitizer.parseStringArray(response)).containsExactly("Add \"]\" to the list", "Done ]");
+    }
+
+    @Test
+    void skipsBracketedAsidesBeforeTheArray() {
+        String response = "Steps for [Overnight Oats]:\n[\"Combine the oats and milk.\", \"Refrigerate overnight.\"]";
+        assertThat(legacyParse(response)).isEmpty();
+        assertThat(JsonArraySanitizer.parseStringArray(response))
+                .containsExactly("Combine the oats and milk.", "Refrigerate overnight.");
+    }
+
+    @Test
+    void parsesFromMutableBuffers() {
+        StringBuilder streamed = new StringBuilder("```json\n[\"One.\", ");
+        streamed.append("\"Two.\"]\n```");
+        assertThat(JsonArraySanitizer.parseStringArray(streamed)).containsExactly("One.", "Two.");
+    }
+
+    @Test
+    void rejectsNestedStructuresAndMissingArrays() {
+        assertThat(JsonArraySanitizer.parseStringArray("[[\"a\"], {\"b\": 1}]")).isNull();
+        assertThat(JsonArraySanitizer.parseStringArray("[\"a\", null]")).isNull();
+        assertThat(JsonArraySanitizer.parseStringArray("no array here")).isNull();
+        assertThat(JsonArraySanitizer.parseStringArray(null)).isNull();
+        assertThat(JsonArraySanitizer.sanitizeToJsonArray(null)).isEqualTo("[]");
+    }
+
+    @Test
+    void parsesBatchedObjectsKeepingWellFormedEntries() {
+        String response = "```json\n{\"1\": [\"Chop.\", \"Cook.\"], \"2\": {\"steps\": [\"Whisk.\"]}, "
+                + "\"3\": [[\"Bake.\"]], \"4\": [\"Serve.\"], \"6\": [\"Rest.\", null], \"5\": [\"Garn";
+        assertThat(JsonArraySanitizer.parseStringArrayObject(response))
+                .containsExactly(Map.entry("1", List.of("Chop.", "Cook.")), Map.entry("4", List.of("Serve.")));
+        assertThat(JsonArraySanitizer.parseStringArrayObject("[\"Chop.\"]")).isNull();
+        assertThat(JsonArraySanitizer.parseStringArrayObject(null)).isNull();
+    }
+
+    private List<String> loadCorpus() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/instruction-responses.json")) {
+            return objectMapper.readValue(in, new TypeReference<>() {});
+        }
+    }
+
+    /**
+     * The trim / strip fences / first-to-last bracket / data-binding pipeline that
+     * {@code RecipeService} used before the single-pass scanner.
+     */
+    private List<String> legacyParse(String rawText) {
+        try {
+            String trimmed = rawText.trim();
+            String withoutFences = JsonArraySanitizer.stripWrappingCodeFences(trimmed);
+            String arrayOnly = JsonArraySanitizer.extractFirstBracketedArray(withoutFences);
+            String cleaned = JsonArraySanitizer.looksLikeJsonArray(arrayOnly) ? arrayOnly : "[]";
+            List<String> steps = objectMapper.readValue(cleaned, new TypeReference<>() {});
+            return steps == null ? Collections.emptyList() : steps;
+        } catch (Exception e) {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonArrayStepTokenizerTest {
+
+    @Test
+    void emitsEachStepAsSoonAsItsLiteralCloses() {
+        List<String> steps = new ArrayList<>();
+        JsonArrayStepTokenizer tokenizer = new JsonArrayStepTokenizer(steps::add);
+
+        tokenizer.feed("```json\n[\"Heat the oil.\", \"Add the chi");
+        assertThat(steps).containsExactly("Heat the oil.");
+        tokenizer.feed("cken [200g].\"");
+        assertThat(steps).containsExactly("Heat the oil.", "Add the chicken [200g].");
+        assertThat(tokenizer.isComplete()).isFalse();
+        tokenizer.feed("]\n```\nEnjoy [your meal]!");
+
+        assertThat(tokenizer.isComplete()).isTrue();
+        assertThat(steps).hasSize(2);
+    }
+
+    @Test
+    void decodesEscapesSplitAcrossChunks() {
+        List<String> steps = new ArrayList<>();
+        JsonArrayStepTokenizer tokenizer = new JsonArrayStepTokenizer(steps::add);
+        String json = "[\"Say \\\"hi\\\"\\nthen stir\", \"Caf\\u00e9 \\\\ bistro\"]";
+
+        for (int i = 0; i < json.length(); i++) {
+            tokenizer.feed(json.substring(i, i + 1));
+        }
+
+        assertThat(steps).containsExactly("Say \"hi\"\nthen stir", "Café \\ bistro");
+        assertThat(tokenizer.getEmittedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void skipsNestedValues() {
+        List<String> steps = new ArrayList<>();
+        JsonArrayStepTokenizer tokenizer = new JsonArrayStepTokenizer(steps::add);
+        tokenizer.feed("[\"one\", {\"note\": \"skip\"}, [\"skip\"], 3, \"two\"]");
+        assertThat(steps).containsExactly("one", "two");
+        assertThat(tokenizer.isComplete()).isTrue();
+    }
+
+    @Test
+    void stopsAtInvalidUnicodeEscape() {
+        List<String> steps = new ArrayList<>();
+        JsonArrayStepTokenizer tokenizer = new JsonArrayStepTokenizer(steps::add);
+        tokenizer.feed("[\"one\", \"t\\u00zz\", \"three\"]");
+
+        assertThat(steps).containsExactly("one");
+        assertThat(tokenizer.isMalformed()).isTrue();
+        assertThat(tokenizer.isComplete()).isFalse();
+    }
+}
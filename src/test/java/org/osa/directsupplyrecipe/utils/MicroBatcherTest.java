@@ -0,0 +1,64 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTest {
+
+    @Test
+    void flushesAsSoonAsABatchIsFull() {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        try (MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>("test-batcher", 3, Duration.ofHours(1),
+                batch -> {
+                    batches.add(batch.stream().map(MicroBatcher.Pending::item).toList());
+                    batch.forEach(pending -> pending.result().complete(pending.item() * 10));
+                })) {
+            List<CompletableFuture<Integer>> results = List.of(batcher.submit(1), batcher.submit(2), batcher.submit(3));
+            CompletableFuture<Integer> nextBatch = batcher.submit(4);
+
+            assertThat(results).extracting(CompletableFuture::join).containsExactly(10, 20, 30);
+            assertThat(batches).containsExactly(List.of(1, 2, 3));
+            assertThat(nextBatch).isNotDone();
+        }
+    }
+
+    @Test
+    void flushesAPartialBatchWhenItsWindowEnds() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test-batcher", 10, Duration.ofMillis(50),
+                batch -> {
+                    batches.add(batch.stream().map(MicroBatcher.Pending::item).toList());
+                    batch.forEach(pending -> pending.result().complete(pending.item().toUpperCase()));
+                })) {
+            CompletableFuture<String> oats = batcher.submit("oats");
+            CompletableFuture<String> curry = batcher.submit("curry");
+
+            assertThat(oats.get(5, TimeUnit.SECONDS)).isEqualTo("OATS");
+            assertThat(curry.get(5, TimeUnit.SECONDS)).isEqualTo("CURRY");
+            assertThat(batches).containsExactly(List.of("oats", "curry"));
+        }
+    }
+
+    @Test
+    void failsTheWholeBatchWhenTheHandlerThrows() {
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>("test-batcher", 2, Duration.ofHours(1),
+                batch -> {
+                    batch.get(0).result().complete("done");
+                    throw new IllegalStateException("saturated");
+                })) {
+            CompletableFuture<String> first = batcher.submit("first");
+            CompletableFuture<String> second = batcher.submit("second");
+
+            assertThat(first.join()).isEqualTo("done");
+            assertThatThrownBy(second::join).hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class SingleFlightStreamTest {
+
+    private static final int SUBSCRIBERS = 300;
+
+    @Test
+    void concurrentSubscribersShareOneRunAndEachReceiveEveryItem() throws Exception {
+        SingleFlightStream<String, String> singleFlight = new SingleFlightStream<>(Runnable::run, 64);
+        AtomicInteger starts = new AtomicInteger();
+        AtomicReference<Consumer<String>> publisher = new AtomicReference<>();
+        CompletableFuture<Void> upstream = new CompletableFuture<>();
+        Function<Consumer<String>, CompletableFuture<?>> task = publish -> {
+            starts.incrementAndGet();
+            publisher.set(publish);
+            // Published before most subscribers arrive, so they must receive it as a replay
+            publish.accept("Chop.");
+            return upstream;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(SUBSCRIBERS);
+        try {
+            List<List<String>> received = new ArrayList<>();
+            List<CompletableFuture<CompletableFuture<Void>>> subscriptions = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                List<String> steps = new CopyOnWriteArrayList<>();
+                received.add(steps);
+                subscriptions.add(CompletableFuture.supplyAsync(() -> {
+                    awaitQuietly(start);
+                    return singleFlight.execute("chicken-stir-fry", steps::add, task);
+                }, executor));
+            }
+            start.countDown();
+            List<CompletableFuture<Void>> done = new ArrayList<>();
+            for (CompletableFuture<CompletableFuture<Void>> subscription : subscriptions) {
+                done.add(subscription.get(10, TimeUnit.SECONDS));
+            }
+            assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+
+            publisher.get().accept("Cook.");
+            upstream.complete(null);
+
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+            assertThat(received).allSatisfy(steps -> assertThat(steps).containsExactly("Chop.", "Cook."));
+            assertThat(starts).hasValue(1);
+            assertThat(singleFlight.inFlightCount()).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void lateSubscriberReplaysPublishedItemsBeforeLiveOnes() {
+        SingleFlightStream<String, String> singleFlight = new SingleFlightStream<>(Runnable::run, 64);
+        AtomicReference<Consumer<String>> publisher = new AtomicReference<>();
+        CompletableFuture<Void> upstream = new CompletableFuture<>();
+        List<String> first = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+
+        CompletableFuture<Void> leader = singleFlight.execute("garlic-bread", first::add, publish -> {
+            publisher.set(publish);
+            return upstream;
+        });
+        publisher.get().accept("Slice.");
+        publisher.get().accept("Butter.");
+        CompletableFuture<Void> joined = singleFlight.execute("garlic-bread", late::add, publish -> {
+            throw new AssertionError("a second run must not start");
+        });
+        assertThat(late).containsExactly("Slice.", "Butter.");
+
+        publisher.get().accept("Bake.");
+        upstream.complete(null);
+
+        assertThat(leader).isCompleted();
+        assertThat(joined).isCompleted();
+        assertThat(first).containsExactly("Slice.", "Butter.", "Bake.");
+        assertThat(late).containsExactly("Slice.", "Butter.", "Bake.");
+    }
+
+    @Test
+    void throwingSubscriberIsDetachedWithoutStoppingTheRun() {
+        SingleFlightStream<String, String> singleFlight = new SingleFlightStream<>(Runnable::run, 64);
+        AtomicReference<Consumer<String>> publisher = new AtomicReference<>();
+        CompletableFuture<Void> upstream = new CompletableFuture<>();
+        IllegalStateException gone = new IllegalStateException("client disconnected");
+        List<String> staying = new ArrayList<>();
+
+        CompletableFuture<Void> leaving = singleFlight.execute("overnight-oats", step -> {
+            throw gone;
+        }, publish -> {
+            publisher.set(publish);
+            return upstream;
+        });
+        CompletableFuture<Void> stays = singleFlight.execute("overnight-oats", staying::add, publish -> upstream);
+
+        publisher.get().accept("Soak.");
+        assertThatThrownBy(leaving::join).hasCause(gone);
+        publisher.get().accept("Serve.");
+        upstream.complete(null);
+
+        assertThat(stays).isCompleted();
+        assertThat(staying).containsExactly("Soak.", "Serve.");
+    }
+
+    @Test
+    void failureReachesEverySubscriberAndReleasesTheKey() {
+        SingleFlightStream<String, String> singleFlight = new SingleFlightStream<>(Runnable::run, 64);
+        CompletableFuture<Void> upstream = new CompletableFuture<>();
+
+        CompletableFuture<Void> first = singleFlight.execute("veggie-omelette", step -> {}, publish -> upstream);
+        CompletableFuture<Void> second = singleFlight.execute("veggie-omelette", step -> {}, publish -> upstream);
+        upstream.completeExceptionally(new IllegalStateException("quota exceeded"));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+
+        List<String> retried = new ArrayList<>();
+        assertThat(singleFlight.execute("veggie-omelette", retried::add, publish -> {
+            publish.accept("Whisk.");
+            return CompletableFuture.completedFuture(null);
+        })).isCompleted();
+        assertThat(retried).containsExactly("Whisk.");
+    }
+
+    @Test
+    void blockedSubscriberDelaysNeitherTheProducerNorOtherSubscribers() throws Exception {
+        ExecutorService delivery = Executors.newCachedThreadPool();
+        try {
+            SingleFlightStream<String, String> singleFlight = new SingleFlightStream<>(delivery, 2);
+            AtomicReference<Consumer<String>> publisher = new AtomicReference<>();
+            CompletableFuture<Void> upstream = new CompletableFuture<>();
+            CountDownLatch stalled = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<String> received = new CopyOnWriteArrayList<>();
+
+            CompletableFuture<Void> slow = singleFlight.execute("chicken-stir-fry", step -> {
+                stalled.countDown();
+                awaitQuietly(release);
+            }, publish -> {
+                publisher.set(publish);
+                return upstream;
+            });
+            CompletableFuture<Void> fast = singleFlight.execute("chicken-stir-fry", received::add, publish -> upstream);
+
+            publisher.get().accept("Chop.");
+            assertThat(stalled.await(5, TimeUnit.SECONDS)).isTrue();
+            // Each publish returns at once although the first subscriber never returns from its first step
+            for (String step : List.of("Sear.", "Glaze.", "Serve.")) {
+                CompletableFuture.runAsync(() -> publisher.get().accept(step)).get(1, TimeUnit.SECONDS);
+                await().atMost(Duration.ofSeconds(5)).until(() -> received.contains(step));
+            }
+            upstream.complete(null);
+
+            fast.get(5, TimeUnit.SECONDS);
+            assertThat(received).containsExactly("Chop.", "Sear.", "Glaze.", "Serve.");
+            // Three steps behind with room for two: detached instead of holding up the run
+            assertThatThrownBy(() -> slow.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            release.countDown();
+        } finally {
+            delivery.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.osa.directsupplyrecipe.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 300;
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() throws Exception {
+        SingleFlight<String, List<String>> singleFlight = new SingleFlight<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<List<String>> stubGenerator = () -> {
+            upstreamCalls.incrementAndGet();
+            awaitQuietly(release);
+            return List.of("Chop.", "Cook.");
+        };
+
+        List<Future<List<String>>> results = runConcurrently(
+                () -> singleFlight.execute("chicken-stir-fry", stubGenerator), singleFlight, release);
+
+        for (Future<List<String>> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS)).containsExactly("Chop.", "Cook.");
+        }
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void failurePropagatesToAllWaitersWithoutPoisoningLaterCalls() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("rate limited");
+        Supplier<String> failingGenerator = () -> {
+            upstreamCalls.incrementAndGet();
+            awaitQuietly(release);
+            throw failure;
+        };
+
+        List<Future<String>> results = runConcurrently(
+                () -> singleFlight.execute("overnight-oats", failingGenerator), singleFlight, release);
+
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS)).hasCause(failure);
+        }
+        assertThat(upstreamCalls).hasValue(1);
+
+        assertThat(singleFlight.execute("overnight-oats", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void differentKeysRunIndependently() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        String outer = singleFlight.execute("a", () -> singleFlight.execute("b", () -> "b") + "a");
+        assertThat(outer).isEqualTo("ba");
+    }
+
+    /**
+     * Starts {@link #CALLERS} callers together, waits until they have all joined the shared
+     * run, then releases the leader.
+     */
+    @Test
+    void asyncCallersShareOneRunAndReleaseTheKeyOnCompletion() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger starts = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        Supplier<CompletableFuture<String>> task = () -> {
+            starts.incrementAndGet();
+            return upstream;
+        };
+
+        CompletableFuture<String> first = singleFlight.executeAsync("veggie-omelette", task);
+        CompletableFuture<String> second = singleFlight.executeAsync("veggie-omelette", task);
+        assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+        assertThat(first).isNotDone();
+
+        upstream.completeExceptionally(new IllegalStateException("quota exceeded"));
+        assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+
+        assertThat(singleFlight.executeAsync("veggie-omelette", () -> CompletableFuture.completedFuture("Whisk.")))
+                .isCompletedWithValue("Whisk.");
+        assertThat(starts).hasValue(1);
+    }
+
+    private static <V> List<Future<V>> runConcurrently(Callable<V> call,
+                                                       SingleFlight<?, ?> singleFlight,
+                                                       CountDownLatch release) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch ready = new CountDownLatch(CALLERS);
+            CountDownLatch entered = new CountDownLatch(CALLERS);
+            List<Future<V>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    entered.countDown();
+                    return call.call();
+                }));
+            }
+            ready.await();
+            start.countDown();
+            // Hold the leader until every caller has reached the in-flight map
+            entered.await();
+            Thread.sleep(200);
+            assertThat(singleFlight.inFlightCount()).isEqualTo(1);
+            release.countDown();
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,6 +5,7 @@ import { MatListModule } from '@angular/material/list';
 import { MatCardModule } from '@angular/material/card';
 import { MatButtonModule } from '@angular/material/button';
 import { MatProgressSpinnerModule } from '@angular/material/progress-spinner';
+import { Subscription } from 'rxjs';
 import { RecipeService, Recipe } from './recipe.service';
 
 @Component({
@@ -32,6 +33,8 @@ export class AppComponent {
   instructions = signal<string[]>([]);
   instructionsLoading = signal<boolean>(false);
 
+  private instructionsSubscription?: Subscription;
+
   /**
    * Lifecycle constructor invoked when the component is created.
    * Triggers the initial load of recipes from the backend.
@@ -79,18 +82,22 @@ export class AppComponent {
   }
 
   /**
-   * Internal helper to fetch step-by-step instructions for a given recipe name.
+   * Internal helper to stream step-by-step instructions for a given recipe name.
+   * Steps are appended as they arrive; the spinner is shown only until the first step.
+   * Any stream still running for a previously selected recipe is cancelled.
    * Handles loading state and error fallback (clears instructions on error).
    * @param name Recipe title to query for instructions
    */
   private fetchInstructions(name: string) {
+    this.instructionsSubscription?.unsubscribe();
     this.instructionsLoading.set(true);
     this.instructions.set([]);
-    this.api.getInstructions(name).subscribe({
-      next: steps => {
-        this.instructions.set(steps);
+    this.instructionsSubscription = this.api.streamInstructions(name).subscribe({
+      next: step => {
+        this.instructions.update(steps => [...steps, step]);
         this.instructionsLoading.set(false);
       },
+      complete: () => this.instructionsLoading.set(false),
       error: _ => {
         this.instructions.set([]);
         this.instructionsLoading.set(false);
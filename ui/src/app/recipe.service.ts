@@ -25,4 +25,31 @@ export class RecipeService {
     const encoded = encodeURIComponent(name);
     return this.http.get<string[]>(`/recipe/${encoded}/instructions`);
   }
+
+  /**
+   * Streams instruction steps from the Server-Sent Events endpoint.
+   * Emits each step as soon as the backend produces it and completes on the `done` event.
+   * Unsubscribing closes the underlying EventSource.
+   */
+  streamInstructions(name: string): Observable<string> {
+    const encoded = encodeURIComponent(name);
+    return new Observable<string>(subscriber => {
+      const source = new EventSource(`/recipe/${encoded}/instructions/stream`);
+      source.addEventListener('step', event => subscriber.next((event as MessageEvent<string>).data));
+      source.addEventListener('done', () => {
+        source.close();
+        subscriber.complete();
+      });
+      source.addEventListener('failure', event => {
+        source.close();
+        subscriber.error(new Error((event as MessageEvent<string>).data));
+      });
+      // Fired on connection errors; close instead of letting EventSource reconnect and regenerate
+      source.onerror = () => {
+        source.close();
+        subscriber.error(new Error('Instruction stream connection failed'));
+      };
+      return () => source.close();
+    });
+  }
 }